@@ -0,0 +1,59 @@
+package benchmarks;
+
+import BatchViolation.GFDBatchTED;
+import BatchViolation.NaiveBatchTED;
+import BatchViolation.OptBatchTED;
+import infra.MatchCollection;
+import infra.TGFD;
+import infra.Violation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/** Benchmarks of the batch violation detection algorithms on the same matches. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchTEDBenchmark
+{
+    @Param({"200"})
+    public int teams;
+
+    @Param({"10"})
+    public int playersPerTeam;
+
+    @Param({"10"})
+    public int snapshots;
+
+    private TGFD tgfd;
+    private MatchCollection matches;
+
+    @Setup
+    public void setup()
+    {
+        tgfd = BenchmarkData.createTGFD();
+        matches = BenchmarkData.createMatches(teams, playersPerTeam, snapshots, tgfd);
+    }
+
+    @Benchmark
+    public Set<Violation> naive()
+    {
+        return new NaiveBatchTED(matches, tgfd).findViolations();
+    }
+
+    @Benchmark
+    public Set<Violation> opt()
+    {
+        return new OptBatchTED(matches, tgfd).findViolations();
+    }
+
+    @Benchmark
+    public Set<Violation> gfd()
+    {
+        return new GFDBatchTED(matches, tgfd).findViolations();
+    }
+}
@@ -0,0 +1,131 @@
+package benchmarks;
+
+import VF2Runner.VF2SubgraphIsomorphism;
+import infra.*;
+import org.jgrapht.GraphMapping;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic data shared by the benchmarks.
+ *
+ * The graph has teams with players that play for them (player -playing-> team). Players have a name and
+ * teams have a name and a league. The TGFD is player.name -> team.league over a 30 day delta, so moving
+ * teams between leagues across snapshots produces violations.
+ */
+final class BenchmarkData
+{
+    //region --[Fields: Public]----------------------------------------
+    /** First snapshot timestamp. */
+    public static final LocalDate START = LocalDate.of(2020, 1, 1);
+    //endregion
+
+    //region --[Fields: Private]---------------------------------------
+    /** Seed so every run and fork gets the same data. */
+    private static final long SEED = 42;
+
+    /** Number of distinct leagues. */
+    private static final int LEAGUES = 8;
+    //endregion
+
+    //region --[Constructors]------------------------------------------
+    private BenchmarkData() { }
+    //endregion
+
+    //region --[Methods: Public]---------------------------------------
+    /**
+     * Creates the data graph.
+     * @param teams Number of teams.
+     * @param playersPerTeam Number of players of each team.
+     */
+    public static VF2DataGraph createGraph(int teams, int playersPerTeam)
+    {
+        var random = new Random(SEED);
+        var graph = new VF2DataGraph();
+        for (int t = 0; t < teams; t++)
+        {
+            var team = new DataVertex("team" + t, "team");
+            team.addAttribute("name", "team" + t);
+            team.addAttribute("league", "league" + random.nextInt(LEAGUES));
+            graph.addVertex(team);
+            for (int p = 0; p < playersPerTeam; p++)
+            {
+                var player = new DataVertex("player" + t + "_" + p, "player");
+                player.addAttribute("name", "player" + t + "_" + p);
+                graph.addVertex(player);
+                graph.addEdge(player, team, new RelationshipEdge("playing"));
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Moves a fraction of the teams to another league.
+     * @param graph Data graph created by createGraph.
+     * @param fraction Fraction of the teams to change.
+     * @param random Source of randomness.
+     */
+    public static void changeLeagues(VF2DataGraph graph, double fraction, Random random)
+    {
+        for (var vertex : graph.getGraph().vertexSet())
+        {
+            if (vertex.getTypes().contains("team") && random.nextDouble() < fraction)
+                graph.updateGraphByAttribute((DataVertex)vertex, new Attribute("league", "league" + random.nextInt(LEAGUES)));
+        }
+    }
+
+    /** Creates the TGFD player.name -> team.league. */
+    public static TGFD createTGFD()
+    {
+        var pattern = new VF2PatternGraph(1);
+        var player = new PatternVertex("player");
+        player.addAttribute(new Attribute("name"));
+        var team = new PatternVertex("team");
+        team.addAttribute(new Attribute("league"));
+        pattern.addVertex(player);
+        pattern.addVertex(team);
+        pattern.addEdge(player, team, new RelationshipEdge("playing"));
+
+        var dependency = new Dependency();
+        dependency.addLiteralToX(new VariableLiteral("player", "name", "player", "name"));
+        dependency.addLiteralToY(new VariableLiteral("team", "league", "team", "league"));
+
+        var delta = new Delta(Period.ofDays(0), Period.ofDays(30), Duration.ofDays(1));
+        return new TGFD(pattern, delta, dependency, "benchmark");
+    }
+
+    /** Collects all the mappings of the pattern in the graph. */
+    public static List<GraphMapping<Vertex, RelationshipEdge>> findMappings(VF2DataGraph graph, VF2PatternGraph pattern)
+    {
+        var mappings = new ArrayList<GraphMapping<Vertex, RelationshipEdge>>();
+        new VF2SubgraphIsomorphism().execute(graph, pattern, VF2SubgraphIsomorphism.NO_LIMIT, mappings::add);
+        return mappings;
+    }
+
+    /**
+     * Creates the matches of the TGFD over snapshots where some teams change league every day.
+     * @param teams Number of teams.
+     * @param playersPerTeam Number of players of each team.
+     * @param snapshots Number of daily snapshots.
+     * @param tgfd TGFD created by createTGFD.
+     */
+    public static MatchCollection createMatches(int teams, int playersPerTeam, int snapshots, TGFD tgfd)
+    {
+        var random = new Random(SEED);
+        var graph = createGraph(teams, playersPerTeam);
+        var matches = new MatchCollection(tgfd.getPattern(), tgfd.getDependency(), tgfd.getDelta().getGranularity());
+        for (int i = 0; i < snapshots; i++)
+        {
+            if (i > 0)
+                changeLeagues(graph, 0.1, random);
+            matches.addMatches(START.plusDays(i), findMappings(graph, tgfd.getPattern()).iterator());
+        }
+        return matches;
+    }
+    //endregion
+}
@@ -0,0 +1,90 @@
+package benchmarks;
+
+import infra.Interval;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** Benchmarks of Interval operations over random intervals. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IntervalBenchmark
+{
+    /** Number of intervals per invocation. */
+    private static final int COUNT = 1024;
+
+    private Interval[] intervals;
+    private long[] packed;
+
+    @Setup
+    public void setup()
+    {
+        var random = new Random(42);
+        var start = (int)BenchmarkData.START.toEpochDay();
+        intervals = new Interval[COUNT];
+        packed = new long[COUNT];
+        for (int i = 0; i < COUNT; i++)
+        {
+            var startDay = start + random.nextInt(365);
+            var endDay = startDay + random.nextInt(60);
+            intervals[i] = new Interval(startDay, endDay);
+            packed[i] = Interval.pack(startDay, endDay);
+        }
+    }
+
+    @Benchmark
+    public int intersects()
+    {
+        var count = 0;
+        for (int i = 1; i < COUNT; i++)
+        {
+            if (intervals[i - 1].intersects(intervals[i]))
+                count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int inDeltaDays()
+    {
+        var count = 0;
+        for (var interval : intervals)
+        {
+            if (interval.inDelta(0, 30))
+                count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int inDeltaDuration()
+    {
+        var count = 0;
+        var min = Duration.ZERO;
+        var max = Duration.ofDays(30);
+        for (var interval : intervals)
+        {
+            if (interval.inDelta(min, max))
+                count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int containsPacked()
+    {
+        var count = 0;
+        for (int i = 1; i < COUNT; i++)
+        {
+            if (Interval.contains(packed[i], Interval.startOf(packed[i - 1])))
+                count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,66 @@
+package benchmarks;
+
+import infra.MatchCollection;
+import infra.RelationshipEdge;
+import infra.TGFD;
+import infra.Vertex;
+import org.jgrapht.GraphMapping;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Benchmarks of adding matches of daily snapshots to a MatchCollection and reading them back. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MatchCollectionBenchmark
+{
+    @Param({"1000"})
+    public int teams;
+
+    @Param({"10"})
+    public int playersPerTeam;
+
+    @Param({"10"})
+    public int snapshots;
+
+    private TGFD tgfd;
+    private List<GraphMapping<Vertex, RelationshipEdge>> mappings;
+    private MatchCollection matches;
+
+    @Setup
+    public void setup()
+    {
+        tgfd = BenchmarkData.createTGFD();
+        mappings = BenchmarkData.findMappings(BenchmarkData.createGraph(teams, playersPerTeam), tgfd.getPattern());
+        matches = BenchmarkData.createMatches(teams, playersPerTeam, snapshots, tgfd);
+    }
+
+    /** Adds the same mappings for every snapshot to a new collection. */
+    @Benchmark
+    public MatchCollection addMatches()
+    {
+        var collection = new MatchCollection(tgfd.getPattern(), tgfd.getDependency(), tgfd.getDelta().getGranularity());
+        for (int i = 0; i < snapshots; i++)
+            collection.addMatches(BenchmarkData.START.plusDays(i), mappings.iterator());
+        return collection;
+    }
+
+    @Benchmark
+    public void getMatches(Blackhole blackhole)
+    {
+        blackhole.consume(matches.getMatches());
+    }
+
+    @Benchmark
+    public void getMatchesOfTimestamp(Blackhole blackhole)
+    {
+        for (var timestamp : matches.getTimestamps())
+            blackhole.consume(matches.getMatches(timestamp));
+    }
+}
@@ -0,0 +1,59 @@
+package benchmarks;
+
+import infra.Match;
+import infra.RelationshipEdge;
+import infra.TGFD;
+import infra.Vertex;
+import org.jgrapht.GraphMapping;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Benchmarks of the Match signature functions over all mappings of the synthetic team graph. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignatureBenchmark
+{
+    @Param({"1000"})
+    public int teams;
+
+    @Param({"10"})
+    public int playersPerTeam;
+
+    private TGFD tgfd;
+    private List<GraphMapping<Vertex, RelationshipEdge>> mappings;
+
+    @Setup
+    public void setup()
+    {
+        tgfd = BenchmarkData.createTGFD();
+        mappings = BenchmarkData.findMappings(BenchmarkData.createGraph(teams, playersPerTeam), tgfd.getPattern());
+    }
+
+    @Benchmark
+    public void signatureFromX2(Blackhole blackhole)
+    {
+        for (var mapping : mappings)
+            blackhole.consume(Match.signatureFromX2(tgfd.getPattern(), mapping, tgfd.getDependency().getX()));
+    }
+
+    @Benchmark
+    public void signatureFromY2(Blackhole blackhole)
+    {
+        for (var mapping : mappings)
+            blackhole.consume(Match.signatureFromY2(tgfd.getPattern(), mapping, tgfd.getDependency().getY()));
+    }
+
+    @Benchmark
+    public void signatureFromPattern(Blackhole blackhole)
+    {
+        for (var mapping : mappings)
+            blackhole.consume(Match.signatureFromPattern(tgfd.getPattern(), mapping));
+    }
+}
@@ -0,0 +1,54 @@
+package benchmarks;
+
+import VF2Runner.VF2SubgraphIsomorphism;
+import infra.TGFD;
+import infra.VF2DataGraph;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/** Benchmarks of VF2SubgraphIsomorphism on the synthetic team graph. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VF2Benchmark
+{
+    @Param({"1000", "10000"})
+    public int teams;
+
+    @Param({"10"})
+    public int playersPerTeam;
+
+    private VF2DataGraph graph;
+    private TGFD tgfd;
+    private VF2SubgraphIsomorphism vf2;
+
+    @Setup
+    public void setup()
+    {
+        graph = BenchmarkData.createGraph(teams, playersPerTeam);
+        tgfd = BenchmarkData.createTGFD();
+        vf2 = new VF2SubgraphIsomorphism();
+    }
+
+    /** Enumerates every mapping. */
+    @Benchmark
+    public int executeAll(Blackhole blackhole)
+    {
+        return vf2.execute(graph, tgfd.getPattern(), VF2SubgraphIsomorphism.NO_LIMIT, mapping -> {
+            blackhole.consume(mapping);
+            return true;
+        });
+    }
+
+    /** Stops at the first mapping. */
+    @Benchmark
+    public boolean exists()
+    {
+        return vf2.exists(graph, tgfd.getPattern());
+    }
+}
@@ -1,6 +1,8 @@
 package BatchViolation;
 
 import infra.*;
+import util.Metrics;
+import util.Progress;
 
 import java.time.LocalDate;
 import java.util.HashSet;
@@ -28,6 +30,20 @@ public class GFDBatchTED {
      * @return Returns a set of violations for the given TGFD (simulated as GFD) over the matches
      */
     public Set<Violation> findViolations()
+    {
+        Set<Violation> violations;
+        Progress.setPhase("ted");
+        Metrics.Sample sample=Metrics.timer("ted.gfd",tgfd.getName(),null).start();
+        try {
+            violations=findAllViolations();
+        } finally {
+            sample.close();
+        }
+        Metrics.counter("ted.gfd.violations",tgfd.getName(),null).add(violations.size());
+        return violations;
+    }
+
+    private Set<Violation> findAllViolations()
     {
         Set<Violation> violations=new HashSet<>();
         LocalDate[] allSnapshots = matches.getTimestamps();
@@ -37,6 +53,7 @@ public class GFDBatchTED {
             Interval intv=new Interval(allSnapshots[i],allSnapshots[i]);
             List<Match> secondMatches=matches.getMatches(allSnapshots[i]);
             for (Match first:firstMatches) {
+                Progress.addTedMatch();
                 String firstSignatureX=first.getSignatureX();
                 String firstSignatureY=Match.signatureFromY2(tgfd.getPattern(),first.getMapping(),tgfd.getDependency().getY());
                 for (Match second:secondMatches) {
@@ -1,6 +1,8 @@
 package BatchViolation;
 
 import infra.*;
+import util.Metrics;
+import util.Progress;
 
 import java.time.LocalDate;
 import java.util.*;
@@ -18,6 +20,20 @@ public class NaiveBatchTED {
     }
 
     public Set<Violation> findViolations()
+    {
+        Set<Violation> violations;
+        Progress.setPhase("ted");
+        Metrics.Sample sample=Metrics.timer("ted.naive",tgfd.getName(),null).start();
+        try {
+            violations=findAllViolations();
+        } finally {
+            sample.close();
+        }
+        Metrics.counter("ted.naive.violations",tgfd.getName(),null).add(violations.size());
+        return violations;
+    }
+
+    private Set<Violation> findAllViolations()
     {
         Set<Violation> violations=new HashSet<>();
         Delta delta=tgfd.getDelta();
@@ -29,10 +45,12 @@ public class NaiveBatchTED {
             for (int j = i; j < allSnapshots.length; j++)
             {
                 Interval intv=new Interval(allSnapshots[i],allSnapshots[j]);
+                // The Period comparison is kept as this is the reference TED (see Delta.getMinDays)
                 if(intv.inDelta(delta.getMin(),delta.getMax()))
                 {
                     List<Match> secondMatches=matches.getMatches(allSnapshots[j]);
                     for (Match first:firstMatches) {
+                        Progress.addTedMatch();
                         String firstSignatureX=first.getSignatureX();
                         String firstSignatureY=Match.signatureFromY2(tgfd.getPattern(),first.getMapping(),tgfd.getDependency().getY());
                         for (Match second:secondMatches) {
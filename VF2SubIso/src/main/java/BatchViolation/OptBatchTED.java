@@ -1,9 +1,9 @@
 package BatchViolation;
 
 import infra.*;
+import util.Metrics;
+import util.Progress;
 
-import java.time.LocalDate;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -20,54 +20,84 @@ public class OptBatchTED {
     }
 
     public Set<Violation> findViolations()
+    {
+        Set<Violation> violations;
+        Progress.setPhase("ted");
+        Metrics.Sample sample=Metrics.timer("ted.optimized",tgfd.getName(),null).start();
+        try {
+            violations=findAllViolations();
+        } finally {
+            sample.close();
+        }
+        Metrics.counter("ted.optimized.violations",tgfd.getName(),null).add(violations.size());
+        return violations;
+    }
+
+    private Set<Violation> findAllViolations()
     {
         Set<Violation> violations=new HashSet<>();
         Delta delta=tgfd.getDelta();
         var Y=tgfd.getDependency().getY().get(0);
+        // Deltas with months or years are approximated in days (see Delta.getMinDays)
+        int minDays=(int)delta.getMinDays();
+        int maxDays=(int)delta.getMaxDays();
 
-        for (Match match:matches.getMatches()) {
+        for (Match match:matches.iterateMatches()) {
+            Progress.addTedMatch();
             // If Y is a constant literal
             if(Y.getLiteralType()==Literal.LiteralType.Constant)
             {
-                for (String signatureY:match.getSignatureYWithInterval().keySet()) {
+                for (int i=0;i<match.getSignatureYCount();i++) {
                     ConstantLiteral cstY=(ConstantLiteral) Y;
-                    if(!signatureY.equals(cstY.getAttrValue()))
+                    if(!match.getSignatureY(i).equals(cstY.getAttrValue()))
                     {
                         //Violation is detected. Constant literal violation
-                        violations.add(new Violation(match,match,match.getSignatureYWithInterval().get(signatureY).get(0)));
+                        violations.add(new Violation(match,match,match.getSignatureYTimeline(i).getInterval(0)));
                     }
                 }
             }
             else // Y is a variable literal
             {
-                //Create a HashMap based on Intervals to access the signatureY
-                HashMap<Interval, String> signatureYs=new HashMap<>();
-                //Create a HashMap to add the checking intervals for each signatureY
-                //Any interval intersects with a checking interval, should have the same signatureY
-                HashMap<Interval,String> checks=new HashMap<>();
+                // Flatten the runs of every signatureY into parallel arrays of epoch days.
+                // signatureIndex identifies the signatureY of a run.
+                int runCount=0;
+                for (int i=0;i<match.getSignatureYCount();i++)
+                    runCount+=match.getSignatureYTimeline(i).size();
 
-                for (String signatureY:match.getSignatureYWithInterval().keySet()) {
-                    for (Interval interval:match.getSignatureYWithInterval().get(signatureY)) {
+                int[] starts=new int[runCount];
+                int[] ends=new int[runCount];
+                //The checking intervals for each run
+                //Any interval intersects with a checking interval, should have the same signatureY
+                int[] checkStarts=new int[runCount];
+                int[] checkEnds=new int[runCount];
+                int[] signatureIndex=new int[runCount];
 
-                        // Add to the reversed HasMap
-                        signatureYs.put(interval,signatureY);
+                int run=0;
+                for (int signature=0;signature<match.getSignatureYCount();signature++) {
+                    Timeline timeline=match.getSignatureYTimeline(signature);
+                    for (int i=0;i<timeline.size();i++) {
+                        starts[run]=timeline.getStartDay(i);
+                        ends[run]=timeline.getEndDay(i);
+                        signatureIndex[run]=signature;
 
                         // Add the checking interval for each signatureY based on its interval
-                        LocalDate newStart=interval.getStart().plusDays(delta.getMin().getDays());
-                        if(newStart.isBefore(interval.getEnd()))
-                            newStart=interval.getStart();
-                        LocalDate newEnd=interval.getEnd().plusDays(delta.getMax().getDays());
-                        checks.put(new Interval(newStart,newEnd),signatureY);
+                        int newStart=starts[run] + minDays;
+                        if(newStart < ends[run])
+                            newStart=starts[run];
+                        checkStarts[run]=newStart;
+                        checkEnds[run]=ends[run] + maxDays;
+                        run++;
                     }
                 }
                 // Now, we iterate the intervals again to check if they intersect with any checking interval
                 // If they intersect and have a different signatureY, then we have a violation.
-                for (Interval v:signatureYs.keySet()) {
-                    for (Interval v2:checks.keySet()) {
-                        if(v2.intersects(v) && !checks.get(v2).equals(signatureYs.get(v)))
+                for (int v=0;v<runCount;v++) {
+                    for (int v2=0;v2<runCount;v2++) {
+                        if(signatureIndex[v]!=signatureIndex[v2] &&
+                                Interval.intersects(checkStarts[v2],checkEnds[v2],starts[v],ends[v]))
                         {
                             //Violation is detected...
-                            violations.add(new Violation(match,match,v2));
+                            violations.add(new Violation(match,match,new Interval(checkStarts[v2],checkEnds[v2])));
                         }
                     }
                 }
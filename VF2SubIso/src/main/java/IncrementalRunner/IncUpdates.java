@@ -5,6 +5,8 @@ import changeExploration.*;
 import infra.*;
 import org.jgrapht.Graph;
 import org.jgrapht.GraphMapping;
+import util.Metrics;
+import util.Progress;
 
 import java.util.HashMap;
 import java.util.Iterator;
@@ -24,6 +26,21 @@ public class IncUpdates {
     }
 
     public HashMap<String,IncrementalChange> updateGraph(Change change, HashMap<String,TGFD> tgfdsByName)
+    {
+        HashMap<String,IncrementalChange> incrementalChanges;
+        Progress.setPhase("incrementalUpdate");
+        Metrics.Sample sample=Metrics.time("incrementalUpdate");
+        try {
+            incrementalChanges=applyChange(change,tgfdsByName);
+        } finally {
+            sample.close();
+        }
+        Metrics.counter(incrementalChanges==null ? "incrementalUpdate.ignored" : "incrementalUpdate.changes").increment();
+        Progress.addChange();
+        return incrementalChanges;
+    }
+
+    private HashMap<String,IncrementalChange> applyChange(Change change, HashMap<String,TGFD> tgfdsByName)
     {
         if(change instanceof EdgeChange)
         {
@@ -125,7 +142,7 @@ public class IncUpdates {
         // Now, perform the change and remove the edge from the subgraph
         for (RelationshipEdge e:subgraph.outgoingEdgesOf(v1)) {
             DataVertex target=(DataVertex) e.getTarget();
-            if(target.getVertexURI().equals(v2.getVertexURI()) && edge.getLabel().equals(e.getLabel()))
+            if(target.getVertexURI().equals(v2.getVertexURI()) && edge.getLabelId()==e.getLabelId())
             {
                 subgraph.removeEdge(e);
                 break;
@@ -158,7 +175,7 @@ public class IncUpdates {
         }
 
         //Now, perform the change...
-        v1.setOrAddAttribute(attribute);
+        baseGraph.updateGraphByAttribute(v1,attribute);
 
         // Run VF2 again...
         for (String tgfdName:affectedTGFDNames) {
@@ -182,7 +199,7 @@ public class IncUpdates {
         }
 
         //Now, perform the change...
-        v1.deleteAttribute(attribute);
+        baseGraph.deleteAttribute(v1,attribute);
 
         // Run VF2 again...
         for (String tgfdName:affectedTGFDNames) {
@@ -0,0 +1,221 @@
+package VF2Runner;
+
+import infra.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Picks the matching order of a pattern's vertices from data graph statistics.
+ *
+ * JGraphT's VF2 extends a partial mapping with the unmapped pattern vertex that is adjacent to the mapped ones in
+ * both directions, otherwise reached by an outgoing edge, otherwise reached by an incoming edge, otherwise any
+ * unmapped vertex. Only within the first non-empty of these sets does it follow the order in which the vertices
+ * were added to the pattern graph. A plan is a copy of the pattern whose vertices are inserted in the chosen order,
+ * so it decides the anchor (the first vertex matched) and breaks the ties between the candidates of a step, but
+ * VF2 may still take an out-neighbour before an in-neighbour that the plan ordered first.
+ *
+ * The anchor is the vertex with the fewest estimated candidates (type cardinality times attribute selectivity).
+ * Every next vertex is the vertex adjacent to the already ordered ones with the lowest cost, i.e. the minimum of
+ * its candidates and the fan-out of the edges that reach it (edges per vertex of the matched type that lead to the
+ * other endpoint's type).
+ */
+public class PatternPlanner
+{
+    //region --[Classes: Public]---------------------------------------
+    /** The matching order of a pattern. */
+    public static class Plan
+    {
+        private final VF2PatternGraph pattern;
+        private final List<Vertex> order;
+        private final List<String> steps;
+
+        private Plan(VF2PatternGraph pattern, List<Vertex> order, List<String> steps)
+        {
+            this.pattern = pattern;
+            this.order = order;
+            this.steps = steps;
+        }
+
+        /** Gets the copy of the pattern with its vertices inserted in matching order (same vertex objects). */
+        public VF2PatternGraph getPattern() { return pattern; }
+
+        /** Gets the pattern vertices in matching order. */
+        public List<Vertex> getOrder() { return order; }
+
+        /** Gets the first vertex that is matched. */
+        public Vertex getAnchor() { return order.isEmpty() ? null : order.get(0); }
+
+        /** Returns a human readable description of the plan with the estimates behind each step. */
+        public String explain()
+        {
+            var builder = new StringBuilder();
+            builder.append("Plan for ").append(pattern).append('\n');
+            for (int i = 0; i < steps.size(); i++)
+                builder.append(String.format("  %d. %s%n", i + 1, steps.get(i)));
+            return builder.toString();
+        }
+    }
+    //endregion
+
+    //region --[Fields: Private]---------------------------------------
+    /** Statistics of the data graph. */
+    private final GraphStatistics statistics;
+    //endregion
+
+    //region --[Constructors]------------------------------------------
+    /**
+     * Creates a PatternPlanner.
+     * @param statistics Statistics of the data graph.
+     */
+    public PatternPlanner(GraphStatistics statistics)
+    {
+        this.statistics = statistics;
+    }
+    //endregion
+
+    //region --[Methods: Private]--------------------------------------
+    /** Gets the type of the vertex with the fewest data vertices, or null if the vertex has no type. */
+    private String getRarestType(Vertex patternVertex)
+    {
+        String rarestType = null;
+        for (var type : patternVertex.getTypes())
+        {
+            if (rarestType == null || statistics.getVertexCount(type) < statistics.getVertexCount(rarestType))
+                rarestType = type;
+        }
+        return rarestType;
+    }
+
+    /**
+     * Estimates the number of edges reached from each matched vertex when following the edge.
+     * @param edge Pattern edge.
+     * @param from Endpoint of the edge that is already matched.
+     */
+    private double estimateFanOut(RelationshipEdge edge, Vertex from)
+    {
+        var type = getRarestType(from);
+        var typeCount = type == null ? 0 : statistics.getVertexCount(type);
+        if (typeCount == 0)
+            return 0;
+
+        if (edge.getLabelId() == LabelDictionary.WILDCARD_ID)
+            return (double)statistics.getEdgeCount() / typeCount;
+
+        // Only count the edges whose other endpoint has the type of the vertex being reached.
+        var isOutgoing = edge.getSource() == from;
+        var toType = getRarestType(isOutgoing ? edge.getTarget() : edge.getSource());
+        if (toType == null)
+            return (double)statistics.getEdgeCount(edge.getLabel()) / typeCount;
+
+        var edgeCount = isOutgoing
+            ? statistics.getEdgeCount(type, edge.getLabel(), toType)
+            : statistics.getEdgeCount(toType, edge.getLabel(), type);
+        return (double)edgeCount / typeCount;
+    }
+    //endregion
+
+    //region --[Methods: Public]---------------------------------------
+    /**
+     * Estimates the number of data vertices that can be mapped to the pattern vertex.
+     * @param patternVertex Pattern vertex.
+     */
+    public double estimateCandidates(Vertex patternVertex)
+    {
+        var type = getRarestType(patternVertex);
+        if (type == null)
+            return statistics.getVertexCount();
+
+        double estimate = statistics.getVertexCount(type);
+        for (var attribute : patternVertex.getAllAttributesList())
+        {
+            estimate *= attribute.isNULL()
+                ? statistics.getAttributeSelectivity(type, attribute.getAttrName())
+                : statistics.getValueSelectivity(type, attribute.getAttrName(), attribute.getAttrValue());
+        }
+        return estimate;
+    }
+
+    /**
+     * Plans the matching order of the pattern.
+     * @param pattern Pattern to plan.
+     */
+    public Plan plan(VF2PatternGraph pattern)
+    {
+        var graph = pattern.getGraph();
+        var vertices = pattern.getVerticesByOrdinal();
+        var candidates = new double[vertices.size()];
+        for (int i = 0; i < candidates.length; i++)
+            candidates[i] = estimateCandidates(vertices.get(i));
+
+        var order = new ArrayList<Vertex>();
+        var steps = new ArrayList<String>();
+        var ordered = new HashSet<Vertex>();
+        while (order.size() < vertices.size())
+        {
+            var best = -1;
+            var bestCost = Double.MAX_VALUE;
+            var bestConnections = -1;
+            String bestReason = null;
+            for (int i = 0; i < vertices.size(); i++)
+            {
+                var vertex = vertices.get(i);
+                if (ordered.contains(vertex))
+                    continue;
+
+                // Cost of reaching the vertex through an edge from an already ordered vertex.
+                var connections = 0;
+                var cost = candidates[i];
+                var reason = "";
+                for (var edge : graph.edgesOf(vertex))
+                {
+                    var isOutgoing = edge.getTarget() == vertex;
+                    var other = isOutgoing ? edge.getSource() : edge.getTarget();
+                    if (!ordered.contains(other))
+                        continue;
+
+                    connections++;
+                    var fanOut = estimateFanOut(edge, other);
+                    if (fanOut < cost)
+                    {
+                        cost = fanOut;
+                        reason = String.format(" via %s (%s) fan-out=%.2f",
+                            edge.getLabel(), isOutgoing ? "out" : "in", fanOut);
+                    }
+                }
+
+                if (connections > 0 && reason.isEmpty())
+                    reason = " connected";
+
+                // Prefer vertices connected to the ordered ones so that VF2 can prune with edges.
+                var isConnected = connections > 0;
+                var isBestConnected = bestConnections > 0;
+                if (best < 0 ||
+                    (isConnected && !isBestConnected) ||
+                    (isConnected == isBestConnected && (cost < bestCost || (cost == bestCost && connections > bestConnections))))
+                {
+                    best = i;
+                    bestCost = cost;
+                    bestConnections = connections;
+                    bestReason = isConnected ? reason : " anchor";
+                }
+            }
+
+            var vertex = vertices.get(best);
+            order.add(vertex);
+            ordered.add(vertex);
+            steps.add(String.format("%s attributes=%s candidates=%.2f%s",
+                vertex.getTypes(), vertex.getAllAttributesList(), candidates[best], bestReason));
+        }
+
+        var planned = new VF2PatternGraph(pattern.getDiameter());
+        for (var vertex : order)
+            planned.addVertex((PatternVertex)vertex);
+        for (var edge : graph.edgeSet())
+            planned.addEdge((PatternVertex)edge.getSource(), (PatternVertex)edge.getTarget(), new RelationshipEdge(edge.getLabel()));
+
+        return new Plan(planned, order, steps);
+    }
+    //endregion
+}
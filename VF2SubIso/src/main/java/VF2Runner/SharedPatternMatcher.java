@@ -0,0 +1,331 @@
+package VF2Runner;
+
+import infra.*;
+import org.jgrapht.Graph;
+import org.jgrapht.GraphMapping;
+import org.jgrapht.alg.isomorphism.VF2GraphIsomorphismInspector;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Matches a set of TGFDs whose patterns share the same skeleton (vertex types and edge labels) once per skeleton.
+ *
+ * TGFDs often differ only by their literals, constant attributes or deltas. Such TGFDs are grouped and VF2 runs
+ * once on a skeleton pattern that keeps the attribute constraints common to the whole group. Every skeleton
+ * mapping is then checked against the remaining attribute constraints of each TGFD and translated to a mapping
+ * of that TGFD's pattern. Optionally, the matching order of each skeleton is chosen by a PatternPlanner when it is
+ * matched, so that the plan follows the statistics of each data graph.
+ */
+public class SharedPatternMatcher
+{
+    //region --[Classes: Private]--------------------------------------
+    /** A TGFD of a group and the correspondence of its pattern to the group's skeleton. */
+    private static class Member
+    {
+        /** The TGFD. */
+        public final TGFD tgfd;
+        /** Skeleton vertex of each pattern vertex indexed by the pattern vertex ordinal. */
+        public final Vertex[] skeletonVertices;
+        /** Ordinals of the pattern vertices with attribute constraints that are not in the skeleton. */
+        public final int[] ordinalsToCheck;
+
+        public Member(TGFD tgfd, Vertex[] skeletonVertices, int[] ordinalsToCheck)
+        {
+            this.tgfd = tgfd;
+            this.skeletonVertices = skeletonVertices;
+            this.ordinalsToCheck = ordinalsToCheck;
+        }
+    }
+
+    /** TGFDs with the same skeleton. */
+    private static class Group
+    {
+        /** Pattern of the first TGFD of the group. */
+        public final VF2PatternGraph representative;
+        /** Vertex of every TGFD's pattern that corresponds to each representative vertex. */
+        public final List<HashMap<Vertex, Vertex>> correspondences = new ArrayList<>();
+        /** TGFDs of the group (same order as correspondences). */
+        public final List<TGFD> tgfds = new ArrayList<>();
+        /** Pattern that is matched for the group. */
+        public VF2PatternGraph skeleton;
+        /** Members of the group with their correspondence to the skeleton. */
+        public final List<Member> members = new ArrayList<>();
+
+        public Group(VF2PatternGraph representative)
+        {
+            this.representative = representative;
+        }
+    }
+    //endregion
+
+    //region --[Fields: Private]---------------------------------------
+    /** Compares pattern vertices by their types only. */
+    private static final Comparator<Vertex> typeComparator =
+        (v1, v2) -> v1.getTypes().equals(v2.getTypes()) ? 0 : 1;
+
+    /** Compares pattern edges by their labels only. */
+    private static final Comparator<RelationshipEdge> labelComparator =
+        (e1, e2) -> e1.getLabelId() == e2.getLabelId() ? 0 : 1;
+
+    /** Groups of TGFDs with the same skeleton. */
+    private final List<Group> groups = new ArrayList<>();
+    //endregion
+
+    //region --[Constructors]------------------------------------------
+    /**
+     * Creates a SharedPatternMatcher by grouping the TGFDs by the skeleton of their patterns.
+     * @param tgfds TGFDs to match.
+     */
+    public SharedPatternMatcher(List<TGFD> tgfds)
+    {
+        for (var tgfd : tgfds)
+            addToGroup(tgfd);
+
+        for (var group : groups)
+            buildSkeleton(group);
+    }
+    //endregion
+
+    //region --[Methods: Private]--------------------------------------
+    /** Adds the TGFD to the group with the same skeleton or to a new group. */
+    private void addToGroup(TGFD tgfd)
+    {
+        var pattern = tgfd.getPattern().getGraph();
+        for (var group : groups)
+        {
+            var representative = group.representative.getGraph();
+            if (representative.vertexSet().size() != pattern.vertexSet().size() ||
+                representative.edgeSet().size() != pattern.edgeSet().size())
+                continue;
+
+            var inspector = new VF2GraphIsomorphismInspector<>(
+                representative, pattern, typeComparator, labelComparator, false);
+            Iterator<GraphMapping<Vertex, RelationshipEdge>> mappings = inspector.getMappings();
+            if (!mappings.hasNext())
+                continue;
+
+            var mapping = mappings.next();
+            var correspondence = new HashMap<Vertex, Vertex>();
+            for (var vertex : representative.vertexSet())
+                correspondence.put(vertex, mapping.getVertexCorrespondence(vertex, true));
+            group.correspondences.add(correspondence);
+            group.tgfds.add(tgfd);
+            return;
+        }
+
+        var group = new Group(tgfd.getPattern());
+        var correspondence = new HashMap<Vertex, Vertex>();
+        for (var vertex : pattern.vertexSet())
+            correspondence.put(vertex, vertex);
+        group.correspondences.add(correspondence);
+        group.tgfds.add(tgfd);
+        groups.add(group);
+    }
+
+    /**
+     * Builds the skeleton of the group.
+     * An attribute is kept in the skeleton if every TGFD of the group has it on the corresponding vertex,
+     * as a constant if every TGFD has the same value, otherwise as a variable (existence only).
+     */
+    private void buildSkeleton(Group group)
+    {
+        if (group.tgfds.size() == 1)
+        {
+            // Nothing is shared so the TGFD's pattern is matched as-is.
+            group.skeleton = group.representative;
+            var pattern = group.representative;
+            var skeletonVertices = pattern.getVerticesByOrdinal().toArray(new Vertex[0]);
+            group.members.add(new Member(group.tgfds.get(0), skeletonVertices, new int[0]));
+            return;
+        }
+
+        var skeleton = new VF2PatternGraph(group.representative.getDiameter());
+        var skeletonVertexOf = new HashMap<Vertex, PatternVertex>();
+        for (var vertex : group.representative.getVerticesByOrdinal())
+        {
+            var types = vertex.getTypes().iterator();
+            var skeletonVertex = new PatternVertex(types.next());
+            while (types.hasNext())
+                skeletonVertex.addTypes(types.next());
+
+            for (var attribute : vertex.getAllAttributesList())
+            {
+                var isShared = true;
+                var isSameValue = !attribute.isNULL();
+                for (var correspondence : group.correspondences)
+                {
+                    var other = correspondence.get(vertex).getAllAttributesHashMap().get(attribute.getAttrName());
+                    if (other == null)
+                    {
+                        isShared = false;
+                        break;
+                    }
+                    if (other.isNULL() || !other.getAttrValue().equals(attribute.getAttrValue()))
+                        isSameValue = false;
+                }
+                if (isShared)
+                {
+                    skeletonVertex.addAttribute(isSameValue
+                        ? new Attribute(attribute.getAttrName(), attribute.getAttrValue())
+                        : new Attribute(attribute.getAttrName()));
+                }
+            }
+            skeleton.addVertex(skeletonVertex);
+            skeletonVertexOf.put(vertex, skeletonVertex);
+        }
+        for (var edge : group.representative.getGraph().edgeSet())
+        {
+            skeleton.addEdge(
+                skeletonVertexOf.get(edge.getSource()),
+                skeletonVertexOf.get(edge.getTarget()),
+                new RelationshipEdge(edge.getLabel()));
+        }
+        group.skeleton = skeleton;
+
+        for (int i = 0; i < group.tgfds.size(); i++)
+        {
+            var tgfd = group.tgfds.get(i);
+            var pattern = tgfd.getPattern();
+            var skeletonVertices = new Vertex[pattern.getVerticesByOrdinal().size()];
+            var ordinalsToCheck = new ArrayList<Integer>();
+            for (var entry : group.correspondences.get(i).entrySet())
+            {
+                var patternVertex = entry.getValue();
+                var skeletonVertex = skeletonVertexOf.get(entry.getKey());
+                var ordinal = pattern.getOrdinal(patternVertex);
+                skeletonVertices[ordinal] = skeletonVertex;
+                if (patternVertex.getAllAttributesList().size() > skeletonVertex.getAllAttributesList().size() ||
+                    hasMoreSpecificAttribute(patternVertex, skeletonVertex))
+                    ordinalsToCheck.add(ordinal);
+            }
+            group.members.add(new Member(
+                tgfd,
+                skeletonVertices,
+                ordinalsToCheck.stream().mapToInt(Integer::intValue).toArray()));
+        }
+    }
+
+    /** Returns true if the pattern vertex has a constant attribute that is a variable in the skeleton vertex. */
+    private static boolean hasMoreSpecificAttribute(Vertex patternVertex, Vertex skeletonVertex)
+    {
+        for (var attribute : patternVertex.getAllAttributesList())
+        {
+            var skeletonAttribute = skeletonVertex.getAllAttributesHashMap().get(attribute.getAttrName());
+            if (!attribute.isNULL() && skeletonAttribute != null && skeletonAttribute.isNULL())
+                return true;
+        }
+        return false;
+    }
+    //endregion
+
+    //region --[Methods: Public]---------------------------------------
+    /**
+     * Finds the matches of every TGFD in the data graph.
+     * @param dataGraph Data graph.
+     * @param planner Planner of the skeletons' matching order (null to match them in pattern order).
+     * @param consumer Receives each TGFD with every mapping of its pattern. The mappings are PatternMappings, which
+     *                 are small enough to be kept (unlike the mappings of VF2 that hold maps sized to the data graph).
+     * @return Number of skeleton mappings that were searched.
+     */
+    public int execute(
+        Graph<Vertex, RelationshipEdge> dataGraph,
+        PatternPlanner planner,
+        BiConsumer<TGFD, GraphMapping<Vertex, RelationshipEdge>> consumer)
+    {
+        var skeletonMappingCount = 0;
+        var VF2 = new VF2SubgraphIsomorphism(planner);
+        for (var group : groups)
+        {
+            var mappings = VF2.execute(dataGraph, group.skeleton, false);
+            if (mappings == null)
+                continue;
+
+            while (mappings.hasNext())
+            {
+                var mapping = mappings.next();
+                skeletonMappingCount++;
+                if (group.members.size() == 1 && group.members.get(0).ordinalsToCheck.length == 0)
+                {
+                    // The mapping is of the TGFD's own pattern vertices.
+                    var tgfd = group.members.get(0).tgfd;
+                    consumer.accept(tgfd, PatternMapping.of(tgfd.getPattern(), mapping));
+                    continue;
+                }
+
+                for (var member : group.members)
+                {
+                    var dataVertices = new Vertex[member.skeletonVertices.length];
+                    for (int ordinal = 0; ordinal < dataVertices.length; ordinal++)
+                        dataVertices[ordinal] = mapping.getVertexCorrespondence(member.skeletonVertices[ordinal], false);
+
+                    var pattern = member.tgfd.getPattern();
+                    var isMatch = true;
+                    for (var ordinal : member.ordinalsToCheck)
+                    {
+                        if (!dataVertices[ordinal].isMapped(pattern.getVerticesByOrdinal().get(ordinal)))
+                        {
+                            isMatch = false;
+                            break;
+                        }
+                    }
+                    if (isMatch)
+                        consumer.accept(member.tgfd, new PatternMapping(pattern, dataVertices));
+                }
+            }
+        }
+        return skeletonMappingCount;
+    }
+
+    /**
+     * Finds the matches of every TGFD in the data graph.
+     * @param dataGraph Data graph.
+     * @param consumer Receives each TGFD with every mapping of its pattern.
+     * @return Number of skeleton mappings that were searched.
+     */
+    public int execute(VF2DataGraph dataGraph, BiConsumer<TGFD, GraphMapping<Vertex, RelationshipEdge>> consumer)
+    {
+        return execute(dataGraph.getGraph(), null, consumer);
+    }
+
+    /**
+     * Finds the matches of every TGFD in the data graph.
+     * @param dataGraph Data graph.
+     * @param planner Planner of the skeletons' matching order (null to match them in pattern order).
+     * @param consumer Receives each TGFD with every mapping of its pattern.
+     * @return Number of skeleton mappings that were searched.
+     */
+    public int execute(
+        VF2DataGraph dataGraph,
+        PatternPlanner planner,
+        BiConsumer<TGFD, GraphMapping<Vertex, RelationshipEdge>> consumer)
+    {
+        return execute(dataGraph.getGraph(), planner, consumer);
+    }
+
+    /**
+     * Returns the TGFDs of every skeleton and the skeleton's plan.
+     * @param planner Planner of the skeletons' matching order (null to only list the skeletons).
+     */
+    public String explain(PatternPlanner planner)
+    {
+        var builder = new StringBuilder();
+        for (var group : groups)
+        {
+            builder.append("TGFDs:");
+            for (var tgfd : group.tgfds)
+                builder.append(' ').append(tgfd.getName());
+            builder.append('\n');
+            builder.append(planner == null ? "Skeleton " + group.skeleton + "\n" : planner.plan(group.skeleton).explain());
+        }
+        return builder.toString();
+    }
+
+    /** Returns the number of distinct skeletons that are matched. */
+    public int getSkeletonCount() { return groups.size(); }
+    //endregion
+}
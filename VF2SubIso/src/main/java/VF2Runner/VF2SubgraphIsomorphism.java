@@ -1,5 +1,6 @@
 package VF2Runner;
 
+import infra.LabelDictionary;
 import infra.VF2DataGraph;
 import infra.VF2PatternGraph;
 import infra.RelationshipEdge;
@@ -8,29 +9,75 @@ import org.jgrapht.Graph;
 import org.jgrapht.GraphMapping;
 import org.jgrapht.alg.isomorphism.VF2AbstractIsomorphismInspector;
 import org.jgrapht.alg.isomorphism.VF2SubgraphIsomorphismInspector;
+import util.Metrics;
+import util.Progress;
 import util.myConsole;
 
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.function.Predicate;
 
 public class VF2SubgraphIsomorphism {
 
+    // Limit value for an unbounded enumeration
+    public static final int NO_LIMIT = Integer.MAX_VALUE;
+
     private final Comparator<RelationshipEdge> myEdgeComparator;
     private final Comparator<Vertex> myVertexComparator;
     private VF2AbstractIsomorphismInspector<Vertex, RelationshipEdge> inspector;
 
+    // Planner of the order in which the pattern vertices are matched (null to match them in pattern order)
+    private final PatternPlanner planner;
+
+    // Candidate pairs checked by the vertex comparator since they were last added to the progress.
+    // Counted locally as the comparator is the inner loop of VF2, and an instance is used by one thread at a time.
+    private long stateCount = 0;
+
+    // Iterator over the mappings of VF2 that counts the enumerated mappings and the checked pairs for the progress
+    private class CountingIterator implements Iterator<GraphMapping<Vertex, RelationshipEdge>> {
+
+        private final Iterator<GraphMapping<Vertex, RelationshipEdge>> mappings;
+
+        public CountingIterator(Iterator<GraphMapping<Vertex, RelationshipEdge>> mappings) {
+            this.mappings = mappings;
+        }
+
+        @Override
+        public boolean hasNext() {
+            boolean hasNext = mappings.hasNext();
+            flushStates();
+            return hasNext;
+        }
+
+        @Override
+        public GraphMapping<Vertex, RelationshipEdge> next() {
+            GraphMapping<Vertex, RelationshipEdge> mapping = mappings.next();
+            Progress.addMatch();
+            flushStates();
+            return mapping;
+        }
+    }
+
     public VF2SubgraphIsomorphism()
     {
-        myEdgeComparator = (o1, o2) -> {
-            if (o1.getLabel().equals("*") || o2.getLabel().equals("*"))
-                return 0;
-            else if (o1.getLabel().equals(o2.getLabel()))
-                return 0;
-            else
-                return 1;
-        };
+        this(null);
+    }
+
+    /**
+     * @param planner Planner of the order in which the pattern vertices are matched (null to match them in
+     *                pattern order). The mappings are of the given pattern's vertices either way.
+     */
+    public VF2SubgraphIsomorphism(PatternPlanner planner)
+    {
+        this.planner = planner;
+
+        // Labels are resolved to ids when the edges are created, "*" has the id LabelDictionary.WILDCARD_ID
+        myEdgeComparator = (o1, o2) -> LabelDictionary.isCompatible(o1.getLabelId(), o2.getLabelId()) ? 0 : 1;
 
         myVertexComparator = (v1, v2) -> {
+            stateCount++;
             if (v1.isMapped(v2))
                 return 0;
             else
@@ -43,14 +90,12 @@ public class VF2SubgraphIsomorphism {
         //System.out.println("Graph Size :" + dataGraph.getGraph().vertexSet().size());
 
         long startTime = System.currentTimeMillis();
-        inspector = new VF2SubgraphIsomorphismInspector<>(
-                dataGraph.getGraph(), pattern.getGraph(),
-                myVertexComparator, myEdgeComparator, false);
+        boolean found = search(dataGraph.getGraph(), pattern, myVertexComparator);
 
         myConsole.print("Search Cost ", (System.currentTimeMillis() - startTime));
         int size=0;
-        if (inspector.isomorphismExists()) {
-            Iterator<GraphMapping<Vertex, RelationshipEdge>> iterator = inspector.getMappings();
+        if (found) {
+            Iterator<GraphMapping<Vertex, RelationshipEdge>> iterator = getMappings();
             if(print)
             {
                 while (iterator.hasNext()) {
@@ -81,15 +126,13 @@ public class VF2SubgraphIsomorphism {
         //System.out.println("Graph Size :" + dataGraph.getGraph().vertexSet().size());
 
         long startTime = System.currentTimeMillis();
-        inspector = new VF2SubgraphIsomorphismInspector<>(
-                dataGraph, pattern.getGraph(),
-                myVertexComparator, myEdgeComparator, false);
+        boolean found = search(dataGraph, pattern, myVertexComparator);
 
         if(print)
             myConsole.print("Search Cost ", (System.currentTimeMillis() - startTime));
         int size=0;
-        if (inspector.isomorphismExists()) {
-            Iterator<GraphMapping<Vertex, RelationshipEdge>> iterator = inspector.getMappings();
+        if (found) {
+            Iterator<GraphMapping<Vertex, RelationshipEdge>> iterator = getMappings();
             if(print)
             {
                 while (iterator.hasNext()) {
@@ -115,4 +158,144 @@ public class VF2SubgraphIsomorphism {
             return null;
         }
     }
-}
\ No newline at end of file
+
+    // Adds the candidate pairs checked since the last call to the progress
+    private void flushStates()
+    {
+        if (stateCount > 0) {
+            Progress.addStates(stateCount);
+            stateCount = 0;
+        }
+    }
+
+    // Gets the pattern graph with its vertices inserted in the planned order (the pattern graph without a planner)
+    private Graph<Vertex, RelationshipEdge> getPlannedGraph(VF2PatternGraph pattern)
+    {
+        if (planner == null)
+            return pattern.getGraph();
+        return planner.plan(pattern).getPattern().getGraph();
+    }
+
+    // Creates the inspector and searches the first mapping, the remaining mappings are enumerated lazily by the caller
+    private boolean search(Graph<Vertex, RelationshipEdge> dataGraph, VF2PatternGraph pattern, Comparator<Vertex> vertexComparator)
+    {
+        Progress.setPhase("match");
+        Metrics.Sample sample = Metrics.time("match");
+        try {
+            inspector = new VF2SubgraphIsomorphismInspector<>(
+                    dataGraph, getPlannedGraph(pattern),
+                    vertexComparator, myEdgeComparator, false);
+            return inspector.isomorphismExists();
+        } finally {
+            sample.close();
+            flushStates();
+        }
+    }
+
+    private Iterator<GraphMapping<Vertex, RelationshipEdge>> getMappings()
+    {
+        return new CountingIterator(inspector.getMappings());
+    }
+
+    /**
+     * Checks if the pattern has at least one match, stopping at the first mapping found.
+     * @param dataGraph Data graph
+     * @param pattern Pattern graph
+     */
+    public boolean exists(Graph<Vertex, RelationshipEdge> dataGraph, VF2PatternGraph pattern)
+    {
+        return search(dataGraph, pattern, myVertexComparator);
+    }
+
+    public boolean exists(VF2DataGraph dataGraph, VF2PatternGraph pattern)
+    {
+        return exists(dataGraph.getGraph(), pattern);
+    }
+
+    /**
+     * Enumerates at most limit mappings and passes them to the consumer.
+     * @param dataGraph Data graph
+     * @param pattern Pattern graph
+     * @param limit Maximum number of mappings to enumerate (NO_LIMIT for all)
+     * @param consumer Called with each mapping; returns false to stop the enumeration
+     * @return Number of mappings passed to the consumer
+     */
+    public int execute(Graph<Vertex, RelationshipEdge> dataGraph, VF2PatternGraph pattern, int limit,
+                       Predicate<GraphMapping<Vertex, RelationshipEdge>> consumer)
+    {
+        return execute(dataGraph, pattern, null, NO_LIMIT, limit, consumer);
+    }
+
+    /**
+     * Enumerates mappings with at most perSeedLimit mappings per data vertex mapped to the seed and at most
+     * limit mappings in total, and passes them to the consumer.
+     * A data vertex that reached perSeedLimit is rejected by the vertex comparator, so VF2 prunes the remaining
+     * states that map the seed to it instead of enumerating and dropping their mappings.
+     * @param dataGraph Data graph
+     * @param pattern Pattern graph
+     * @param seed Pattern vertex whose data vertices are limited (null for no per-seed limit)
+     * @param perSeedLimit Maximum number of mappings per data vertex mapped to the seed (NO_LIMIT for all)
+     * @param limit Maximum number of mappings to enumerate (NO_LIMIT for all)
+     * @param consumer Called with each mapping; returns false to stop the enumeration
+     * @return Number of mappings passed to the consumer
+     */
+    public int execute(Graph<Vertex, RelationshipEdge> dataGraph, VF2PatternGraph pattern, Vertex seed,
+                       int perSeedLimit, int limit, Predicate<GraphMapping<Vertex, RelationshipEdge>> consumer)
+    {
+        if(limit<=0 || perSeedLimit<=0)
+            return 0;
+
+        HashMap<Vertex, Integer> countsBySeed=new HashMap<>();
+        HashSet<Vertex> saturatedSeeds=new HashSet<>();
+        Comparator<Vertex> vertexComparator = seed==null || perSeedLimit==NO_LIMIT
+                ? myVertexComparator
+                : (v1, v2) -> {
+                    if (v2==seed && saturatedSeeds.contains(v1))
+                        return 1;
+                    return myVertexComparator.compare(v1, v2);
+                };
+
+        Progress.setPhase("match");
+        Metrics.Sample sample = Metrics.time("match");
+        int size=0;
+        try {
+            inspector = new VF2SubgraphIsomorphismInspector<>(
+                    dataGraph, getPlannedGraph(pattern),
+                    vertexComparator, myEdgeComparator, false);
+
+            Iterator<GraphMapping<Vertex, RelationshipEdge>> iterator = getMappings();
+            while (size<limit && iterator.hasNext()) {
+                GraphMapping<Vertex, RelationshipEdge> mapping = iterator.next();
+                if (vertexComparator!=myVertexComparator) {
+                    Vertex seedVertex=mapping.getVertexCorrespondence(seed, false);
+                    // The mapping may have been found before the seed vertex was saturated
+                    if (saturatedSeeds.contains(seedVertex))
+                        continue;
+                    if (countsBySeed.merge(seedVertex, 1, Integer::sum)>=perSeedLimit)
+                        saturatedSeeds.add(seedVertex);
+                }
+                size++;
+                if (!consumer.test(mapping))
+                    break;
+            }
+        } finally {
+            // The time of the consumer is included as the mappings are enumerated lazily
+            sample.close();
+            flushStates();
+        }
+        Metrics.counter("match.mappings").add(size);
+        return size;
+    }
+
+    public int execute(VF2DataGraph dataGraph, VF2PatternGraph pattern, Vertex seed,
+                       int perSeedLimit, int limit, Predicate<GraphMapping<Vertex, RelationshipEdge>> consumer)
+    {
+        return execute(dataGraph.getGraph(), pattern, seed, perSeedLimit, limit, consumer);
+    }
+
+    public int execute(VF2DataGraph dataGraph, VF2PatternGraph pattern, int limit,
+                       Predicate<GraphMapping<Vertex, RelationshipEdge>> consumer)
+    {
+        return execute(dataGraph.getGraph(), pattern, limit, consumer);
+    }
+}
@@ -71,5 +71,10 @@ public class Change {
         return id;
     }
 
+    /** Sets the id of a change that was created before its position in the change log was known. */
+    void setId(int id) {
+        this.id = id;
+    }
+
     //endregion
 }
@@ -4,12 +4,25 @@ import graphLoader.GraphLoader;
 import infra.*;
 
 import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /** This class will find all the change logs between two data graph */
 public class ChangeFinder {
 
     //region --[Fields: Private]-----------------------------------------
 
+    /** Number of vertices diffed by a parallel task. */
+    private static final int PARTITION_SIZE=4096;
+
+    /** Degree above which the outgoing edges of the second graph are sorted instead of scanned. */
+    private static final int SCAN_DEGREE=8;
+
+    /** Order of the outgoing edges of a vertex by (label, target URI). */
+    private static final Comparator<RelationshipEdge> EDGE_ORDER=Comparator
+            .comparingInt(RelationshipEdge::getLabelId)
+            .thenComparing(e -> ((DataVertex) e.getTarget()).getVertexURI());
+
     /** First and second data graph. */
     private VF2DataGraph g1,g2;
 
@@ -130,6 +143,8 @@ public class ChangeFinder {
      * When we input first:t2 and second:t1, then t2-t1 means the changes that are inserted
      * For attributes that their value is updated (no remove or insertion), we only
      * pass "ChangeType.changeAttr" once and pass null for the second time to prevent redundant change logs
+     * The vertices are diffed in parallel by partitions and the changes are numbered in the order of the vertices,
+     * so the change log is the same as a sequential scan (edge changes first, then vertex and attribute changes)
      * @param first The first data graph
      * @param second The second data graph
      * @param edgeType Type of edge change (either remove or insert)
@@ -140,77 +155,127 @@ public class ChangeFinder {
     private void findChanges(VF2DataGraph first, VF2DataGraph second, ChangeType edgeType,
                              ChangeType vertexType, ChangeType attrType, ChangeType attrChange)
     {
-        for (Vertex v:first.getGraph().vertexSet()) {
-            DataVertex v1=(DataVertex) v;
-            for (RelationshipEdge e:first.getGraph().outgoingEdgesOf(v)) {
-                DataVertex dst=(DataVertex)e.getTarget();
-                if(second.getNode(v1.getVertexURI())==null)
-                {
-                    Change eChange=new EdgeChange(edgeType,changeID++ ,v1.getVertexURI(),dst.getVertexURI(),e.getLabel());
-                    eChange.addTGFD(findRelaventTGFDs(v1.getTypes()));
-                    eChange.addTGFD(findRelaventTGFDs(dst.getTypes()));
-                    allChanges.add(eChange);
-                    numberOfEffectiveChanges++;
-                }
-                else if(second.getNode(dst.getVertexURI())==null)
+        Vertex[] vertices=first.getGraph().vertexSet().toArray(new Vertex[0]);
+        int partitions=(vertices.length + PARTITION_SIZE - 1) / PARTITION_SIZE;
+
+        List<List<Change>> edgeChanges=IntStream.range(0,partitions).parallel()
+                .mapToObj(p -> findEdgeChanges(first,second,vertices,p*PARTITION_SIZE,
+                        Math.min(vertices.length,(p+1)*PARTITION_SIZE),edgeType))
+                .collect(Collectors.toList());
+        List<List<Change>> vertexChanges=IntStream.range(0,partitions).parallel()
+                .mapToObj(p -> findVertexChanges(second,vertices,p*PARTITION_SIZE,
+                        Math.min(vertices.length,(p+1)*PARTITION_SIZE),vertexType,attrType,attrChange))
+                .collect(Collectors.toList());
+
+        addChanges(edgeChanges);
+        addChanges(vertexChanges);
+    }
+
+    /**
+     * Finds the outgoing edges of the vertices in [start, end) of the first graph that are not in the second graph
+     * The outgoing edges of a vertex in the second graph are sorted by (label, target URI) and searched
+     * unless there are only a few of them
+     * @return Edge changes in the order of the vertices and their outgoing edges (without ids)
+     */
+    private List<Change> findEdgeChanges(VF2DataGraph first, VF2DataGraph second, Vertex[] vertices,
+                                         int start, int end, ChangeType edgeType)
+    {
+        List<Change> changes=new ArrayList<>();
+        for (int i=start;i<end;i++) {
+            DataVertex v1=(DataVertex) vertices[i];
+            Set<RelationshipEdge> edges=first.getGraph().outgoingEdgesOf(v1);
+            if(edges.isEmpty())
+                continue;
+
+            // An edge with a target URI in the second graph means the target also exists in the second graph
+            Vertex v1_prime=second.getNode(v1.getVertexURI());
+            RelationshipEdge[] secondEdges=v1_prime==null
+                    ? new RelationshipEdge[0]
+                    : second.getGraph().outgoingEdgesOf(v1_prime).toArray(new RelationshipEdge[0]);
+            boolean sorted=secondEdges.length>SCAN_DEGREE;
+            if(sorted)
+                Arrays.sort(secondEdges,EDGE_ORDER);
+
+            for (RelationshipEdge e:edges) {
+                boolean exist=sorted
+                        ? Arrays.binarySearch(secondEdges,e,EDGE_ORDER)>=0
+                        : scan(secondEdges,e);
+                if(!exist)
                 {
-                    Change eChange=new EdgeChange(edgeType,changeID++ ,v1.getVertexURI(),dst.getVertexURI(),e.getLabel());
+                    DataVertex dst=(DataVertex)e.getTarget();
+                    Change eChange=new EdgeChange(edgeType,0,v1.getVertexURI(),dst.getVertexURI(),e.getLabel());
                     eChange.addTGFD(findRelaventTGFDs(v1.getTypes()));
                     eChange.addTGFD(findRelaventTGFDs(dst.getTypes()));
-                    allChanges.add(eChange);
-                    numberOfEffectiveChanges++;
-                }
-                else
-                {
-                    boolean exist=false;
-                    Vertex v1_prime=second.getNode(v1.getVertexURI());
-                    for (RelationshipEdge e2:second.getGraph().outgoingEdgesOf(v1_prime)) {
-                        DataVertex dst2=(DataVertex) e2.getTarget();
-                        if(e.getLabel().equals(e2.getLabel()) && dst2.getVertexURI().equals(dst.getVertexURI()))
-                        {
-                            exist=true;
-                            break;
-                        }
-                    }
-                    if(!exist)
-                    {
-                        Change eChange=new EdgeChange(edgeType,changeID++ ,v1.getVertexURI(),dst.getVertexURI(),e.getLabel());
-                        eChange.addTGFD(findRelaventTGFDs(v1.getTypes()));
-                        eChange.addTGFD(findRelaventTGFDs(dst.getTypes()));
-                        allChanges.add(eChange);
-                        numberOfEffectiveChanges++;
-                    }
+                    changes.add(eChange);
                 }
             }
         }
+        return changes;
+    }
+
+    /**
+     * @return True if one of the edges has the label and target URI of the edge
+     */
+    private static boolean scan(RelationshipEdge[] edges, RelationshipEdge edge)
+    {
+        for (RelationshipEdge e:edges)
+            if(EDGE_ORDER.compare(e,edge)==0)
+                return true;
+        return false;
+    }
 
-        for (Vertex v:first.getGraph().vertexSet()) {
-            DataVertex v1=(DataVertex) v;
+    /**
+     * Finds the vertices in [start, end) of the first graph that are not in the second graph
+     * and the attributes that are not in (or have another value in) the second graph
+     * @return Vertex and attribute changes in the order of the vertices (without ids)
+     */
+    private List<Change> findVertexChanges(VF2DataGraph second, Vertex[] vertices, int start, int end,
+                                           ChangeType vertexType, ChangeType attrType, ChangeType attrChange)
+    {
+        List<Change> changes=new ArrayList<>();
+        for (int i=start;i<end;i++) {
+            DataVertex v1=(DataVertex) vertices[i];
             DataVertex v2= (DataVertex) second.getNode(v1.getVertexURI());
             if(v2==null)
             {
-                Change vChange=new VertexChange(vertexType,changeID++ ,v1);
+                Change vChange=new VertexChange(vertexType,0,v1);
                 vChange.addTGFD(findRelaventTGFDs(v1.getTypes()));
-                allChanges.add(vChange);
+                changes.add(vChange);
                 continue;
             }
-            for (Attribute attr:v.getAllAttributesList()) {
-                if(!v2.hasAttribute(attr.getAttrName()))
+            for (Attribute attr:v1.getAllAttributesList()) {
+                Attribute attr2=v2.getAttribute(attr.getAttrName());
+                if(attr2==null)
                 {
-                    Change changeOfAttr=new AttributeChange(attrType,changeID++ ,v1.getVertexURI(),attr);
+                    Change changeOfAttr=new AttributeChange(attrType,0,v1.getVertexURI(),attr);
                     changeOfAttr.addTGFD(findRelaventTGFDs(v1.getTypes()));
-                    allChanges.add(changeOfAttr);
-                    numberOfEffectiveChanges++;
+                    changes.add(changeOfAttr);
                 }
-                else if(attrChange!=null && !v2.getAttributeValueByName(attr.getAttrName()).equals(attr.getAttrValue()))
+                else if(attrChange!=null && !attr2.getAttrValue().equals(attr.getAttrValue()))
                 {
-                    Change changeOfAttr=new AttributeChange(ChangeType.changeAttr,changeID++ ,v1.getVertexURI(),attr);
+                    Change changeOfAttr=new AttributeChange(ChangeType.changeAttr,0,v1.getVertexURI(),attr);
                     changeOfAttr.addTGFD(findRelaventTGFDs(v1.getTypes()));
-                    allChanges.add(changeOfAttr);
-                    numberOfEffectiveChanges++;
+                    changes.add(changeOfAttr);
                 }
             }
         }
+        return changes;
+    }
+
+    /**
+     * Numbers the changes of the partitions in order and adds them to the change log
+     * @param partitions Changes of each partition
+     */
+    private void addChanges(List<List<Change>> partitions)
+    {
+        for (List<Change> changes:partitions) {
+            for (Change change:changes) {
+                change.setId(changeID++);
+                allChanges.add(change);
+                if(!(change instanceof VertexChange))
+                    numberOfEffectiveChanges++;
+            }
+        }
     }
 
     //endregion
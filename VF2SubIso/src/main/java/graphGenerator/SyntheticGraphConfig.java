@@ -0,0 +1,52 @@
+package graphGenerator;
+
+import infra.TGFD;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parameters of a SyntheticGraphGenerator.
+ * Skews are Zipf exponents over the ranks of the types or labels (0 gives a uniform distribution).
+ */
+public class SyntheticGraphConfig
+{
+    /** Seed of every random choice, the same config always generates the same graphs and changes. */
+    public long seed = 42;
+
+    /** Number of vertices. */
+    public int vertexCount = 10_000;
+
+    /** Number of edge ids of the first snapshot (ids that are loops or reuse the (source, target) pair of a live edge are dead, see SyntheticGraphGenerator). */
+    public int edgeCount = 50_000;
+
+    /** Number of vertex types (at least the number of types used by the TGFDs). */
+    public int typeCount = 10;
+
+    /** Skew of the number of vertices per type. */
+    public double typeSkew = 1.0;
+
+    /** Number of edge labels (at least the number of labels used by the TGFDs). */
+    public int labelCount = 20;
+
+    /** Skew of the number of edges per label. */
+    public double labelSkew = 1.0;
+
+    /** Number of synthetic attributes of each type (in addition to the attributes used by the TGFDs). */
+    public int attributesPerType = 2;
+
+    /** Number of distinct values of each attribute. */
+    public int attributeDomainSize = 100;
+
+    /** Fraction of the vertices with an attribute change per snapshot. */
+    public double attributeChurn = 0.01;
+
+    /** Fraction of the edges deleted and the same number inserted per snapshot. */
+    public double edgeChurn = 0.01;
+
+    /** TGFDs whose types, labels and attributes are part of the schema and whose Y literals get violations. */
+    public List<TGFD> tgfds = new ArrayList<>();
+
+    /** Fraction of the vertices of each TGFD's Y literals whose Y attribute is changed per snapshot. */
+    public double violationRate = 0.0;
+}
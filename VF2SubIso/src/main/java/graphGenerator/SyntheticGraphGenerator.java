@@ -0,0 +1,641 @@
+package graphGenerator;
+
+import changeExploration.AttributeChange;
+import changeExploration.Change;
+import changeExploration.ChangeType;
+import changeExploration.EdgeChange;
+import infra.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates synthetic temporal graphs: a first snapshot and the changes of every following snapshot.
+ *
+ * The schema is built from the TGFDs of the config (their types, labels with their source and target types, and
+ * attributes) and filled up with synthetic types and labels. Vertices get a type from a Zipf distribution and
+ * every edge has a label from a Zipf distribution and random endpoints of the label's source and target types.
+ * Edges and attribute values are derived from a hash of their id, so only the vertex types, the dead edge ids,
+ * the (source, target) pairs of the live edges and the changed attribute values are kept in memory and the
+ * snapshots are streamed to the writers. This keeps graphs with hundreds of millions of edges generatable on a
+ * single machine.
+ *
+ * The data graph has at most one edge per (source, target) pair, so an edge id whose pair is already used by a live
+ * edge is dead from the start. Applying the changes of a snapshot to the previous snapshot thus gives exactly the
+ * snapshot that is written.
+ *
+ * Snapshots are written in the formats read by IMDBLoader and DBPediaLoader and changes are lists of Change that
+ * can be written with ChangeWriter in the format read by ChangeLoader.
+ */
+public class SyntheticGraphGenerator
+{
+    //region --[Classes: Private]--------------------------------------
+    /** Open addressing hash set of longs (Long.MIN_VALUE is reserved as the empty slot). */
+    private static class LongSet
+    {
+        private static final long EMPTY = Long.MIN_VALUE;
+
+        private long[] slots;
+        private int size = 0;
+
+        public LongSet(int expectedSize)
+        {
+            var capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+            slots = new long[capacity];
+            Arrays.fill(slots, EMPTY);
+        }
+
+        private int indexOf(long value)
+        {
+            var mask = slots.length - 1;
+            var index = (int)mix(value) & mask;
+            while (slots[index] != EMPTY && slots[index] != value)
+                index = (index + 1) & mask;
+            return index;
+        }
+
+        /** Adds the value and returns true if it was not in the set. */
+        public boolean add(long value)
+        {
+            var index = indexOf(value);
+            if (slots[index] == value)
+                return false;
+
+            slots[index] = value;
+            if (++size * 2 > slots.length)
+            {
+                var old = slots;
+                slots = new long[old.length * 2];
+                Arrays.fill(slots, EMPTY);
+                for (var slot : old)
+                    if (slot != EMPTY)
+                        slots[indexOf(slot)] = slot;
+            }
+            return true;
+        }
+
+        /** Removes the value, shifting back the values of the same probe sequence. */
+        public void remove(long value)
+        {
+            var mask = slots.length - 1;
+            var index = indexOf(value);
+            if (slots[index] != value)
+                return;
+
+            size--;
+            var next = (index + 1) & mask;
+            while (slots[next] != EMPTY)
+            {
+                var home = (int)mix(slots[next]) & mask;
+                // Move the value back if its home is not between the hole and its slot (cyclically).
+                if (((next - home) & mask) >= ((next - index) & mask))
+                {
+                    slots[index] = slots[next];
+                    index = next;
+                }
+                next = (next + 1) & mask;
+            }
+            slots[index] = EMPTY;
+        }
+    }
+    //endregion
+
+    //region --[Fields: Private]---------------------------------------
+    /** Hash purposes so that the random values derived from the same id are independent. */
+    private static final int LABEL = 1, SOURCE = 2, TARGET = 3, VALUE = 4;
+
+    private static final String IMDB_PREFIX = "http://imdb.org/";
+    private static final String DBPEDIA_RESOURCE = "http://dbpedia.org/resource/";
+    private static final String DBPEDIA_ONTOLOGY = "http://dbpedia.org/ontology/";
+    private static final String RDF_TYPE = "http://www.w3.org/1999/02/22-rdf-syntax-ns#type";
+
+    private final SyntheticGraphConfig config;
+
+    /** Vertex types, TGFD types first. */
+    private final String[] types;
+
+    /** Edge labels, TGFD labels first. */
+    private final String[] labels;
+
+    /** Source and target type of each label. */
+    private final int[] labelSources, labelTargets;
+
+    /** Cumulative distribution of the labels. */
+    private final double[] labelCdf;
+
+    /** Attribute names of each type, TGFD attributes first. */
+    private final String[][] attributesByType;
+
+    /** Names of the TGFDs that use each type and each label. */
+    private final List<HashSet<String>> tgfdsByType = new ArrayList<>();
+    private final List<HashSet<String>> tgfdsByLabel = new ArrayList<>();
+
+    /** Type of each vertex. */
+    private final int[] vertexTypes;
+
+    /** Vertices of each type. */
+    private final int[][] verticesByType;
+
+    /** Edge ids without a live edge: deleted, loops, labels without vertices or pairs already used by a live edge. */
+    private final BitSet deadEdges = new BitSet();
+
+    /** (source, target) pairs of the live edges (see pairKey). */
+    private final LongSet livePairs;
+
+    /** Id of the next inserted edge. */
+    private int nextEdgeId;
+
+    /** Attribute values that differ from the generated value, keyed by attributeKey. */
+    private final HashMap<Long, String> changedValues = new HashMap<>();
+
+    /** Number of snapshots after the first one. */
+    private int snapshot = 0;
+    //endregion
+
+    //region --[Constructors]------------------------------------------
+    /**
+     * Creates the schema and the vertices of the first snapshot.
+     * @param config Parameters of the generated graphs.
+     */
+    public SyntheticGraphGenerator(SyntheticGraphConfig config)
+    {
+        this.config = config;
+
+        // Schema: types, labels and attributes of the TGFDs, then synthetic ones.
+        var typeIndex = new LinkedHashMap<String, Integer>();
+        var labelEndpoints = new LinkedHashMap<String, int[]>();
+        var attributes = new HashMap<Integer, LinkedHashSet<String>>();
+        for (var tgfd : config.tgfds)
+        {
+            var graph = tgfd.getPattern().getGraph();
+            for (var vertex : graph.vertexSet())
+            {
+                for (var type : vertex.getTypes())
+                {
+                    var index = typeIndex.computeIfAbsent(type, k -> typeIndex.size());
+                    attributes.computeIfAbsent(index, k -> new LinkedHashSet<>()).addAll(vertex.getAllAttributesNames());
+                }
+            }
+            for (var edge : graph.edgeSet())
+            {
+                if (edge.getLabelId() != LabelDictionary.WILDCARD_ID)
+                {
+                    labelEndpoints.putIfAbsent(edge.getLabel(), new int[] {
+                        typeIndex.get(edge.getSource().getTypes().iterator().next()),
+                        typeIndex.get(edge.getTarget().getTypes().iterator().next()) });
+                }
+            }
+            var literals = new ArrayList<Literal>(tgfd.getDependency().getX());
+            literals.addAll(tgfd.getDependency().getY());
+            for (var literal : literals)
+            {
+                if (literal instanceof ConstantLiteral)
+                {
+                    var constant = (ConstantLiteral)literal;
+                    addAttribute(typeIndex, attributes, constant.getVertexType(), constant.getAttrName());
+                }
+                else if (literal instanceof VariableLiteral)
+                {
+                    var variable = (VariableLiteral)literal;
+                    addAttribute(typeIndex, attributes, variable.getVertexType_1(), variable.getAttrName_1());
+                    addAttribute(typeIndex, attributes, variable.getVertexType_2(), variable.getAttrName_2());
+                }
+            }
+        }
+
+        types = new String[Math.max(config.typeCount, typeIndex.size())];
+        for (var entry : typeIndex.entrySet())
+            types[entry.getValue()] = entry.getKey();
+        for (int i = typeIndex.size(); i < types.length; i++)
+            types[i] = "type" + i;
+
+        attributesByType = new String[types.length][];
+        for (int i = 0; i < types.length; i++)
+        {
+            var names = attributes.getOrDefault(i, new LinkedHashSet<>());
+            names.remove("uri");
+            for (int a = 0; a < config.attributesPerType; a++)
+                names.add("attr" + a);
+            attributesByType[i] = names.toArray(new String[0]);
+            tgfdsByType.add(new HashSet<>());
+        }
+
+        var random = new SplittableRandom(config.seed);
+        var typeCdf = zipfCdf(types.length, config.typeSkew);
+        labels = new String[Math.max(config.labelCount, labelEndpoints.size())];
+        labelSources = new int[labels.length];
+        labelTargets = new int[labels.length];
+        var l = 0;
+        for (var entry : labelEndpoints.entrySet())
+        {
+            labels[l] = entry.getKey();
+            labelSources[l] = entry.getValue()[0];
+            labelTargets[l] = entry.getValue()[1];
+            l++;
+        }
+        for (; l < labels.length; l++)
+        {
+            labels[l] = "label" + l;
+            labelSources[l] = sample(typeCdf, random.nextDouble());
+            labelTargets[l] = sample(typeCdf, random.nextDouble());
+        }
+        labelCdf = zipfCdf(labels.length, config.labelSkew);
+        for (int i = 0; i < labels.length; i++)
+            tgfdsByLabel.add(new HashSet<>());
+
+        for (var tgfd : config.tgfds)
+        {
+            var graph = tgfd.getPattern().getGraph();
+            for (var vertex : graph.vertexSet())
+                for (var type : vertex.getTypes())
+                    tgfdsByType.get(typeIndex.get(type)).add(tgfd.getName());
+            for (var edge : graph.edgeSet())
+            {
+                for (int i = 0; i < labels.length; i++)
+                {
+                    if (edge.getLabelId() == LabelDictionary.WILDCARD_ID || labels[i].equals(edge.getLabel()))
+                        tgfdsByLabel.get(i).add(tgfd.getName());
+                }
+            }
+        }
+
+        // Vertices
+        vertexTypes = new int[config.vertexCount];
+        var typeSizes = new int[types.length];
+        for (int v = 0; v < vertexTypes.length; v++)
+        {
+            vertexTypes[v] = sample(typeCdf, random.nextDouble());
+            typeSizes[vertexTypes[v]]++;
+        }
+        verticesByType = new int[types.length][];
+        for (int t = 0; t < types.length; t++)
+            verticesByType[t] = new int[typeSizes[t]];
+        Arrays.fill(typeSizes, 0);
+        for (int v = 0; v < vertexTypes.length; v++)
+            verticesByType[vertexTypes[v]][typeSizes[vertexTypes[v]]++] = v;
+
+        livePairs = new LongSet(config.edgeCount);
+        nextEdgeId = 0;
+        while (nextEdgeId < config.edgeCount)
+            addEdgeId();
+    }
+    //endregion
+
+    //region --[Methods: Private]--------------------------------------
+    private static void addAttribute(
+        HashMap<String, Integer> typeIndex,
+        HashMap<Integer, LinkedHashSet<String>> attributes,
+        String type,
+        String attribute)
+    {
+        var index = typeIndex.computeIfAbsent(type, k -> typeIndex.size());
+        attributes.computeIfAbsent(index, k -> new LinkedHashSet<>()).add(attribute);
+    }
+
+    /** Cumulative distribution of a Zipf distribution over the ranks 0..size-1. */
+    private static double[] zipfCdf(int size, double skew)
+    {
+        var cdf = new double[size];
+        var sum = 0.0;
+        for (int i = 0; i < size; i++)
+        {
+            sum += 1.0 / Math.pow(i + 1, skew);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < size; i++)
+            cdf[i] /= sum;
+        return cdf;
+    }
+
+    /** Index of the first cumulative probability that is at least the uniform value. */
+    private static int sample(double[] cdf, double uniform)
+    {
+        var index = Arrays.binarySearch(cdf, uniform);
+        index = index < 0 ? -index - 1 : index;
+        return Math.min(index, cdf.length - 1);
+    }
+
+    /** SplitMix64 finalizer. */
+    private static long mix(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /** Random value derived from an id and a purpose. */
+    private long hash(long id, int purpose)
+    {
+        return mix(config.seed + mix(id * 0x9E3779B97F4A7C15L + purpose));
+    }
+
+    /** Random index in [0, bound) derived from an id and a purpose. */
+    private int hashIndex(long id, int purpose, int bound)
+    {
+        return (int)Long.remainderUnsigned(hash(id, purpose), bound);
+    }
+
+    private static long attributeKey(int vertex, int attribute)
+    {
+        return ((long)vertex << 16) | attribute;
+    }
+
+    private static long pairKey(int source, int target)
+    {
+        return ((long)source << 32) | (target & 0xFFFFFFFFL);
+    }
+
+    /** Gets the edge of the next edge id and returns it if it is live, otherwise marks the id as dead and returns null. */
+    private int[] addEdgeId()
+    {
+        var edgeId = nextEdgeId++;
+        var edge = getEdge(edgeId);
+        if (edge == null || !livePairs.add(pairKey(edge[1], edge[2])))
+        {
+            deadEdges.set(edgeId);
+            return null;
+        }
+        return edge;
+    }
+
+    /** Gets the label, source and target of an edge, or null if the label's types have no vertices or it is a loop. */
+    private int[] getEdge(int edgeId)
+    {
+        var label = sample(labelCdf, (hash(edgeId, LABEL) >>> 11) * 0x1.0p-53);
+        var sources = verticesByType[labelSources[label]];
+        var targets = verticesByType[labelTargets[label]];
+        if (sources.length == 0 || targets.length == 0)
+            return null;
+
+        var source = sources[hashIndex(edgeId, SOURCE, sources.length)];
+        var target = targets[hashIndex(edgeId, TARGET, targets.length)];
+        return source == target ? null : new int[] { label, source, target };
+    }
+
+    /** Gets the current value of an attribute of a vertex. */
+    private String getValue(int vertex, int attribute)
+    {
+        var changed = changedValues.get(attributeKey(vertex, attribute));
+        if (changed != null)
+            return changed;
+        return "value" + hashIndex(attributeKey(vertex, attribute), VALUE, config.attributeDomainSize);
+    }
+
+    private int getAttributeIndex(int type, String attribute)
+    {
+        var names = attributesByType[type];
+        for (int i = 0; i < names.length; i++)
+            if (names[i].equals(attribute))
+                return i;
+        return -1;
+    }
+
+    private String getUri(int vertex)
+    {
+        return "v" + vertex;
+    }
+
+    private int getTypeIndex(String type)
+    {
+        for (int i = 0; i < types.length; i++)
+            if (types[i].equals(type))
+                return i;
+        return -1;
+    }
+
+    /** Changes an attribute value and records the change. */
+    private void changeValue(List<Change> changes, int vertex, int attribute, String value)
+    {
+        changedValues.put(attributeKey(vertex, attribute), value);
+        var change = new AttributeChange(ChangeType.changeAttr, changes.size() + 1, getUri(vertex),
+            new Attribute(attributesByType[vertexTypes[vertex]][attribute], value));
+        change.addTGFD(tgfdsByType.get(vertexTypes[vertex]));
+        changes.add(change);
+    }
+
+    private EdgeChange edgeChange(ChangeType type, int id, int[] edge)
+    {
+        var change = new EdgeChange(type, id, getUri(edge[1]), getUri(edge[2]), labels[edge[0]]);
+        change.addTGFD(tgfdsByLabel.get(edge[0]));
+        return change;
+    }
+
+    /** Escapes a literal for N-Triples. */
+    private static String escape(String value)
+    {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private void writeAttributes(Writer writer, int vertex, String subject, String predicatePrefix) throws IOException
+    {
+        var names = attributesByType[vertexTypes[vertex]];
+        for (int a = 0; a < names.length; a++)
+        {
+            writer.write(subject);
+            writer.write(" <" + predicatePrefix + names[a] + "> \"");
+            writer.write(escape(getValue(vertex, a)));
+            writer.write("\" .\n");
+        }
+    }
+    //endregion
+
+    //region --[Methods: Public]---------------------------------------
+    /**
+     * Advances to the next snapshot: deletes and inserts edges, changes attributes and injects violations.
+     * @return The changes from the previous snapshot (ids start at 1).
+     */
+    public List<Change> advance()
+    {
+        snapshot++;
+        var random = new SplittableRandom(mix(config.seed + snapshot));
+        var changes = new ArrayList<Change>();
+
+        // Edges: delete live edges and insert the same number of new edges.
+        var edgeChanges = (int)Math.round(config.edgeChurn * getEdgeCount());
+        for (int i = 0, attempts = 0; i < edgeChanges && attempts < 10 * edgeChanges; attempts++)
+        {
+            var edgeId = random.nextInt(nextEdgeId);
+            if (deadEdges.get(edgeId))
+                continue;
+            var edge = getEdge(edgeId);
+            deadEdges.set(edgeId);
+            livePairs.remove(pairKey(edge[1], edge[2]));
+            changes.add(edgeChange(ChangeType.deleteEdge, changes.size() + 1, edge));
+            i++;
+        }
+        for (int i = 0, attempts = 0; i < edgeChanges && attempts < 10 * edgeChanges; attempts++)
+        {
+            var edge = addEdgeId();
+            if (edge == null)
+                continue;
+            changes.add(edgeChange(ChangeType.insertEdge, changes.size() + 1, edge));
+            i++;
+        }
+
+        // Attribute churn
+        var attributeChanges = (int)Math.round(config.attributeChurn * vertexTypes.length);
+        for (int i = 0; i < attributeChanges; i++)
+        {
+            var vertex = random.nextInt(vertexTypes.length);
+            var names = attributesByType[vertexTypes[vertex]];
+            if (names.length == 0)
+                continue;
+            changeValue(changes, vertex, random.nextInt(names.length), "value" + random.nextInt(config.attributeDomainSize));
+        }
+
+        // Violations: change the Y attribute of matched vertices (to a value other than the constant of a constant literal)
+        if (config.violationRate > 0)
+        {
+            for (var tgfd : config.tgfds)
+            {
+                for (var literal : tgfd.getDependency().getY())
+                {
+                    String type, attribute, constant = null;
+                    if (literal instanceof ConstantLiteral)
+                    {
+                        var constantLiteral = (ConstantLiteral)literal;
+                        type = constantLiteral.getVertexType();
+                        attribute = constantLiteral.getAttrName();
+                        constant = constantLiteral.getAttrValue();
+                    }
+                    else if (literal instanceof VariableLiteral)
+                    {
+                        var variableLiteral = (VariableLiteral)literal;
+                        type = variableLiteral.getVertexType_1();
+                        attribute = variableLiteral.getAttrName_1();
+                    }
+                    else
+                        continue;
+
+                    // The uri is the identity of the vertex and is not generated as an attribute, so it cannot be changed
+                    var typeIndex = getTypeIndex(type);
+                    var attributeIndex = typeIndex < 0 ? -1 : getAttributeIndex(typeIndex, attribute);
+                    if (attributeIndex < 0)
+                        continue;
+
+                    var vertices = verticesByType[typeIndex];
+                    var count = (int)Math.round(config.violationRate * vertices.length);
+                    for (int i = 0; i < count; i++)
+                    {
+                        var vertex = vertices[random.nextInt(vertices.length)];
+                        var value = constant != null
+                            ? "not" + constant
+                            : "violation" + snapshot + "_" + random.nextInt(config.attributeDomainSize);
+                        changeValue(changes, vertex, attributeIndex, value);
+                    }
+                }
+            }
+        }
+        return changes;
+    }
+
+    /** Creates the current snapshot in memory. */
+    public VF2DataGraph createGraph()
+    {
+        var graph = new VF2DataGraph();
+        var vertices = new DataVertex[vertexTypes.length];
+        for (int v = 0; v < vertices.length; v++)
+        {
+            vertices[v] = new DataVertex(getUri(v), types[vertexTypes[v]]);
+            var names = attributesByType[vertexTypes[v]];
+            for (int a = 0; a < names.length; a++)
+                vertices[v].addAttribute(names[a], getValue(v, a));
+            graph.addVertex(vertices[v]);
+        }
+        for (int e = 0; e < nextEdgeId; e++)
+        {
+            if (deadEdges.get(e))
+                continue;
+            var edge = getEdge(e);
+            graph.addEdge(vertices[edge[1]], vertices[edge[2]], new RelationshipEdge(labels[edge[0]]));
+        }
+        return graph;
+    }
+
+    /**
+     * Writes the current snapshot as N-Triples in the format read by IMDBLoader.
+     * @param path Path of the snapshot file (use the .nt extension).
+     */
+    public void writeIMDBSnapshot(Path path)
+    {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8))
+        {
+            for (int v = 0; v < vertexTypes.length; v++)
+                writeAttributes(writer, v, "<" + IMDB_PREFIX + types[vertexTypes[v]] + "/" + getUri(v) + ">", IMDB_PREFIX);
+            for (int e = 0; e < nextEdgeId; e++)
+            {
+                if (deadEdges.get(e))
+                    continue;
+                var edge = getEdge(e);
+                writer.write("<" + IMDB_PREFIX + types[vertexTypes[edge[1]]] + "/" + getUri(edge[1]) + "> <" +
+                    IMDB_PREFIX + labels[edge[0]] + "> <" +
+                    IMDB_PREFIX + types[vertexTypes[edge[2]]] + "/" + getUri(edge[2]) + "> .\n");
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the current snapshot as N-Triples in the format read by DBPediaLoader.
+     * @param typesPath Path of the types file (use the .nt extension).
+     * @param dataPath Path of the data file with the attributes and edges (use the .nt extension).
+     */
+    public void writeDBPediaSnapshot(Path typesPath, Path dataPath)
+    {
+        try (BufferedWriter typesWriter = Files.newBufferedWriter(typesPath, StandardCharsets.UTF_8);
+             BufferedWriter dataWriter = Files.newBufferedWriter(dataPath, StandardCharsets.UTF_8))
+        {
+            for (int v = 0; v < vertexTypes.length; v++)
+            {
+                var subject = "<" + DBPEDIA_RESOURCE + getUri(v) + ">";
+                typesWriter.write(subject + " <" + RDF_TYPE + "> <" + DBPEDIA_ONTOLOGY + types[vertexTypes[v]] + "> .\n");
+                writeAttributes(dataWriter, v, subject, DBPEDIA_ONTOLOGY);
+            }
+            for (int e = 0; e < nextEdgeId; e++)
+            {
+                if (deadEdges.get(e))
+                    continue;
+                var edge = getEdge(e);
+                dataWriter.write("<" + DBPEDIA_RESOURCE + getUri(edge[1]) + "> <" +
+                    DBPEDIA_ONTOLOGY + labels[edge[0]] + "> <" +
+                    DBPEDIA_RESOURCE + getUri(edge[2]) + "> .\n");
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+    //endregion
+
+    //region --[Properties: Public]------------------------------------
+    /** Gets the number of snapshots generated after the first one. */
+    public int getSnapshot() { return snapshot; }
+
+    /** Gets the number of live edges. */
+    public int getEdgeCount() { return nextEdgeId - deadEdges.cardinality(); }
+
+    /** Gets the vertex types of the schema. */
+    public List<String> getTypes() { return List.of(types); }
+
+    /** Gets the edge labels of the schema. */
+    public List<String> getLabels() { return List.of(labels); }
+    //endregion
+}
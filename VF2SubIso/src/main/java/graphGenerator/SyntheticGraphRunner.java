@@ -0,0 +1,161 @@
+package graphGenerator;
+
+import TGFDLoader.TGFDGenerator;
+import graphLoader.ChangeWriter;
+import util.myConsole;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Scanner;
+
+/**
+ * Writes the first snapshot and the change files of the following snapshots of a SyntheticGraphGenerator,
+ * with a pipeline configuration (pipeline.txt) that runs them with PipelineRunner.
+ *
+ * Keys of the configuration file (one "<key> <value>" pair per line):
+ *   -out <directory>                     Directory of the generated files (default synthetic)
+ *   -snapshots <n>                       Number of snapshots including the first one (default 2)
+ *   -dataset imdb|dbpedia                Format of the first snapshot (default imdb)
+ *   -start <date>                        Timestamp of the first snapshot (default 2000-01-01)
+ *   -interval <days>                     Days between snapshots (default 1)
+ *   -p <patternFile>                     TGFDs whose schema is generated and whose Y literals get violations
+ *   -seed, -vertices, -edges, -types, -typeskew, -labels, -labelskew, -attributes, -domain,
+ *   -attributechurn, -edgechurn, -violationrate: see SyntheticGraphConfig
+ *
+ * Example:
+ *   SyntheticGraphRunner synthetic.txt && PipelineRunner synthetic/pipeline.txt
+ */
+public class SyntheticGraphRunner
+{
+    //region --[Fields: Private]---------------------------------------
+    private final SyntheticGraphConfig config = new SyntheticGraphConfig();
+    private Path outputDirectory = Path.of("synthetic");
+    private int snapshotCount = 2;
+    private String dataset = "imdb";
+    private LocalDate start = LocalDate.of(2000, 1, 1);
+    private int intervalDays = 1;
+    private String patternPath = null;
+    //endregion
+
+    //region --[Methods: Private]--------------------------------------
+    /** Reads a configuration file (see the class comment for the keys). */
+    private void read(String path) throws FileNotFoundException
+    {
+        try (var scanner = new Scanner(new File(path)))
+        {
+            while (scanner.hasNextLine())
+            {
+                var conf = scanner.nextLine().split(" ");
+                if (conf.length != 2)
+                    continue;
+
+                switch (conf[0].toLowerCase())
+                {
+                    case "-out": outputDirectory = Path.of(conf[1]); break;
+                    case "-snapshots": snapshotCount = Integer.parseInt(conf[1]); break;
+                    case "-dataset": dataset = conf[1].toLowerCase(); break;
+                    case "-start": start = LocalDate.parse(conf[1]); break;
+                    case "-interval": intervalDays = Integer.parseInt(conf[1]); break;
+                    case "-p": patternPath = conf[1]; break;
+                    case "-seed": config.seed = Long.parseLong(conf[1]); break;
+                    case "-vertices": config.vertexCount = Integer.parseInt(conf[1]); break;
+                    case "-edges": config.edgeCount = Integer.parseInt(conf[1]); break;
+                    case "-types": config.typeCount = Integer.parseInt(conf[1]); break;
+                    case "-typeskew": config.typeSkew = Double.parseDouble(conf[1]); break;
+                    case "-labels": config.labelCount = Integer.parseInt(conf[1]); break;
+                    case "-labelskew": config.labelSkew = Double.parseDouble(conf[1]); break;
+                    case "-attributes": config.attributesPerType = Integer.parseInt(conf[1]); break;
+                    case "-domain": config.attributeDomainSize = Integer.parseInt(conf[1]); break;
+                    case "-attributechurn": config.attributeChurn = Double.parseDouble(conf[1]); break;
+                    case "-edgechurn": config.edgeChurn = Double.parseDouble(conf[1]); break;
+                    case "-violationrate": config.violationRate = Double.parseDouble(conf[1]); break;
+                }
+            }
+        }
+        if (!dataset.equals("imdb") && !dataset.equals("dbpedia"))
+            throw new IllegalArgumentException("Unknown dataset: " + dataset);
+        if (patternPath != null)
+            config.tgfds = new TGFDGenerator(patternPath).getTGFDs();
+    }
+
+    /** Writes the snapshots, the changes and the pipeline configuration. */
+    private void run()
+    {
+        try
+        {
+            Files.createDirectories(outputDirectory);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        var startTime = System.currentTimeMillis();
+        var generator = new SyntheticGraphGenerator(config);
+        var pipelinePath = outputDirectory.resolve("pipeline.txt");
+        try (var pipeline = new PrintWriter(pipelinePath.toFile()))
+        {
+            if (patternPath != null)
+            {
+                pipeline.println("-p " + Path.of(patternPath).toAbsolutePath());
+                // The loaders only load the attributes used by the TGFDs
+                pipeline.println("-optgraphload true");
+            }
+            pipeline.println("-dataset " + dataset);
+
+            if (dataset.equals("imdb"))
+            {
+                var dataPath = outputDirectory.resolve("snapshot1.nt");
+                generator.writeIMDBSnapshot(dataPath);
+                pipeline.println("-d1 " + dataPath.toAbsolutePath());
+            }
+            else
+            {
+                var typesPath = outputDirectory.resolve("types1.nt");
+                var dataPath = outputDirectory.resolve("data1.nt");
+                generator.writeDBPediaSnapshot(typesPath, dataPath);
+                pipeline.println("-t1 " + typesPath.toAbsolutePath());
+                pipeline.println("-d1 " + dataPath.toAbsolutePath());
+            }
+            pipeline.println("-s1 " + start);
+            myConsole.print("Snapshot 1 (" + generator.getEdgeCount() + " edges)", System.currentTimeMillis() - startTime);
+
+            for (int id = 2; id <= snapshotCount; id++)
+            {
+                startTime = System.currentTimeMillis();
+                var changes = generator.advance();
+                var changePath = outputDirectory.resolve("changes" + id + ".json");
+                ChangeWriter.write(changes, changePath.toString());
+                pipeline.println("-c" + id + " " + changePath.toAbsolutePath());
+                pipeline.println("-s" + id + " " + start.plusDays((long)(id - 1) * intervalDays));
+                myConsole.print("Snapshot " + id + " (" + changes.size() + " changes)", System.currentTimeMillis() - startTime);
+            }
+        }
+        catch (FileNotFoundException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        myConsole.print("Pipeline configuration: " + pipelinePath.toAbsolutePath());
+    }
+    //endregion
+
+    //region --[Methods: Public]---------------------------------------
+    public static void main(String[] args) throws FileNotFoundException
+    {
+        if (args.length < 1)
+        {
+            System.out.println("Usage: SyntheticGraphRunner <configFile>");
+            return;
+        }
+        var runner = new SyntheticGraphRunner();
+        runner.read(args[0]);
+        runner.run();
+    }
+    //endregion
+}
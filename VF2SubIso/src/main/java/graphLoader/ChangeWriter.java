@@ -0,0 +1,100 @@
+package graphLoader;
+
+import changeExploration.*;
+import infra.Attribute;
+import infra.DataVertex;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Writes changes in the JSON format read by ChangeLoader.
+ */
+public class ChangeWriter
+{
+    //region --[Methods: Private]--------------------------------------
+    @SuppressWarnings("unchecked")
+    private static JSONObject toJson(Attribute attribute)
+    {
+        var object = new JSONObject();
+        object.put("attrName", attribute.getAttrName());
+        object.put("attrValue", attribute.getAttrValue());
+        return object;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JSONObject toJson(DataVertex vertex)
+    {
+        var types = new JSONArray();
+        types.addAll(vertex.getTypes());
+
+        var attributes = new JSONArray();
+        for (var attribute : vertex.getAllAttributesList())
+            attributes.add(toJson(attribute));
+
+        var object = new JSONObject();
+        object.put("vertexURI", vertex.getVertexURI());
+        object.put("types", types);
+        object.put("allAttributesList", attributes);
+        return object;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JSONObject toJson(Change change)
+    {
+        var tgfds = new JSONArray();
+        tgfds.addAll(change.getTGFDs());
+
+        var object = new JSONObject();
+        object.put("id", change.getId());
+        object.put("typeOfChange", change.getTypeOfChange().name());
+        object.put("tgfds", tgfds);
+        if (change instanceof EdgeChange)
+        {
+            var edgeChange = (EdgeChange)change;
+            object.put("src", edgeChange.getSrc());
+            object.put("dst", edgeChange.getDst());
+            object.put("label", edgeChange.getLabel());
+        }
+        else if (change instanceof AttributeChange)
+        {
+            var attributeChange = (AttributeChange)change;
+            object.put("uri", attributeChange.getUri());
+            object.put("attribute", toJson(attributeChange.getAttribute()));
+        }
+        else if (change instanceof VertexChange)
+        {
+            object.put("vertex", toJson(((VertexChange)change).getVertex()));
+        }
+        return object;
+    }
+    //endregion
+
+    //region --[Methods: Public]---------------------------------------
+    /**
+     * Writes changes to a JSON file.
+     * @param changes Changes to write.
+     * @param path Path of the JSON file.
+     */
+    @SuppressWarnings("unchecked")
+    public static void write(List<Change> changes, String path)
+    {
+        var array = new JSONArray();
+        for (var change : changes)
+            array.add(toJson(change));
+
+        try (var writer = new FileWriter(path))
+        {
+            array.writeJSONString(writer);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+    //endregion
+}
@@ -6,6 +6,7 @@ import infra.RelationshipEdge;
 import infra.TGFD;
 import org.apache.jena.datatypes.DatatypeFormatException;
 import org.apache.jena.rdf.model.*;
+import util.Metrics;
 import util.myConsole;
 import util.properties;
 
@@ -34,13 +35,22 @@ public class DBPediaLoader extends GraphLoader {
     {
         super(alltgfd);
 
-        for (String typePath:typesPath) {
-            loadNodeMap(typePath);
-        }
+        Metrics.Sample sample=Metrics.time("load");
+        try {
+            for (String typePath:typesPath) {
+                loadNodeMap(typePath);
+            }
 
-        for (String dataP:dataPath) {
-            loadDataGraph(dataP);
+            for (String dataP:dataPath) {
+                loadDataGraph(dataP);
+            }
+        } finally {
+            sample.close();
         }
+
+        List<String> sourcePaths=new ArrayList<>(typesPath);
+        sourcePaths.addAll(dataPath);
+        collectStatistics(dataPath.isEmpty() ? null : dataPath.get(0), sourcePaths);
     }
 
     //endregion
@@ -2,11 +2,19 @@ package graphLoader;
 
 import changeExploration.*;
 import infra.*;
+import util.Metrics;
+import util.Progress;
+import util.myConsole;
 import util.properties;
 
+import java.io.File;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * Base class for graph loaders
@@ -46,6 +54,17 @@ public class GraphLoader {
             }
     }
 
+    /**
+     * Creates a loader with a fork of the graph of another loader (see VF2DataGraph.fork)
+     * @param other Loader to fork; its graph must not be changed while it is forked
+     */
+    protected GraphLoader(GraphLoader other)
+    {
+        graph=other.graph.fork();
+        validTypes=other.validTypes;
+        validAttributes=other.validAttributes;
+    }
+
     //endregion
 
     //region --[Properties: Public]--------------------------------------
@@ -54,11 +73,39 @@ public class GraphLoader {
         return graph;
     }
 
+    /**
+     * @return Statistics of the loaded graph, kept up to date by updateGraphWithChanges
+     */
+    public GraphStatistics getStatistics() {
+        return graph.getStatistics();
+    }
+
     //endregion
 
     //region --[Private Methods]-----------------------------------------
 
+    /**
+     * @return A loader with a fork of the graph that shares its unchanged parts, so changes can be applied
+     * to the fork while this graph is matched
+     */
+    public GraphLoader fork()
+    {
+        return new GraphLoader(this);
+    }
+
     public void updateGraphWithChanges(List<Change> changes)
+    {
+        Progress.setPhase("updateGraph");
+        Metrics.Sample sample=Metrics.time("updateGraph");
+        try {
+            applyChanges(changes);
+        } finally {
+            sample.close();
+        }
+        Metrics.counter("updateGraph.changes").add(changes.size());
+    }
+
+    private void applyChanges(List<Change> changes)
     {
         for (Change change:changes) {
             if(change instanceof VertexChange && change.getTypeOfChange()==ChangeType.insertVertex)
@@ -67,6 +114,7 @@ public class GraphLoader {
 
         for (Change change:changes)
         {
+            Progress.addChange();
             if(change instanceof EdgeChange)
             {
                 EdgeChange edgeChange=(EdgeChange) change;
@@ -86,17 +134,100 @@ public class GraphLoader {
                 if(v1==null)
                     continue;
                 if(attributeChange.getTypeOfChange()==ChangeType.changeAttr || attributeChange.getTypeOfChange()==ChangeType.insertAttr)
-                    v1.setOrAddAttribute(attributeChange.getAttribute());
+                    this.graph.updateGraphByAttribute(v1,attributeChange.getAttribute());
                 else if(attributeChange.getTypeOfChange()==ChangeType.deleteAttr)
-                    v1.deleteAttribute(attributeChange.getAttribute());
+                    this.graph.deleteAttribute(v1,attributeChange.getAttribute());
             }
         }
     }
 
     //endregion
 
+    //region --[Protected Methods]---------------------------------------
+
+    /**
+     * Collects the statistics of the loaded graph in a single scan and attaches them to the graph
+     * so they are updated by the changes. If "properties.myProperties.saveGraphStatistics" is TRUE,
+     * the statistics are saved next to the snapshot, and reused instead of the scan when the same
+     * snapshot files are loaded again by the same loader with the same filters.
+     * @param snapshotPath Path to the loaded snapshot file (the statistics file is saved next to it)
+     * @param sourcePaths Paths to all the files the graph was loaded from
+     */
+    protected void collectStatistics(String snapshotPath, List<String> sourcePaths)
+    {
+        String source=describeSource(sourcePaths);
+        Path statisticsPath=null;
+        if(properties.myProperties.saveGraphStatistics && snapshotPath!=null && snapshotPath.length()>0)
+            statisticsPath=GraphStatistics.getPathFor(snapshotPath);
+
+        GraphStatistics statistics=statisticsPath==null ? null : loadStatistics(statisticsPath, source);
+        if(statistics==null) {
+            statistics=GraphStatistics.fromGraph(graph.getGraph());
+            statistics.setSource(source);
+            if(statisticsPath!=null) {
+                try {
+                    statistics.save(statisticsPath);
+                } catch (UncheckedIOException e) {
+                    myConsole.print("Cannot save the graph statistics: " + e.getMessage());
+                }
+            }
+        }
+        else
+            myConsole.print("Reusing the graph statistics of " + statisticsPath);
+
+        graph.setStatistics(statistics);
+        myConsole.print("Statistics: " + statistics.getVertexCount() + " vertices, " + statistics.getEdgeCount() + " edges");
+        Metrics.counter("load.vertices").add(statistics.getVertexCount());
+        Metrics.counter("load.edges").add(statistics.getEdgeCount());
+    }
+
+    //endregion
+
     //region --[Private Methods]-----------------------------------------
 
+    /**
+     * Describes what the loaded graph depends on: the loader, its filters and the size and modification time
+     * of every loaded file, so that statistics saved for another version of the snapshot are not reused.
+     */
+    private String describeSource(List<String> sourcePaths)
+    {
+        StringBuilder source=new StringBuilder(getClass().getName());
+        source.append('\n').append(properties.myProperties.optimizedLoadingBasedOnTGFD);
+        if(properties.myProperties.optimizedLoadingBasedOnTGFD) {
+            source.append('\n').append(new TreeSet<>(validTypes));
+            source.append('\n').append(new TreeSet<>(validAttributes));
+        }
+        for (String sourcePath:sourcePaths) {
+            File file=new File(sourcePath);
+            source.append('\n').append(file.getAbsolutePath())
+                .append('\t').append(file.length())
+                .append('\t').append(file.lastModified());
+        }
+        return source.toString();
+    }
+
+    /**
+     * Loads the statistics saved for the snapshot
+     * @return The statistics, or null if there are none or they were computed from another source
+     */
+    private GraphStatistics loadStatistics(Path statisticsPath, String source)
+    {
+        if(!Files.isRegularFile(statisticsPath))
+            return null;
+        try {
+            GraphStatistics statistics=GraphStatistics.load(statisticsPath);
+            if(!statistics.getSource().equals(source)
+                    || statistics.getVertexCount()!=graph.getGraph().vertexSet().size()
+                    || statistics.getEdgeCount()!=graph.getGraph().edgeSet().size())
+                return null;
+            return statistics;
+        } catch (RuntimeException e) {
+            // The file is unreadable or from another version, so it is computed and saved again
+            myConsole.print("Cannot load the graph statistics: " + e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Extracts all the types being used in a TGFD from from X->Y dependency and the graph pattern
      * @param tgfd input TGFD
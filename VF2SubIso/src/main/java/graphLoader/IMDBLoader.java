@@ -6,6 +6,7 @@ import infra.RelationshipEdge;
 import infra.TGFD;
 import org.apache.jena.datatypes.DatatypeFormatException;
 import org.apache.jena.rdf.model.*;
+import util.Metrics;
 import util.myConsole;
 import util.properties;
 
@@ -18,7 +19,13 @@ public class IMDBLoader extends GraphLoader{
     public IMDBLoader(List <TGFD> alltgfd, String path) {
 
         super(alltgfd);
-        loadIMDBGraph(path);
+        Metrics.Sample sample=Metrics.time("load");
+        try {
+            loadIMDBGraph(path);
+        } finally {
+            sample.close();
+        }
+        collectStatistics(path, List.of(path));
     }
 
     private void loadIMDBGraph(String dataGraphFilePath) {
@@ -1,69 +1,66 @@
 package infra;
 
 import org.jgrapht.GraphMapping;
-import org.jgrapht.alg.isomorphism.IsomorphicGraphMapping;
-
-import java.time.LocalDate;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * A subset of IsomorphicGraphMapping that provides only the backwards vertex mapping.
  *
  * This class is purely for memory efficiency as we do not need to retain the references
- * to either the forwardMapping, or the graphs.
+ * to either the forwardMapping, or the graphs. The mapping is stored as the TemporalGraph ids
+ * of the data vertices indexed by the ordinal of the pattern vertices (see VF2PatternGraph.getOrdinal).
  */
-public class BackwardVertexGraphMapping<V, E> implements GraphMapping<V, E>
+public class BackwardVertexGraphMapping implements GraphMapping<Vertex, RelationshipEdge>
 {
     //region --[Fields: Private]---------------------------------------
-    // TODO: change key type to also be string (PatternVertex id) [2021-02-24]
-    /** Backward mapping from the second graph to the first one. **/
-    private final Map<V, String> backwardMapping;
+    /** Pattern graph of the mapping. */
+    private final VF2PatternGraph pattern;
+
+    /** TemporalGraph ids of the data vertices indexed by pattern vertex ordinal. **/
+    private final int[] vertexIds;
 
-    /** Timestamp of mapping. */
-    private final LocalDate timestamp;
+    /** Timestamp of mapping in epoch days. */
+    private final int epochDay;
 
     /** Temporal graph containing the vertices **/
-    private final TemporalGraph<V> temporalGraph;
+    private final TemporalGraph<Vertex> temporalGraph;
     //endregion
 
     //region --[Constructors]------------------------------------------
-    /** Constructs a new BackwardVertexGraphMapping with a given IsomorphicGraphMapping. */
+    /**
+     * Constructs a new BackwardVertexGraphMapping.
+     * @param pattern Pattern graph of the mapping.
+     * @param vertexIds TemporalGraph ids of the data vertices indexed by pattern vertex ordinal (not copied).
+     * @param epochDay Timestamp of the mapping in epoch days.
+     * @param temporalGraph Temporal graph containing the vertices.
+     */
     public BackwardVertexGraphMapping(
-        GraphMapping<V, E> mapping,
-        LocalDate timestamp,
-        TemporalGraph<V> temporalGraph)
+        VF2PatternGraph pattern,
+        int[] vertexIds,
+        int epochDay,
+        TemporalGraph<Vertex> temporalGraph)
     {
-        if (!(mapping instanceof IsomorphicGraphMapping))
-            throw new IllegalArgumentException("mapping is not an IsomorphicGraphMapping");
-
-        this.timestamp = timestamp;
+        this.pattern = pattern;
+        this.vertexIds = vertexIds;
+        this.epochDay = epochDay;
         this.temporalGraph = temporalGraph;
-
-        backwardMapping = new HashMap<>();
-        for (Map.Entry<V, V> entry : ((IsomorphicGraphMapping<V,E>)mapping).getBackwardMapping().entrySet())
-        {
-            // TODO: ensure V has to have a id getter [2021-02-24]
-            backwardMapping.put(
-                entry.getKey(),
-                ((DataVertex)entry.getValue()).getVertexURI());
-        }
     }
     //endregion
 
     //region --[GraphMapping]------------------------------------------
     @Override
-    public V getVertexCorrespondence(V v, boolean forward) {
+    public Vertex getVertexCorrespondence(Vertex v, boolean forward) {
         if (forward == true)
             throw new UnsupportedOperationException("BackwardVertexGraphMapping does not support forward getVertexCorrespondence");
 
-        return temporalGraph.getVertex(
-            backwardMapping.get(v),
-            timestamp);
+        var ordinal = pattern.getOrdinal(v);
+        if (ordinal < 0)
+            return null;
+
+        return temporalGraph.getVertex(vertexIds[ordinal], epochDay);
     }
 
     @Override
-    public E getEdgeCorrespondence(E e, boolean forward) {
+    public RelationshipEdge getEdgeCorrespondence(RelationshipEdge e, boolean forward) {
         throw new UnsupportedOperationException("BackwardVertexGraphMapping does not support getEdgeCorrespondence");
     }
     //endregion
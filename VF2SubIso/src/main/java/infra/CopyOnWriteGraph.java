@@ -0,0 +1,568 @@
+package infra;
+
+import org.jgrapht.GraphType;
+import org.jgrapht.graph.AbstractGraph;
+import org.jgrapht.graph.DefaultGraphType;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Directed data graph without multiple edges (like DefaultDirectedGraph) whose forks share their unchanged parts.
+ *
+ * Vertices get a dense id by URI that is shared by all forks. The adjacency of each vertex is stored in chunks of
+ * CHUNK_SIZE vertices; a fork only copies the table of chunks and copies a chunk, an adjacency list or a vertex the
+ * first time it changes them. So the memory of a fork is proportional to its changes (and the number of chunks)
+ * rather than to the graph.
+ *
+ * A vertex is copied (with its incident edges) before its attributes or neighbourhood change in a fork, so the
+ * vertex objects of a fork must be changed through getWritableVertex. Forks can be read concurrently; a fork must
+ * only be changed by one thread at a time and not while it is being forked. Forking only writes the ownership state
+ * (version and chunkVersions) that readers never use, so a graph can be forked while other threads read it.
+ */
+public class CopyOnWriteGraph extends AbstractGraph<Vertex, RelationshipEdge>
+{
+    //region --[Classes: Private]--------------------------------------
+    /** State shared by a graph and all its forks. */
+    private static class Family
+    {
+        /** Dense id of each vertex URI ever added to a fork. */
+        public final ConcurrentHashMap<String, Integer> idsByUri = new ConcurrentHashMap<>();
+        /** Number of dense ids. */
+        public final AtomicInteger idCount = new AtomicInteger();
+        /** Last assigned version (0 is never assigned, so it owns nothing). */
+        public final AtomicInteger versionCount = new AtomicInteger();
+    }
+
+    /** Vertex and its adjacency in a version. */
+    private static class Node
+    {
+        public DataVertex vertex;
+        public ArrayList<RelationshipEdge> outgoing;
+        public ArrayList<RelationshipEdge> incoming;
+        /** Version that may change the lists. */
+        public int version;
+        /** Version that may change the vertex. */
+        public int vertexVersion;
+
+        public Node(DataVertex vertex, int version)
+        {
+            this.vertex = vertex;
+            this.outgoing = new ArrayList<>();
+            this.incoming = new ArrayList<>();
+            this.version = version;
+            this.vertexVersion = version;
+        }
+
+        /** Copies the lists for a version (the vertex stays shared). */
+        public Node copy(int version)
+        {
+            var copy = new Node(vertex, version);
+            copy.outgoing.addAll(outgoing);
+            copy.incoming.addAll(incoming);
+            copy.vertexVersion = vertexVersion;
+            return copy;
+        }
+    }
+
+    /** Unmodifiable set view of an adjacency list (the edges are unique in the list). */
+    private static class EdgeSet extends AbstractSet<RelationshipEdge>
+    {
+        private final ArrayList<RelationshipEdge> edges;
+
+        public EdgeSet(ArrayList<RelationshipEdge> edges)
+        {
+            this.edges = edges;
+        }
+
+        @Override
+        public Iterator<RelationshipEdge> iterator() { return Collections.unmodifiableList(edges).iterator(); }
+
+        @Override
+        public int size() { return edges.size(); }
+
+        @Override
+        public boolean contains(Object o) { return indexOf(edges, o) >= 0; }
+    }
+    //endregion
+
+    //region --[Fields: Private]---------------------------------------
+    private static final int CHUNK_BITS = 8;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final GraphType TYPE = new DefaultGraphType.Builder()
+        .directed().allowMultipleEdges(false).allowSelfLoops(true).weighted(false).modifiable(true).build();
+
+    private final Family family;
+
+    /** Version of this fork (only used by the thread that changes or forks it). */
+    private int version;
+
+    /** Nodes by dense id in chunks (null for ids that are not vertices of this fork). */
+    private Node[][] chunks;
+
+    /** Version that may change each chunk (only used by the thread that changes or forks the graph). */
+    private int[] chunkVersions;
+
+    private int vertexCount = 0;
+    private int edgeCount = 0;
+    //endregion
+
+    //region --[Constructors]------------------------------------------
+    /** Creates an empty graph. */
+    public CopyOnWriteGraph()
+    {
+        this.family = new Family();
+        this.version = family.versionCount.incrementAndGet();
+        this.chunks = new Node[0][];
+        this.chunkVersions = new int[0];
+    }
+
+    private CopyOnWriteGraph(CopyOnWriteGraph other)
+    {
+        this.family = other.family;
+        this.version = family.versionCount.incrementAndGet();
+        this.chunks = other.chunks.clone();
+        this.chunkVersions = new int[chunks.length];
+        this.vertexCount = other.vertexCount;
+        this.edgeCount = other.edgeCount;
+    }
+    //endregion
+
+    //region --[Methods: Private]--------------------------------------
+    private static int indexOf(ArrayList<RelationshipEdge> edges, Object edge)
+    {
+        for (int i = 0; i < edges.size(); i++)
+            if (edges.get(i) == edge)
+                return i;
+        return -1;
+    }
+
+    private Integer idOf(Object vertex)
+    {
+        return vertex instanceof DataVertex
+            ? family.idsByUri.get(((DataVertex)vertex).getVertexURI())
+            : null;
+    }
+
+    private Node getNodeById(int id)
+    {
+        var chunkIndex = id >>> CHUNK_BITS;
+        if (chunkIndex >= chunks.length || chunks[chunkIndex] == null)
+            return null;
+        return chunks[chunkIndex][id & CHUNK_MASK];
+    }
+
+    /** Gets the node of a vertex object of this fork, otherwise null. */
+    private Node getNode(Object vertex)
+    {
+        var id = idOf(vertex);
+        if (id == null)
+            return null;
+        var node = getNodeById(id);
+        return node != null && node.vertex == vertex ? node : null;
+    }
+
+    private Node getExistingNode(Object vertex)
+    {
+        var node = getNode(vertex);
+        if (node == null)
+            throw new IllegalArgumentException("no such vertex in graph: " + vertex);
+        return node;
+    }
+
+    /** Gets the chunk of the id that this version may change. */
+    private Node[] getWritableChunk(int id)
+    {
+        var chunkIndex = id >>> CHUNK_BITS;
+        if (chunkIndex >= chunks.length)
+        {
+            var capacity = Math.max(chunkIndex + 1, chunks.length * 2);
+            chunks = Arrays.copyOf(chunks, capacity);
+            chunkVersions = Arrays.copyOf(chunkVersions, capacity);
+        }
+        if (chunkVersions[chunkIndex] != version)
+        {
+            chunks[chunkIndex] = chunks[chunkIndex] == null ? new Node[CHUNK_SIZE] : chunks[chunkIndex].clone();
+            chunkVersions[chunkIndex] = version;
+        }
+        return chunks[chunkIndex];
+    }
+
+    /** Gets the node of the id with lists that this version may change. */
+    private Node getWritableNode(int id)
+    {
+        var chunk = getWritableChunk(id);
+        var node = chunk[id & CHUNK_MASK];
+        if (node != null && node.version != version)
+        {
+            node = node.copy(version);
+            chunk[id & CHUNK_MASK] = node;
+        }
+        return node;
+    }
+
+    /** Replaces an edge in an adjacency list. */
+    private static void replace(ArrayList<RelationshipEdge> edges, RelationshipEdge edge, RelationshipEdge replacement)
+    {
+        edges.set(indexOf(edges, edge), replacement);
+    }
+    //endregion
+
+    //region --[Methods: Public]---------------------------------------
+    /**
+     * Returns a fork of the graph that shares the unchanged parts with this graph.
+     * Both graphs can be changed independently afterwards.
+     */
+    public CopyOnWriteGraph fork()
+    {
+        var fork = new CopyOnWriteGraph(this);
+        // This graph no longer owns its chunks and nodes as they are shared with the fork
+        this.version = family.versionCount.incrementAndGet();
+        this.chunkVersions = new int[chunks.length];
+        return fork;
+    }
+
+    /**
+     * Gets the vertex with the URI, otherwise null.
+     * @param uri URI of the vertex.
+     */
+    public DataVertex getVertex(String uri)
+    {
+        var id = family.idsByUri.get(uri);
+        if (id == null)
+            return null;
+        var node = getNodeById(id);
+        return node == null ? null : node.vertex;
+    }
+
+    /**
+     * Gets the vertex that this fork may change: the vertex itself or, if it is shared with another fork,
+     * a copy that replaces it (with new incident edges) in this fork.
+     * @param vertex Vertex of this fork.
+     */
+    public DataVertex getWritableVertex(DataVertex vertex)
+    {
+        int id = family.idsByUri.get(vertex.getVertexURI());
+        var node = getWritableNode(id);
+        if (node == null || node.vertex != vertex)
+            throw new IllegalArgumentException("no such vertex in graph: " + vertex);
+        if (node.vertexVersion == version)
+            return vertex;
+
+        var copy = vertex.copy();
+        copy.trackNeighbourhood();
+        for (int i = 0; i < node.outgoing.size(); i++)
+        {
+            var edge = node.outgoing.get(i);
+            var selfLoop = edge.getTarget() == vertex;
+            var target = selfLoop ? copy : edge.getTarget();
+            var replacement = new RelationshipEdge(edge.getLabel());
+            replacement.setEndpoints(copy, target);
+            node.outgoing.set(i, replacement);
+            replace(selfLoop ? node.incoming : getWritableNode(idOf(target)).incoming, edge, replacement);
+        }
+        for (int i = 0; i < node.incoming.size(); i++)
+        {
+            var edge = node.incoming.get(i);
+            if (edge.getSource() == copy)
+                continue;
+            var replacement = new RelationshipEdge(edge.getLabel());
+            replacement.setEndpoints(edge.getSource(), copy);
+            node.incoming.set(i, replacement);
+            replace(getWritableNode(idOf(edge.getSource())).outgoing, edge, replacement);
+        }
+        copy.resetOutgoingEdges(node.outgoing);
+        copy.resetIncomingEdges(node.incoming);
+        node.vertex = copy;
+        node.vertexVersion = version;
+        return copy;
+    }
+
+    @Override
+    public Set<RelationshipEdge> getAllEdges(Vertex sourceVertex, Vertex targetVertex)
+    {
+        if (!containsVertex(sourceVertex) || !containsVertex(targetVertex))
+            return null;
+        var edge = getEdge(sourceVertex, targetVertex);
+        return edge == null ? Collections.emptySet() : Collections.singleton(edge);
+    }
+
+    @Override
+    public RelationshipEdge getEdge(Vertex sourceVertex, Vertex targetVertex)
+    {
+        var source = getNode(sourceVertex);
+        var target = getNode(targetVertex);
+        if (source == null || target == null)
+            return null;
+        // Scan the shorter list
+        if (source.outgoing.size() <= target.incoming.size())
+        {
+            for (var edge : source.outgoing)
+                if (edge.getTarget() == targetVertex)
+                    return edge;
+        }
+        else
+        {
+            for (var edge : target.incoming)
+                if (edge.getSource() == sourceVertex)
+                    return edge;
+        }
+        return null;
+    }
+
+    @Override
+    public Supplier<Vertex> getVertexSupplier() { return null; }
+
+    @Override
+    public Supplier<RelationshipEdge> getEdgeSupplier() { return null; }
+
+    @Override
+    public RelationshipEdge addEdge(Vertex sourceVertex, Vertex targetVertex)
+    {
+        throw new UnsupportedOperationException("The graph has no edge supplier");
+    }
+
+    @Override
+    public boolean addEdge(Vertex sourceVertex, Vertex targetVertex, RelationshipEdge edge)
+    {
+        if (edge == null)
+            throw new NullPointerException();
+        getExistingNode(sourceVertex);
+        getExistingNode(targetVertex);
+        if (getEdge(sourceVertex, targetVertex) != null)
+            return false;
+
+        edge.setEndpoints(sourceVertex, targetVertex);
+        getWritableNode(idOf(sourceVertex)).outgoing.add(edge);
+        getWritableNode(idOf(targetVertex)).incoming.add(edge);
+        edgeCount++;
+        return true;
+    }
+
+    @Override
+    public Vertex addVertex()
+    {
+        throw new UnsupportedOperationException("The graph has no vertex supplier");
+    }
+
+    /** Adds a DataVertex if the graph has no vertex with its URI. */
+    @Override
+    public boolean addVertex(Vertex vertex)
+    {
+        if (!(vertex instanceof DataVertex))
+            throw new IllegalArgumentException("Only data vertices can be added: " + vertex);
+        int id = family.idsByUri.computeIfAbsent(((DataVertex)vertex).getVertexURI(), k -> family.idCount.getAndIncrement());
+        if (getNodeById(id) != null)
+            return false;
+        getWritableChunk(id)[id & CHUNK_MASK] = new Node((DataVertex)vertex, version);
+        vertexCount++;
+        return true;
+    }
+
+    @Override
+    public boolean containsEdge(RelationshipEdge edge)
+    {
+        if (edge == null)
+            return false;
+        var source = getNode(edge.getSource());
+        return source != null && indexOf(source.outgoing, edge) >= 0;
+    }
+
+    @Override
+    public boolean containsVertex(Vertex vertex)
+    {
+        return getNode(vertex) != null;
+    }
+
+    @Override
+    public Set<RelationshipEdge> edgeSet()
+    {
+        return new AbstractSet<>()
+        {
+            @Override
+            public Iterator<RelationshipEdge> iterator()
+            {
+                var vertices = vertexSet().iterator();
+                return new Iterator<>()
+                {
+                    private Iterator<RelationshipEdge> edges = Collections.emptyIterator();
+
+                    @Override
+                    public boolean hasNext()
+                    {
+                        while (!edges.hasNext() && vertices.hasNext())
+                            edges = outgoingEdgesOf(vertices.next()).iterator();
+                        return edges.hasNext();
+                    }
+
+                    @Override
+                    public RelationshipEdge next()
+                    {
+                        if (!hasNext())
+                            throw new NoSuchElementException();
+                        return edges.next();
+                    }
+                };
+            }
+
+            @Override
+            public int size() { return edgeCount; }
+
+            @Override
+            public boolean contains(Object o) { return o instanceof RelationshipEdge && containsEdge((RelationshipEdge)o); }
+        };
+    }
+
+    @Override
+    public int degreeOf(Vertex vertex)
+    {
+        var node = getExistingNode(vertex);
+        return node.outgoing.size() + node.incoming.size();
+    }
+
+    @Override
+    public Set<RelationshipEdge> edgesOf(Vertex vertex)
+    {
+        var node = getExistingNode(vertex);
+        var edges = new LinkedHashSet<>(node.outgoing);
+        edges.addAll(node.incoming);
+        return Collections.unmodifiableSet(edges);
+    }
+
+    @Override
+    public int inDegreeOf(Vertex vertex) { return getExistingNode(vertex).incoming.size(); }
+
+    @Override
+    public Set<RelationshipEdge> incomingEdgesOf(Vertex vertex) { return new EdgeSet(getExistingNode(vertex).incoming); }
+
+    @Override
+    public int outDegreeOf(Vertex vertex) { return getExistingNode(vertex).outgoing.size(); }
+
+    @Override
+    public Set<RelationshipEdge> outgoingEdgesOf(Vertex vertex) { return new EdgeSet(getExistingNode(vertex).outgoing); }
+
+    @Override
+    public RelationshipEdge removeEdge(Vertex sourceVertex, Vertex targetVertex)
+    {
+        var edge = getEdge(sourceVertex, targetVertex);
+        if (edge != null)
+            removeEdge(edge);
+        return edge;
+    }
+
+    @Override
+    public boolean removeEdge(RelationshipEdge edge)
+    {
+        if (!containsEdge(edge))
+            return false;
+        var source = getWritableNode(idOf(edge.getSource()));
+        source.outgoing.remove(indexOf(source.outgoing, edge));
+        var target = getWritableNode(idOf(edge.getTarget()));
+        target.incoming.remove(indexOf(target.incoming, edge));
+        edgeCount--;
+        return true;
+    }
+
+    @Override
+    public boolean removeVertex(Vertex vertex)
+    {
+        var node = getNode(vertex);
+        if (node == null)
+            return false;
+        for (var edge : new ArrayList<>(node.outgoing))
+            removeEdge(edge);
+        for (var edge : new ArrayList<>(node.incoming))
+            removeEdge(edge);
+        int id = idOf(vertex);
+        getWritableChunk(id)[id & CHUNK_MASK] = null;
+        vertexCount--;
+        return true;
+    }
+
+    @Override
+    public Set<Vertex> vertexSet()
+    {
+        return new AbstractSet<>()
+        {
+            @Override
+            public Iterator<Vertex> iterator()
+            {
+                var chunks = CopyOnWriteGraph.this.chunks;
+                return new Iterator<>()
+                {
+                    private int id = -1;
+                    private int nextId = -1;
+
+                    private int findNext()
+                    {
+                        for (var candidate = id + 1; (candidate >>> CHUNK_BITS) < chunks.length; candidate++)
+                        {
+                            var chunk = chunks[candidate >>> CHUNK_BITS];
+                            if (chunk == null)
+                            {
+                                candidate |= CHUNK_MASK;
+                                continue;
+                            }
+                            if (chunk[candidate & CHUNK_MASK] != null)
+                                return candidate;
+                        }
+                        return -1;
+                    }
+
+                    @Override
+                    public boolean hasNext()
+                    {
+                        if (nextId <= id)
+                            nextId = findNext();
+                        return nextId >= 0;
+                    }
+
+                    @Override
+                    public Vertex next()
+                    {
+                        if (!hasNext())
+                            throw new NoSuchElementException();
+                        id = nextId;
+                        return chunks[id >>> CHUNK_BITS][id & CHUNK_MASK].vertex;
+                    }
+                };
+            }
+
+            @Override
+            public int size() { return vertexCount; }
+
+            @Override
+            public boolean contains(Object o) { return o instanceof Vertex && containsVertex((Vertex)o); }
+        };
+    }
+
+    @Override
+    public Vertex getEdgeSource(RelationshipEdge edge) { return edge.getSource(); }
+
+    @Override
+    public Vertex getEdgeTarget(RelationshipEdge edge) { return edge.getTarget(); }
+
+    @Override
+    public GraphType getType() { return TYPE; }
+
+    @Override
+    public double getEdgeWeight(RelationshipEdge edge) { return DEFAULT_EDGE_WEIGHT; }
+
+    @Override
+    public void setEdgeWeight(RelationshipEdge edge, double weight)
+    {
+        throw new UnsupportedOperationException("The graph is not weighted");
+    }
+    //endregion
+}
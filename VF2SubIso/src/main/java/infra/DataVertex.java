@@ -8,6 +8,12 @@ public class DataVertex extends Vertex {
     private String vertexURI="";
 //    private final int hashValue;
 
+    // Neighbourhood signature: masks of the incident edge labels (see LabelDictionary) and the degrees.
+    // Maintained by VF2DataGraph, so it is only tracked for vertices added through VF2DataGraph.addVertex.
+    private boolean hasNeighbourhood=false;
+    private long outgoingLabels=0, incomingLabels=0;
+    private int outDegree=0, inDegree=0;
+
 
     public DataVertex(String uri, String type) {
         super(type.toLowerCase());
@@ -17,6 +23,23 @@ public class DataVertex extends Vertex {
 //        this.hashValue=vertexURI.hashCode();
     }
 
+    /**
+     * Returns a copy with the same URI, types and attributes (as new Attribute objects) but no tracked neighbourhood.
+     * The neighbourhood is tracked again once the copy is added to a VF2DataGraph.
+     */
+    public DataVertex copy() {
+        DataVertex copy=null;
+        for (String type:getTypes()) {
+            if(copy==null)
+                copy=new DataVertex(vertexURI,type);
+            else
+                copy.addTypes(type);
+        }
+        for (Attribute attr:getAllAttributesList())
+            copy.addAttribute(new Attribute(attr.getAttrName(),attr.getAttrValue()));
+        return copy;
+    }
+
     @Override
     public String toString() {
         return "vertex{" +
@@ -33,8 +56,53 @@ public class DataVertex extends Vertex {
         return vertexURI;
     }
 
+    /**
+     * Returns true if the vertex has all the incident edge labels and at least the degrees the pattern vertex requires.
+     * Always true if the neighbourhood of the vertex is not tracked.
+     */
+    public boolean hasNeighbourhoodOf(PatternVertex v) {
+        return !hasNeighbourhood ||
+                ((outgoingLabels & v.getRequiredOutgoingLabels()) == v.getRequiredOutgoingLabels() &&
+                 (incomingLabels & v.getRequiredIncomingLabels()) == v.getRequiredIncomingLabels() &&
+                 outDegree >= v.getMinOutDegree() &&
+                 inDegree >= v.getMinInDegree());
+    }
+
+    void trackNeighbourhood() {
+        hasNeighbourhood=true;
+    }
+
+    void addOutgoingEdge(int labelId) {
+        outgoingLabels|=LabelDictionary.getMask(labelId);
+        outDegree++;
+    }
+
+    void addIncomingEdge(int labelId) {
+        incomingLabels|=LabelDictionary.getMask(labelId);
+        inDegree++;
+    }
+
+    /** Recomputes the outgoing part of the signature after an edge was removed (masks cannot be decremented). */
+    void resetOutgoingEdges(Iterable<RelationshipEdge> edges) {
+        outgoingLabels=0;
+        outDegree=0;
+        for (RelationshipEdge e:edges)
+            addOutgoingEdge(e.getLabelId());
+    }
+
+    /** Recomputes the incoming part of the signature after an edge was removed (masks cannot be decremented). */
+    void resetIncomingEdges(Iterable<RelationshipEdge> edges) {
+        incomingLabels=0;
+        inDegree=0;
+        for (RelationshipEdge e:edges)
+            addIncomingEdge(e.getLabelId());
+    }
+
     @Override
     public boolean isMapped(Vertex v) {
+        // The checks against a pattern vertex are compiled by the pattern vertex
+        if (v instanceof PatternVertex)
+            return v.isMapped(this);
         if (!super.getTypes().containsAll(v.getTypes()))
             return false;
         if(!super.getAllAttributesNames().containsAll(v.getAllAttributesNames()))
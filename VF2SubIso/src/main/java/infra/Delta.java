@@ -9,11 +9,25 @@ public class Delta {
     private Period max;
     private Duration granularity;
 
+    // min and max in days, computed once so that OptBatchTED does not need Period arithmetic
+    private long minDays;
+    private long maxDays;
+
     public Delta(Period min, Period max, Duration granularity)
     {
         this.min=min;
         this.max=max;
         this.granularity=granularity;
+        this.minDays=toDays(min);
+        this.maxDays=toDays(max);
+    }
+
+    // Periods with months or years can only be approximated in days
+    private static long toDays(Period period)
+    {
+        if(period.getYears()==0 && period.getMonths()==0)
+            return period.getDays();
+        return Math.round(Interval.approxDaysFromPeriod(period));
     }
 
     public Period getMax() {
@@ -28,6 +42,20 @@ public class Delta {
         return granularity;
     }
 
+    /**
+     * Returns min in days. Months and years are approximated (see Interval.approxDaysFromPeriod) and rounded,
+     * e.g. a year is 365 days, so near the bounds the result can differ from Interval.inDelta(Period, Period),
+     * which NaiveBatchTED uses as the reference.
+     */
+    public long getMinDays() {
+        return minDays;
+    }
+
+    /** Returns max in days (approximated like getMinDays). */
+    public long getMaxDays() {
+        return maxDays;
+    }
+
 
     @Override
     public String toString() {
@@ -0,0 +1,378 @@
+package infra;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Disk-backed store of matches keyed by their signature.
+ *
+ * Matches are appended to segment files and only an index from signature to the record's
+ * location and length is kept in memory. Records are read through memory-mapped segments. Replacing or
+ * removing a match leaves a dead record behind; a segment is deleted once all its records are dead.
+ *
+ * Record format: [int length][Match.writeTo bytes].
+ */
+final class DiskMatchStore implements Closeable, Iterable<Match>
+{
+    //region --[Classes: Private]--------------------------------------
+    /** An append-only segment file. */
+    private static final class Segment
+    {
+        /** Path of the segment file. */
+        public final Path path;
+        /** Channel used to append to and map the file. */
+        public final FileChannel channel;
+        /** Number of bytes written to the file. */
+        public long size = 0;
+        /** Number of bytes of records that are still referenced by the index. */
+        public long liveBytes = 0;
+        /** Read-only mapping of the file, remapped when it no longer covers size. */
+        public MappedByteBuffer mapped = null;
+
+        public Segment(Path path) throws IOException
+        {
+            this.path = path;
+            this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        /** Returns true if the file is closed and deleted. */
+        public boolean isDeleted() { return !channel.isOpen(); }
+
+        /** Closes and deletes the file. */
+        public void delete() throws IOException
+        {
+            mapped = null;
+            channel.close();
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /** Location and length of a record. */
+    private static final class Record
+    {
+        /** Index of the record's segment. */
+        public final int segmentIndex;
+        /** Offset of the record in its segment. */
+        public final int offset;
+        /** Length of the record including its length prefix. */
+        public final int length;
+
+        public Record(int segmentIndex, int offset, int length)
+        {
+            this.segmentIndex = segmentIndex;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        /** Orders records by segment and offset, i.e. in file order. */
+        public static int compareLocation(Record r1, Record r2)
+        {
+            var comparison = Integer.compare(r1.segmentIndex, r2.segmentIndex);
+            return comparison != 0 ? comparison : Integer.compare(r1.offset, r2.offset);
+        }
+    }
+    //endregion
+
+    //region --[Fields: Private]---------------------------------------
+    /** Default maximum size of a segment file. */
+    private static final long DEFAULT_SEGMENT_SIZE = 64L << 20;
+
+    /** Size of the buffer for appends to the active segment. */
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    /** Directory containing the segment files (created by and owned by this store). */
+    private final Path directory;
+
+    /** Maximum size of a segment file before a new one is started. */
+    private final long segmentSize;
+
+    /** Temporal graph of the stored matches. */
+    private final TemporalGraph<Vertex> temporalGraph;
+
+    /** Pattern graph of the stored matches. */
+    private final VF2PatternGraph pattern;
+
+    /**
+     * Map from signature to record. The length is kept with the location so that a record is released
+     * without being read back (which would flush the write buffer when it is in the active segment).
+     */
+    private final HashMap<String, Record> index = new HashMap<>();
+
+    /** Segment files in creation order, the last is the active segment. */
+    private final ArrayList<Segment> segments = new ArrayList<>();
+
+    /** Pending appends to the active segment. */
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+
+    /** Reusable buffer to encode a record. */
+    private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+
+    /** Stream over recordBytes. */
+    private final DataOutputStream recordOut = new DataOutputStream(recordBytes);
+    //endregion
+
+    //region --[Constructors]------------------------------------------
+    /**
+     * Creates a DiskMatchStore in a new directory under the parent directory.
+     * @param parentDirectory Directory in which the store's directory is created.
+     * @param temporalGraph Temporal graph of the stored matches.
+     * @param pattern Pattern graph of the stored matches.
+     */
+    public DiskMatchStore(Path parentDirectory, TemporalGraph<Vertex> temporalGraph, VF2PatternGraph pattern)
+    {
+        this(parentDirectory, temporalGraph, pattern, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Creates a DiskMatchStore in a new directory under the parent directory.
+     * @param parentDirectory Directory in which the store's directory is created.
+     * @param temporalGraph Temporal graph of the stored matches.
+     * @param pattern Pattern graph of the stored matches.
+     * @param segmentSize Maximum size of a segment file (at most 2GB).
+     */
+    public DiskMatchStore(
+        Path parentDirectory,
+        TemporalGraph<Vertex> temporalGraph,
+        VF2PatternGraph pattern,
+        long segmentSize)
+    {
+        if (segmentSize <= 0 || segmentSize > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("segmentSize must be in (0, 2GB]");
+
+        this.temporalGraph = temporalGraph;
+        this.pattern = pattern;
+        this.segmentSize = segmentSize;
+        try
+        {
+            Files.createDirectories(parentDirectory);
+            this.directory = Files.createTempDirectory(parentDirectory, "matches");
+            this.directory.toFile().deleteOnExit();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+    //endregion
+
+    //region --[Methods: Private]--------------------------------------
+    /** Starts a new active segment. */
+    private Segment newSegment() throws IOException
+    {
+        flush();
+        var path = directory.resolve(String.format("segment-%06d.bin", segments.size()));
+        var segment = new Segment(path);
+        path.toFile().deleteOnExit();
+        segments.add(segment);
+        return segment;
+    }
+
+    /** Writes pending appends to the active segment. */
+    private void flush() throws IOException
+    {
+        if (writeBuffer.position() == 0)
+            return;
+
+        var active = segments.get(segments.size() - 1);
+        writeBuffer.flip();
+        var position = active.size - writeBuffer.remaining();
+        while (writeBuffer.hasRemaining())
+            position += active.channel.write(writeBuffer, position);
+        writeBuffer.clear();
+    }
+
+    /** Returns a read-only buffer of the segment positioned at the offset. */
+    private ByteBuffer read(int segmentIndex, int offset) throws IOException
+    {
+        var segment = segments.get(segmentIndex);
+        if (segmentIndex == segments.size() - 1)
+            flush();
+        if (segment.mapped == null || segment.mapped.capacity() < segment.size)
+            segment.mapped = segment.channel.map(FileChannel.MapMode.READ_ONLY, 0, segment.size);
+
+        var buffer = segment.mapped.duplicate();
+        buffer.position(offset);
+        return buffer;
+    }
+
+    /** Decodes the record. */
+    private Match decode(Record record)
+    {
+        try
+        {
+            var buffer = read(record.segmentIndex, record.offset);
+            buffer.getInt();
+            return Match.readFrom(buffer, temporalGraph, pattern);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Marks the record as dead and deletes its segment if it has no live records. */
+    private void release(Record record)
+    {
+        var segment = segments.get(record.segmentIndex);
+        segment.liveBytes -= record.length;
+        if (segment.liveBytes > 0 || record.segmentIndex == segments.size() - 1)
+            return;
+
+        try
+        {
+            segment.delete();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+    //endregion
+
+    //region --[Methods: Public]---------------------------------------
+    /**
+     * Stores the match, replacing any match with the same signature.
+     * @param signature Signature of the match.
+     * @param match Match to store.
+     */
+    public void put(String signature, Match match)
+    {
+        try
+        {
+            recordBytes.reset();
+            match.writeTo(recordOut);
+            recordOut.flush();
+            var recordSize = Integer.BYTES + recordBytes.size();
+
+            var active = segments.isEmpty() ? newSegment() : segments.get(segments.size() - 1);
+            if (active.size > 0 && active.size + recordSize > segmentSize)
+                active = newSegment();
+            if (recordSize > writeBuffer.remaining())
+                flush();
+
+            var record = new Record(segments.size() - 1, (int)active.size, recordSize);
+            if (recordSize > writeBuffer.capacity())
+            {
+                // Record is larger than the write buffer so write it directly.
+                var bytes = ByteBuffer.allocate(recordSize);
+                bytes.putInt(recordBytes.size());
+                bytes.put(recordBytes.toByteArray());
+                bytes.flip();
+                var position = active.size;
+                while (bytes.hasRemaining())
+                    position += active.channel.write(bytes, position);
+            }
+            else
+            {
+                writeBuffer.putInt(recordBytes.size());
+                writeBuffer.put(recordBytes.toByteArray());
+            }
+            active.size += recordSize;
+            active.liveBytes += recordSize;
+
+            var previous = index.put(signature, record);
+            if (previous != null)
+                release(previous);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Gets a match without removing it from the store.
+     * @param signature Signature of the match.
+     * @return The match or null if it is not stored.
+     */
+    public Match get(String signature)
+    {
+        var record = index.get(signature);
+        return record == null ? null : decode(record);
+    }
+
+    /**
+     * Removes a match from the store.
+     * @param signature Signature of the match.
+     * @return The removed match or null if it is not stored.
+     */
+    public Match remove(String signature)
+    {
+        var record = index.remove(signature);
+        if (record == null)
+            return null;
+
+        var match = decode(record);
+        release(record);
+        return match;
+    }
+
+    /** Returns true if a match with the signature is stored. */
+    public boolean contains(String signature) { return index.containsKey(signature); }
+
+    /** Gets the number of stored matches. */
+    public int size() { return index.size(); }
+
+    /** Gets the signatures of the stored matches (live view). */
+    public Set<String> signatures() { return index.keySet(); }
+
+    /**
+     * Returns an iterator that decodes the stored matches in file order.
+     * The iterator must not be used after the store is modified.
+     */
+    @Override
+    public Iterator<Match> iterator()
+    {
+        var records = index.values().toArray(new Record[0]);
+        // Sorting by location gives sequential reads over the segment files.
+        Arrays.sort(records, Record::compareLocation);
+
+        return new Iterator<>()
+        {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() { return next < records.length; }
+
+            @Override
+            public Match next()
+            {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return decode(records[next++]);
+            }
+        };
+    }
+
+    /** Deletes the segment files and the store's directory. */
+    @Override
+    public void close() throws IOException
+    {
+        writeBuffer.clear();
+        for (var segment : segments)
+        {
+            if (!segment.isDeleted())
+                segment.delete();
+        }
+        segments.clear();
+        index.clear();
+        Files.deleteIfExists(directory);
+    }
+    //endregion
+}
@@ -0,0 +1,460 @@
+package infra;
+
+import org.jgrapht.Graph;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Statistics of a data graph used to estimate the selectivity of pattern vertices and edges.
+ *
+ * Attribute value histograms are bounded: at most MAX_TRACKED_VALUES distinct values are counted per
+ * (type, attribute) and the remaining values are summarized by a single overflow count.
+ * Degree distributions are histograms with power of two buckets: bucket i counts the vertices whose
+ * degree d satisfies 2^(i-1) <= d < 2^i (bucket 0 counts the vertices with degree 0).
+ *
+ * The statistics are built by the loaders, kept up to date by VF2DataGraph when changes are applied
+ * and can be saved next to the snapshot they describe. A saved file records the source it was computed from
+ * (see GraphLoader) so that it is only reused for the same snapshot loaded the same way.
+ */
+public class GraphStatistics
+{
+    //region --[Classes: Private]--------------------------------------
+    /** Statistics of an attribute of a vertex type. */
+    private static class AttributeStatistics
+    {
+        /** Number of vertices of the type with the attribute. */
+        public int count = 0;
+        /** Number of vertices per attribute value (bounded by MAX_TRACKED_VALUES). */
+        public final HashMap<String, Integer> countByValue = new HashMap<>();
+        /** Number of vertices whose value is not tracked in countByValue. */
+        public int overflowCount = 0;
+    }
+    //endregion
+
+    //region --[Fields: Private]---------------------------------------
+    /** Maximum number of distinct values tracked per (type, attribute). */
+    private static final int MAX_TRACKED_VALUES = 1024;
+
+    /** Number of degree histogram buckets (one per bit of an int degree plus degree 0). */
+    private static final int DEGREE_BUCKETS = Integer.SIZE;
+
+    /** Identifies a saved statistics file. */
+    private static final int FILE_MAGIC = 0x54474653;
+
+    /** Version of the saved statistics file format. */
+    private static final int FILE_VERSION = 2;
+
+    /** Extension of a statistics file saved next to its snapshot. */
+    private static final String FILE_EXTENSION = ".stats";
+
+    /** Attributes that are unique per vertex and not worth a histogram. */
+    private static final String URI_ATTRIBUTE = "uri";
+
+    /** Description of the data the statistics were computed from (empty if unknown). */
+    private String source = "";
+
+    /** Total number of vertices. */
+    private int vertexCount = 0;
+
+    /** Total number of edges. */
+    private int edgeCount = 0;
+
+    /** Number of vertices per type. */
+    private HashMap<String, Integer> vertexCountByType = new HashMap<>();
+
+    /** Number of edges per label. */
+    private HashMap<String, Integer> edgeCountByLabel = new HashMap<>();
+
+    /** Number of edges per (source type, label, target type), keyed by tripleKey. */
+    private HashMap<String, Integer> edgeCountByTriple = new HashMap<>();
+
+    /** Attribute statistics per type and attribute name. */
+    private HashMap<String, HashMap<String, AttributeStatistics>> attributesByType = new HashMap<>();
+
+    /** Number of vertices per out-degree bucket. */
+    private int[] outDegreeHistogram = new int[DEGREE_BUCKETS];
+
+    /** Number of vertices per in-degree bucket. */
+    private int[] inDegreeHistogram = new int[DEGREE_BUCKETS];
+    //endregion
+
+    //region --[Methods: Private]--------------------------------------
+    /** Gets the statistics of an attribute of a type, or null if no vertex of the type has the attribute. */
+    private AttributeStatistics getAttributeStatistics(String type, String attributeName)
+    {
+        var attributes = attributesByType.get(type);
+        return attributes == null ? null : attributes.get(attributeName);
+    }
+
+    /** Gets the key of a (source type, label, target type) triple. */
+    private static String tripleKey(String sourceType, String label, String targetType)
+    {
+        return sourceType + '\t' + label + '\t' + targetType;
+    }
+
+    /** Gets the histogram bucket of a degree. */
+    private static int degreeBucket(int degree)
+    {
+        return Integer.SIZE - Integer.numberOfLeadingZeros(degree);
+    }
+
+    /** Moves a vertex from the bucket of its previous degree to the bucket of its degree. */
+    private static void moveDegree(int[] histogram, int previousDegree, int degree)
+    {
+        histogram[degreeBucket(previousDegree)]--;
+        histogram[degreeBucket(degree)]++;
+    }
+
+    /** Adds (delta = 1) or removes (delta = -1) an attribute value of a type. */
+    private void countAttribute(String type, Attribute attribute, int delta)
+    {
+        var attributes = attributesByType.computeIfAbsent(type, k -> new HashMap<>());
+        var attributeStatistics = attributes.computeIfAbsent(attribute.getAttrName(), k -> new AttributeStatistics());
+        attributeStatistics.count += delta;
+        if (attribute.getAttrName().equals(URI_ATTRIBUTE))
+            return;
+
+        var value = attribute.getAttrValue();
+        var count = attributeStatistics.countByValue.get(value);
+        if (count != null)
+        {
+            if (count + delta > 0)
+                attributeStatistics.countByValue.put(value, count + delta);
+            else
+                attributeStatistics.countByValue.remove(value);
+        }
+        else if (delta > 0 && attributeStatistics.countByValue.size() < MAX_TRACKED_VALUES)
+            attributeStatistics.countByValue.put(value, delta);
+        else
+            attributeStatistics.overflowCount = Math.max(0, attributeStatistics.overflowCount + delta);
+    }
+
+    /** Adds (delta = 1) or removes (delta = -1) an edge from the label and triple counts. */
+    private void countEdge(RelationshipEdge edge, int delta)
+    {
+        edgeCount += delta;
+        edgeCountByLabel.merge(edge.getLabel(), delta, Integer::sum);
+        for (var sourceType : edge.getSource().getTypes())
+        {
+            for (var targetType : edge.getTarget().getTypes())
+                edgeCountByTriple.merge(tripleKey(sourceType, edge.getLabel(), targetType), delta, Integer::sum);
+        }
+    }
+
+    /** Writes a map of counts. */
+    private static void writeCounts(DataOutputStream out, Map<String, Integer> counts) throws IOException
+    {
+        out.writeInt(counts.size());
+        for (var entry : counts.entrySet())
+        {
+            Match.writeString(out, entry.getKey());
+            out.writeInt(entry.getValue());
+        }
+    }
+
+    /** Reads a map of counts written by writeCounts. */
+    private static HashMap<String, Integer> readCounts(ByteBuffer in)
+    {
+        var size = in.getInt();
+        var counts = new HashMap<String, Integer>(size * 2);
+        for (int i = 0; i < size; i++)
+            counts.put(Match.readString(in), in.getInt());
+        return counts;
+    }
+    //endregion
+
+    //region --[Methods: Public]---------------------------------------
+    /**
+     * Computes the statistics of a graph with a single scan.
+     * @param graph Data graph.
+     */
+    public static GraphStatistics fromGraph(Graph<Vertex, RelationshipEdge> graph)
+    {
+        var statistics = new GraphStatistics();
+        for (var vertex : graph.vertexSet())
+        {
+            statistics.addVertex(vertex);
+            moveDegree(statistics.outDegreeHistogram, 0, graph.outDegreeOf(vertex));
+            moveDegree(statistics.inDegreeHistogram, 0, graph.inDegreeOf(vertex));
+        }
+        for (var edge : graph.edgeSet())
+            statistics.countEdge(edge, 1);
+        return statistics;
+    }
+
+    /** Returns a copy that can be updated independently (e.g. for a fork of the graph). */
+    public GraphStatistics copy()
+    {
+        var copy = new GraphStatistics();
+        copy.source = source;
+        copy.vertexCount = vertexCount;
+        copy.edgeCount = edgeCount;
+        copy.vertexCountByType = new HashMap<>(vertexCountByType);
+        copy.edgeCountByLabel = new HashMap<>(edgeCountByLabel);
+        copy.edgeCountByTriple = new HashMap<>(edgeCountByTriple);
+        for (var typeEntry : attributesByType.entrySet())
+        {
+            var attributes = new HashMap<String, AttributeStatistics>();
+            for (var entry : typeEntry.getValue().entrySet())
+            {
+                var attributeStatistics = new AttributeStatistics();
+                attributeStatistics.count = entry.getValue().count;
+                attributeStatistics.countByValue.putAll(entry.getValue().countByValue);
+                attributeStatistics.overflowCount = entry.getValue().overflowCount;
+                attributes.put(entry.getKey(), attributeStatistics);
+            }
+            copy.attributesByType.put(typeEntry.getKey(), attributes);
+        }
+        copy.outDegreeHistogram = outDegreeHistogram.clone();
+        copy.inDegreeHistogram = inDegreeHistogram.clone();
+        return copy;
+    }
+
+    /**
+     * Loads statistics saved with save.
+     * @param path Path of the statistics file.
+     */
+    public static GraphStatistics load(Path path)
+    {
+        try
+        {
+            var in = ByteBuffer.wrap(Files.readAllBytes(path));
+            if (in.getInt() != FILE_MAGIC)
+                throw new IllegalArgumentException("Not a statistics file: " + path);
+            var version = in.getInt();
+            if (version != FILE_VERSION)
+                throw new IllegalArgumentException("Unsupported statistics file version " + version + ": " + path);
+
+            var statistics = new GraphStatistics();
+            statistics.source = Match.readString(in);
+            statistics.vertexCount = in.getInt();
+            statistics.edgeCount = in.getInt();
+            statistics.vertexCountByType = readCounts(in);
+            statistics.edgeCountByLabel = readCounts(in);
+            statistics.edgeCountByTriple = readCounts(in);
+
+            var typeCount = in.getInt();
+            for (int i = 0; i < typeCount; i++)
+            {
+                var attributes = new HashMap<String, AttributeStatistics>();
+                statistics.attributesByType.put(Match.readString(in), attributes);
+                var attributeCount = in.getInt();
+                for (int j = 0; j < attributeCount; j++)
+                {
+                    var attributeStatistics = new AttributeStatistics();
+                    attributes.put(Match.readString(in), attributeStatistics);
+                    attributeStatistics.count = in.getInt();
+                    attributeStatistics.overflowCount = in.getInt();
+                    attributeStatistics.countByValue.putAll(readCounts(in));
+                }
+            }
+
+            for (int i = 0; i < DEGREE_BUCKETS; i++)
+                statistics.outDegreeHistogram[i] = in.getInt();
+            for (int i = 0; i < DEGREE_BUCKETS; i++)
+                statistics.inDegreeHistogram[i] = in.getInt();
+            return statistics;
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Gets the path of the statistics file saved next to a snapshot.
+     * @param snapshotPath Path of the snapshot file.
+     */
+    public static Path getPathFor(String snapshotPath)
+    {
+        return Paths.get(snapshotPath + FILE_EXTENSION);
+    }
+
+    /**
+     * Saves the statistics.
+     * @param path Path of the statistics file.
+     */
+    public void save(Path path)
+    {
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path))))
+        {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            Match.writeString(out, source);
+            out.writeInt(vertexCount);
+            out.writeInt(edgeCount);
+            writeCounts(out, vertexCountByType);
+            writeCounts(out, edgeCountByLabel);
+            writeCounts(out, edgeCountByTriple);
+
+            out.writeInt(attributesByType.size());
+            for (var typeEntry : attributesByType.entrySet())
+            {
+                Match.writeString(out, typeEntry.getKey());
+                out.writeInt(typeEntry.getValue().size());
+                for (var attributeEntry : typeEntry.getValue().entrySet())
+                {
+                    var attributeStatistics = attributeEntry.getValue();
+                    Match.writeString(out, attributeEntry.getKey());
+                    out.writeInt(attributeStatistics.count);
+                    out.writeInt(attributeStatistics.overflowCount);
+                    writeCounts(out, attributeStatistics.countByValue);
+                }
+            }
+
+            for (var count : outDegreeHistogram)
+                out.writeInt(count);
+            for (var count : inDegreeHistogram)
+                out.writeInt(count);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Adds a vertex without edges and its attributes to the statistics. */
+    public void addVertex(Vertex vertex)
+    {
+        vertexCount++;
+        outDegreeHistogram[0]++;
+        inDegreeHistogram[0]++;
+        for (var type : vertex.getTypes())
+        {
+            vertexCountByType.merge(type, 1, Integer::sum);
+            for (var attribute : vertex.getAllAttributesList())
+                countAttribute(type, attribute, 1);
+        }
+    }
+
+    /**
+     * Adds an edge to the statistics.
+     * @param edge Edge that was added.
+     * @param sourceOutDegree Out-degree of the edge's source after the edge was added.
+     * @param targetInDegree In-degree of the edge's target after the edge was added.
+     */
+    public void addEdge(RelationshipEdge edge, int sourceOutDegree, int targetInDegree)
+    {
+        countEdge(edge, 1);
+        moveDegree(outDegreeHistogram, sourceOutDegree - 1, sourceOutDegree);
+        moveDegree(inDegreeHistogram, targetInDegree - 1, targetInDegree);
+    }
+
+    /**
+     * Removes an edge from the statistics.
+     * @param edge Edge that was removed.
+     * @param sourceOutDegree Out-degree of the edge's source after the edge was removed.
+     * @param targetInDegree In-degree of the edge's target after the edge was removed.
+     */
+    public void removeEdge(RelationshipEdge edge, int sourceOutDegree, int targetInDegree)
+    {
+        countEdge(edge, -1);
+        moveDegree(outDegreeHistogram, sourceOutDegree + 1, sourceOutDegree);
+        moveDegree(inDegreeHistogram, targetInDegree + 1, targetInDegree);
+    }
+
+    /**
+     * Adds an attribute of a vertex to the statistics.
+     * @param vertex Vertex of the attribute.
+     * @param attribute Attribute that was added.
+     */
+    public void addAttribute(Vertex vertex, Attribute attribute)
+    {
+        for (var type : vertex.getTypes())
+            countAttribute(type, attribute, 1);
+    }
+
+    /**
+     * Removes an attribute of a vertex from the statistics.
+     * @param vertex Vertex of the attribute.
+     * @param attribute Attribute that was removed (with the value it had).
+     */
+    public void removeAttribute(Vertex vertex, Attribute attribute)
+    {
+        for (var type : vertex.getTypes())
+            countAttribute(type, attribute, -1);
+    }
+
+    /**
+     * Estimates the fraction of vertices of the type that have the attribute.
+     * @param type Vertex type.
+     * @param attributeName Attribute name.
+     */
+    public double getAttributeSelectivity(String type, String attributeName)
+    {
+        var typeCount = getVertexCount(type);
+        if (typeCount == 0)
+            return 0;
+
+        var attributeStatistics = getAttributeStatistics(type, attributeName);
+        return attributeStatistics == null ? 0 : (double)attributeStatistics.count / typeCount;
+    }
+
+    /**
+     * Estimates the fraction of vertices of the type that have the attribute with the value.
+     * @param type Vertex type.
+     * @param attributeName Attribute name.
+     * @param value Attribute value.
+     */
+    public double getValueSelectivity(String type, String attributeName, String value)
+    {
+        var typeCount = getVertexCount(type);
+        var attributeStatistics = getAttributeStatistics(type, attributeName);
+        if (typeCount == 0 || attributeStatistics == null)
+            return 0;
+
+        if (attributeName.equals(URI_ATTRIBUTE))
+            return 1.0 / typeCount;
+
+        var count = attributeStatistics.countByValue.get(value);
+        if (count != null)
+            return (double)count / typeCount;
+        if (attributeStatistics.overflowCount == 0)
+            return 0;
+
+        // Assume untracked values are spread evenly over at least as many values as are tracked.
+        return (double)attributeStatistics.overflowCount / typeCount / MAX_TRACKED_VALUES;
+    }
+    //endregion
+
+    //region --[Properties: Public]------------------------------------
+    /** Gets the description of the data the statistics were computed from (empty if unknown). */
+    public String getSource() { return source; }
+
+    /** Sets the description of the data the statistics were computed from. */
+    public void setSource(String source) { this.source = source; }
+
+    /** Gets the total number of vertices. */
+    public int getVertexCount() { return vertexCount; }
+
+    /** Gets the total number of edges. */
+    public int getEdgeCount() { return edgeCount; }
+
+    /** Gets the number of vertices of the type. */
+    public int getVertexCount(String type) { return vertexCountByType.getOrDefault(type, 0); }
+
+    /** Gets the number of edges with the label. */
+    public int getEdgeCount(String label) { return edgeCountByLabel.getOrDefault(label, 0); }
+
+    /** Gets the number of edges with the label from a vertex of the source type to a vertex of the target type. */
+    public int getEdgeCount(String sourceType, String label, String targetType)
+    {
+        return edgeCountByTriple.getOrDefault(tripleKey(sourceType, label, targetType), 0);
+    }
+
+    /** Gets a copy of the out-degree histogram (see the class comment for the buckets). */
+    public int[] getOutDegreeHistogram() { return outDegreeHistogram.clone(); }
+
+    /** Gets a copy of the in-degree histogram (see the class comment for the buckets). */
+    public int[] getInDegreeHistogram() { return inDegreeHistogram.clone(); }
+    //endregion
+}
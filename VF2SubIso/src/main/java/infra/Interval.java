@@ -6,13 +6,21 @@ import java.time.Period;
 
 /**
  * Represents an interval.
+ *
+ * The start and end are stored as epoch days so that containment, intersection and delta
+ * checks are plain integer comparisons. The static methods operate on intervals packed
+ * into a long (start in the high 32 bits, end in the low 32 bits) for callers that store
+ * intervals in primitive arrays.
  */
 public class Interval {
     //region --[Fields: Private]---------------------------------------
-    // Start of the interval.
-    private LocalDate start;
-    // End of the interval.
-    private LocalDate end;
+    /** Number of seconds in a day. */
+    private static final long SECONDS_PER_DAY = 86400L;
+
+    // Start of the interval in epoch days.
+    private int start;
+    // End of the interval in epoch days.
+    private int end;
     //endregion
 
     //region --[Constructors]------------------------------------------
@@ -23,14 +31,24 @@ public class Interval {
      */
     public Interval(LocalDate start, LocalDate end)
     {
-        this.start = start;
-        this.end = end;
+        this((int)start.toEpochDay(), (int)end.toEpochDay());
+    }
+
+    /**
+     * Creates an interval.
+     * @param startDay Start of the interval in epoch days.
+     * @param endDay   End of the interval in epoch days.
+     */
+    public Interval(int startDay, int endDay)
+    {
+        this.start = startDay;
+        this.end = endDay;
     }
     //endregion
 
     //region --[Methods: Private]--------------------------------------
     /** Returns approximate number of days in a period */
-    private static double approxDaysFromPeriod(Period period) {
+    static double approxDaysFromPeriod(Period period) {
         if (period == null) {
             return 0d;
         }
@@ -43,23 +61,23 @@ public class Interval {
      * Returns true if timepoint within the interval (start and end inclusive).
      */
     public boolean contains(LocalDate timepoint) {
-        return
-            (timepoint.isEqual(start) || timepoint.isAfter(start)) &&
-            (timepoint.isEqual(end)   || timepoint.isBefore(end));
+        return contains((int)timepoint.toEpochDay());
+    }
+
+    /**
+     * Returns true if the epoch day is within the interval (start and end inclusive).
+     */
+    public boolean contains(int epochDay) {
+        return start <= epochDay && epochDay <= end;
     }
 
     /**
      * Returns true if the other interval intersects with the interval (inclusive).
      */
     public boolean intersects(Interval other) {
-        if(other.getStart().isAfter(end) || other.getStart().equals(end)
-                || other.end.isBefore(start) || other.end.equals(start))
-            return false;
-        else
-            return true;
+        return intersects(start, end, other.start, other.end);
     }
 
-
     /**
      * Returns true if interval within delta, otherwise, returns false.
      * @param min Minimum timespan of delta.
@@ -68,11 +86,21 @@ public class Interval {
      */
     public boolean inDelta(Duration min, Duration max)
     {
-        var between = Duration.between(
-            start.atStartOfDay(),
-            end.atStartOfDay());
-        return between.compareTo(min) >= 0 && // min <= between
-               between.compareTo(max) <= 0;   // between <= max
+        long between = end - start;
+        return compareDays(between, min) >= 0 && // min <= between
+               compareDays(between, max) <= 0;   // between <= max
+    }
+
+    /**
+     * Returns true if interval within delta, otherwise, returns false.
+     * @param minDays Minimum timespan of delta in days.
+     * @param maxDays Maximum timespan of delta in days.
+     * @return minDays <= (end - start) <= maxDays
+     */
+    public boolean inDelta(long minDays, long maxDays)
+    {
+        long between = end - start;
+        return minDays <= between && between <= maxDays;
     }
 
     /**
@@ -83,7 +111,7 @@ public class Interval {
      */
     public boolean inDelta(Period min, Period max)
     {
-        var between = Period.between(start, end);
+        var between = Period.between(getStart(), getEnd());
         if (min.getDays() > 0 || max.getDays() > 0)
         {
             // Period does not have a compareTo method because Period cannot be accurately compared
@@ -103,6 +131,57 @@ public class Interval {
                 );
         }
     }
+
+    /**
+     * Compares a number of days to a duration without allocating.
+     * @return negative, zero, or positive if days is less than, equal to, or greater than the duration.
+     */
+    public static int compareDays(long days, Duration duration)
+    {
+        var comparison = Long.compare(days * SECONDS_PER_DAY, duration.getSeconds());
+        if (comparison == 0 && duration.getNano() > 0)
+            return -1;
+        return comparison;
+    }
+
+    /**
+     * Returns true if the intervals [start1, end1] and [start2, end2] intersect.
+     * Intervals that only touch at an endpoint do not intersect.
+     */
+    public static boolean intersects(int start1, int end1, int start2, int end2)
+    {
+        return start2 < end1 && end2 > start1;
+    }
+
+    /** Packs an interval of epoch days into a long. */
+    public static long pack(int startDay, int endDay)
+    {
+        return ((long)startDay << 32) | (endDay & 0xFFFFFFFFL);
+    }
+
+    /** Gets the start in epoch days of a packed interval. */
+    public static int startOf(long packed)
+    {
+        return (int)(packed >> 32);
+    }
+
+    /** Gets the end in epoch days of a packed interval. */
+    public static int endOf(long packed)
+    {
+        return (int)packed;
+    }
+
+    /** Returns the packed interval with its end replaced. */
+    public static long withEnd(long packed, int endDay)
+    {
+        return (packed & 0xFFFFFFFF00000000L) | (endDay & 0xFFFFFFFFL);
+    }
+
+    /** Returns true if the epoch day is within the packed interval (start and end inclusive). */
+    public static boolean contains(long packed, int epochDay)
+    {
+        return startOf(packed) <= epochDay && epochDay <= endOf(packed);
+    }
     //endregion
 
     //region --[Properties: Public]------------------------------------
@@ -110,6 +189,13 @@ public class Interval {
      * Returns the start of the interval.
      */
     public LocalDate getStart() {
+        return LocalDate.ofEpochDay(this.start);
+    }
+
+    /**
+     * Returns the start of the interval in epoch days.
+     */
+    public int getStartDay() {
         return this.start;
     }
 
@@ -117,13 +203,20 @@ public class Interval {
      * Sets the start of the interval
      */
     public void setStart(LocalDate start) {
-        this.start = start;
+        this.start = (int)start.toEpochDay();
     }
 
     /**
      * Returns the end of the interval.
      */
     public LocalDate getEnd() {
+        return LocalDate.ofEpochDay(this.end);
+    }
+
+    /**
+     * Returns the end of the interval in epoch days.
+     */
+    public int getEndDay() {
         return this.end;
     }
 
@@ -131,7 +224,14 @@ public class Interval {
      * Sets the end of the interval
      */
     public void setEnd(LocalDate end) {
-        this.end = end;
+        this.end = (int)end.toEpochDay();
+    }
+
+    /**
+     * Sets the end of the interval in epoch days.
+     */
+    public void setEndDay(int endDay) {
+        this.end = endDay;
     }
     //endregion
 
@@ -139,8 +239,8 @@ public class Interval {
     @Override
     public String toString() {
         return "Interval{" +
-                "start=" + start +
-                ", end=" + end +
+                "start=" + getStart() +
+                ", end=" + getEnd() +
                 '}';
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,78 @@
+package infra;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns a dense int id to each edge label so label sets can be stored as bitmasks.
+ *
+ * A label set is a long where label id i sets bit (i mod 64). Labels that share a bit are
+ * indistinguishable in a mask, so a mask test can only rule out a vertex, never confirm it.
+ */
+public final class LabelDictionary
+{
+    //region --[Fields: Public]----------------------------------------
+    /** Label of an edge that matches an edge with any label. */
+    public static final String WILDCARD = "*";
+
+    /** Id of the wildcard label (no other label has a negative id). */
+    public static final int WILDCARD_ID = -1;
+    //endregion
+
+    //region --[Fields: Private]---------------------------------------
+    /** Ids of the labels seen so far. */
+    private static final ConcurrentHashMap<String, Integer> idsByLabel = new ConcurrentHashMap<>();
+    //endregion
+
+    //region --[Constructors]------------------------------------------
+    private LabelDictionary() { }
+    //endregion
+
+    //region --[Methods: Public]---------------------------------------
+    /**
+     * Gets the id of a label, assigning the next id if the label is new.
+     * @param label Edge label.
+     * @return The id of the label or WILDCARD_ID for the wildcard label.
+     */
+    public static int getId(String label)
+    {
+        if (label.equals(WILDCARD))
+            return WILDCARD_ID;
+
+        var id = idsByLabel.get(label);
+        if (id != null)
+            return id;
+        synchronized (idsByLabel)
+        {
+            return idsByLabel.computeIfAbsent(label, k -> idsByLabel.size());
+        }
+    }
+
+    /**
+     * Gets the mask bit of a label, or 0 for the wildcard label.
+     * @param label Edge label.
+     */
+    public static long getMask(String label)
+    {
+        return getMask(getId(label));
+    }
+
+    /**
+     * Gets the mask bit of a label id, or 0 for the wildcard id.
+     * @param id Label id.
+     */
+    public static long getMask(int id)
+    {
+        return id == WILDCARD_ID ? 0 : 1L << (id & (Long.SIZE - 1));
+    }
+
+    /**
+     * Returns true if edges with the label ids can be mapped to each other.
+     * @param id1 Label id of the first edge.
+     * @param id2 Label id of the second edge.
+     */
+    public static boolean isCompatible(int id1, int id2)
+    {
+        return id1 == id2 || id1 == WILDCARD_ID || id2 == WILDCARD_ID;
+    }
+    //endregion
+}
@@ -2,9 +2,14 @@ package infra;
 
 import org.jgrapht.GraphMapping;
 
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 
@@ -15,10 +20,16 @@ import java.util.List;
 public final class Match {
     //region --[Fields: Private]---------------------------------------
     /** Intervals where the match exists. */
-    private List<Interval> intervals;
+    private Timeline timeline;
 
-    /** Graph mapping from pattern graph to match graph. */
-    private GraphMapping<Vertex, RelationshipEdge> mapping;
+    /** Pattern graph of the match. */
+    private VF2PatternGraph pattern;
+
+    /** TemporalGraph ids of the matched data vertices indexed by pattern vertex ordinal. */
+    private int[] vertexIds;
+
+    /** Timestamp (epoch day) at which the vertices of the mapping are retrieved from the TemporalGraph. */
+    private int mappingEpochDay;
 
     /** Signature of the match computed from X. */
     private String signatureX;
@@ -26,8 +37,23 @@ public final class Match {
     /** Signature of the match computed from the pattern. */
     private String signatureFromPattern;
 
-    /** Signature of the match computed from Y with different intervals. */
-    private HashMap<String, List<Interval>> signatureYWithInterval = new HashMap<>();
+    /** Distinct signatures of the match computed from Y. */
+    private String[] signatureYs = new String[1];
+
+    /** Timeline of each signature in signatureYs (same index). */
+    private Timeline[] signatureYTimelines = new Timeline[1];
+
+    /** Number of distinct signatures computed from Y. */
+    private int signatureYCount = 0;
+
+    /**
+     * Index into the MatchCollection's carried timestamps from which the match is implicitly present
+     * (carried forward unchanged), or -1 if the match was ended.
+     */
+    private int carryFrom = 0;
+
+    /** Number of live embeddings (distinct pattern signatures) with the signature X of the match. */
+    private int embeddingCount = 0;
 
     private TemporalGraph<Vertex> temporalGraph;
     //endregion
@@ -35,34 +61,36 @@ public final class Match {
     //region --[Constructors]------------------------------------------
     private Match(
         TemporalGraph<Vertex> temporalGraph,
-        GraphMapping<Vertex, RelationshipEdge> mapping,
+        VF2PatternGraph pattern,
+        int[] vertexIds,
         String signatureX,
-        List<Interval> intervals,
-        LocalDate initialTimepoint)
+        Timeline timeline,
+        int mappingEpochDay)
     {
         this.temporalGraph = temporalGraph;
+        this.pattern = pattern;
+        this.vertexIds = vertexIds;
         this.signatureX = signatureX;
-        this.intervals = intervals;
-
-        this.mapping = (mapping instanceof BackwardVertexGraphMapping)
-            ? mapping
-            : new BackwardVertexGraphMapping<>(mapping, initialTimepoint, temporalGraph);
+        this.timeline = timeline;
+        this.mappingEpochDay = mappingEpochDay;
      }
 
     /**
      * Create a new Match.
      * @param temporalGraph Temporal graph containing the vertices.
-     * @param mapping Mapping of the match.
+     * @param pattern Pattern graph of the match.
+     * @param vertexIds TemporalGraph ids of the matched data vertices indexed by pattern vertex ordinal.
      * @param signatureX Signature of the match computed from X.
+     * @param initialTimepoint Timepoint the vertices were added to the TemporalGraph.
      */
     public Match(
-        TemporalGraph temporalGraph,
-        GraphMapping<Vertex, RelationshipEdge> mapping,
+        TemporalGraph<Vertex> temporalGraph,
+        VF2PatternGraph pattern,
+        int[] vertexIds,
         String signatureX,
         LocalDate initialTimepoint)
     {
-        // TODO: FIXME: can we get away with using initalTimepoint for the TemporalGraph? [2021-02-24]
-        this(temporalGraph, mapping, signatureX, new ArrayList<Interval>(), initialTimepoint);
+        this(temporalGraph, pattern, vertexIds, signatureX, new Timeline(), (int)initialTimepoint.toEpochDay());
     }
 
     /**
@@ -71,12 +99,33 @@ public final class Match {
      */
     public Match WithIntervals(List<Interval> intervals)
     {
-        return new Match(
+        var timeline = new Timeline();
+        for (var interval : intervals)
+            timeline.addInterval(interval.getStartDay(), interval.getEndDay(), Duration.ZERO);
+        return WithTimeline(timeline);
+    }
+
+    /**
+     * Creates a new Match with the given timeline.
+     * The signatures Y and their timelines are copied, so changing either match does not change the other.
+     * @param timeline Timeline of the match (not copied, must not be shared with another match).
+     */
+    public Match WithTimeline(Timeline timeline)
+    {
+        var match = new Match(
             this.temporalGraph,
-            this.mapping,
+            this.pattern,
+            this.vertexIds,
             this.signatureX,
-            intervals,
-            intervals.get(0).getEnd());
+            timeline,
+            this.mappingEpochDay);
+        match.signatureFromPattern = this.signatureFromPattern;
+        match.signatureYs = Arrays.copyOf(this.signatureYs, this.signatureYs.length);
+        match.signatureYTimelines = new Timeline[this.signatureYTimelines.length];
+        for (int i = 0; i < this.signatureYCount; i++)
+            match.signatureYTimelines[i] = new Timeline(this.signatureYTimelines[i]);
+        match.signatureYCount = this.signatureYCount;
+        return match;
     }
     //endregion
 
@@ -94,44 +143,7 @@ public final class Match {
      */
     public void addTimepoint(LocalDate timepoint, Duration granularity)
     {
-        if (intervals.isEmpty())
-        {
-            intervals.add(new Interval(timepoint, timepoint));
-            return;
-        }
-
-        var latestInterval = intervals.get(intervals.size()-1);
-        //var latestInterval = intervals.stream().max(Comparator.comparing(Interval::getEnd)).orElseThrow();
-
-        var latestEnd = latestInterval.getEnd();
-        if (timepoint.isBefore(latestEnd) || timepoint.isEqual(latestEnd))
-            return;
-//            throw new IllegalArgumentException(String.format(
-//                "Timepoint `%s` is <= the latest interval's end `%s`",
-//                timepoint.toString(), latestEnd.toString()));
-
-        var sinceEnd = Duration.between(latestEnd.atStartOfDay(), timepoint.atStartOfDay());
-        var comparison = sinceEnd.compareTo(granularity);
-        if (comparison > 0)
-        {
-            // Time since end is greater than the granularity so add a new interval.
-            // This represents that the match did not exist between the latestInterval.end and newInterval.start.
-            intervals.add(new Interval(timepoint, timepoint));
-        }
-        else if (comparison == 0)
-        {
-            // Time since end is the granularity so extend the last interval.
-            // This represents that the match continued existing for this interval.
-            latestInterval.setEnd(timepoint);
-        }
-        else
-        {
-            //System.out.println("Match already exists at the same timestamp, signatureX: " + signatureX);
-            //For now, I ignore throwing this error to figure out how to anchor matches together
-//            throw new IllegalArgumentException(String.format(
-//                "Timepoint `%s` is less than the granularity `%s` away from the latest interval end `%s`",
-//                timepoint.toString(), granularity.toString(), latestEnd.toString()));
-        }
+        timeline.addTimepoint((int)timepoint.toEpochDay(), granularity);
     }
 
     /**
@@ -148,45 +160,130 @@ public final class Match {
      */
     public void addSignatureY(LocalDate timepoint, Duration granularity, String signatureY)
     {
-        if (!signatureYWithInterval.containsKey(signatureY))
+        var epochDay = (int)timepoint.toEpochDay();
+        // Matches rarely have more than a few distinct signatures so a linear scan beats hashing.
+        for (int i = 0; i < signatureYCount; i++)
         {
-            signatureYWithInterval.put(signatureY,new ArrayList<>());
-            signatureYWithInterval.get(signatureY).add(new Interval(timepoint, timepoint));
-            return;
+            if (signatureYs[i].equals(signatureY))
+            {
+                signatureYTimelines[i].addTimepoint(epochDay, granularity);
+                return;
+            }
         }
 
-        var latestInterval = signatureYWithInterval.get(signatureY)
-                .get(signatureYWithInterval.get(signatureY).size()-1);
-
-        //var latestInterval = signatureYWithInterval.get(signatureY).stream()
-        //                .max(Comparator.comparing(Interval::getEnd))
-        //                .orElseThrow();
+        if (signatureYCount == signatureYs.length)
+        {
+            signatureYs = Arrays.copyOf(signatureYs, signatureYCount * 2);
+            signatureYTimelines = Arrays.copyOf(signatureYTimelines, signatureYCount * 2);
+        }
+        signatureYs[signatureYCount] = signatureY;
+        signatureYTimelines[signatureYCount] = new Timeline(epochDay, epochDay);
+        signatureYCount++;
+    }
 
-        var latestEnd = latestInterval.getEnd();
-        if (timepoint.isBefore(latestEnd))
+    /**
+     * Adds a timepoint where the match is implicitly present because it did not change since its latest timepoint.
+     * The timepoint is also added to the signature Y of the latest timepoint since the match's vertices did not change.
+     * Timepoints that are not after the latest timepoint are ignored.
+     * @param epochDay Timepoint in epoch days.
+     * @param granularity Minimum timespan between matches.
+     */
+    void carryTimepoint(int epochDay, Duration granularity)
+    {
+        var latestEnd = timeline.getLatestEndDay();
+        if (epochDay <= latestEnd)
             return;
-//            throw new IllegalArgumentException(String.format(
-//                    "Timepoint `%s` is < the latest interval's end `%s`",
-//                    timepoint.toString(), latestEnd.toString()));
 
-        var sinceEnd = Duration.between(latestEnd.atStartOfDay(), timepoint.atStartOfDay());
-        var comparison = sinceEnd.compareTo(granularity);
-        if (comparison > 0)
+        timeline.addTimepoint(epochDay, granularity);
+        for (int i = 0; i < signatureYCount; i++)
         {
-            // Time since end is greater than the granularity so add a new interval.
-            // This represents that the match did not exist between the latestInterval.end and newInterval.start.
-            signatureYWithInterval.get(signatureY).add(new Interval(timepoint, timepoint));
+            if (signatureYTimelines[i].getLatestEndDay() == latestEnd)
+            {
+                signatureYTimelines[i].addTimepoint(epochDay, granularity);
+                return;
+            }
         }
-        else if (comparison == 0)
+    }
+
+    /**
+     * Writes the match in the format read by readFrom.
+     * The pattern and TemporalGraph are shared by the MatchCollection so they are not written.
+     */
+    void writeTo(DataOutput out) throws IOException
+    {
+        out.writeInt(vertexIds.length);
+        for (var vertexId : vertexIds)
+            out.writeInt(vertexId);
+        out.writeInt(mappingEpochDay);
+        out.writeInt(carryFrom);
+        out.writeInt(embeddingCount);
+        writeString(out, signatureX);
+        writeString(out, signatureFromPattern);
+        timeline.writeTo(out);
+        out.writeInt(signatureYCount);
+        for (int i = 0; i < signatureYCount; i++)
         {
-            // Time since end is the granularity so extend the last interval.
-            // This represents that the match continued existing for this interval.
-            latestInterval.setEnd(timepoint);
+            writeString(out, signatureYs[i]);
+            signatureYTimelines[i].writeTo(out);
         }
-        else
+    }
+
+    /**
+     * Reads a match written by writeTo.
+     * @param in Buffer positioned at the start of the match.
+     * @param temporalGraph Temporal graph containing the vertices.
+     * @param pattern Pattern graph of the match.
+     */
+    static Match readFrom(ByteBuffer in, TemporalGraph<Vertex> temporalGraph, VF2PatternGraph pattern)
+    {
+        var vertexIds = new int[in.getInt()];
+        for (int i = 0; i < vertexIds.length; i++)
+            vertexIds[i] = in.getInt();
+        var mappingEpochDay = in.getInt();
+        var carryFrom = in.getInt();
+        var embeddingCount = in.getInt();
+        var signatureX = readString(in);
+        var signatureFromPattern = readString(in);
+        var timeline = Timeline.readFrom(in);
+
+        var match = new Match(temporalGraph, pattern, vertexIds, signatureX, timeline, mappingEpochDay);
+        match.signatureFromPattern = signatureFromPattern;
+        match.carryFrom = carryFrom;
+        match.embeddingCount = embeddingCount;
+        match.signatureYCount = in.getInt();
+        var capacity = Math.max(match.signatureYCount, 1);
+        match.signatureYs = new String[capacity];
+        match.signatureYTimelines = new Timeline[capacity];
+        for (int i = 0; i < match.signatureYCount; i++)
         {
-            //throw new IllegalArgumentException("Timepoint is less than the granularity away from the latest interval end");
+            match.signatureYs[i] = readString(in);
+            match.signatureYTimelines[i] = Timeline.readFrom(in);
         }
+        return match;
+    }
+
+    /** Writes a nullable string as its UTF-8 length (-1 for null) followed by its bytes. */
+    static void writeString(DataOutput out, String value) throws IOException
+    {
+        if (value == null)
+        {
+            out.writeInt(-1);
+            return;
+        }
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /** Reads a string written by writeString. */
+    static String readString(ByteBuffer in)
+    {
+        var length = in.getInt();
+        if (length < 0)
+            return null;
+        var bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
     }
 
     /**
@@ -438,10 +535,18 @@ public final class Match {
 
     //region --[Properties: Public]------------------------------------
     /** Gets the intervals of the match. */
-    public List<Interval> getIntervals() { return this.intervals; }
+    public List<Interval> getIntervals() { return this.timeline.toIntervals(); }
+
+    /** Gets the timeline of the match. */
+    public Timeline getTimeline() { return this.timeline; }
 
     /** Gets the vertices of the match. */
-    public GraphMapping<Vertex, RelationshipEdge> getMapping() { return this.mapping; }
+    public GraphMapping<Vertex, RelationshipEdge> getMapping() {
+        return new BackwardVertexGraphMapping(pattern, vertexIds, mappingEpochDay, temporalGraph);
+    }
+
+    /** Gets the TemporalGraph ids of the matched data vertices indexed by pattern vertex ordinal. */
+    public int[] getVertexIds() { return this.vertexIds; }
 
     /** Gets the signature of the match computed from X. */
     public String getSignatureX() { return signatureX; }
@@ -454,8 +559,32 @@ public final class Match {
         this.signatureFromPattern = signatureFromPattern;
     }
 
-    /** Gets the signature Y of the match along with different time intervals. */
-    public HashMap<String, List<Interval>> getSignatureYWithInterval() {
+    /** Gets the index of the carried timestamps from which the match is implicitly present, or -1 if it was ended. */
+    int getCarryFrom() { return carryFrom; }
+
+    /** Sets the index of the carried timestamps from which the match is implicitly present, or -1 if it was ended. */
+    void setCarryFrom(int carryFrom) { this.carryFrom = carryFrom; }
+
+    /** Gets the number of live embeddings with the signature X of the match. */
+    int getEmbeddingCount() { return embeddingCount; }
+
+    /** Sets the number of live embeddings with the signature X of the match. */
+    void setEmbeddingCount(int embeddingCount) { this.embeddingCount = embeddingCount; }
+
+    /** Gets the number of distinct signatures computed from Y. */
+    public int getSignatureYCount() { return signatureYCount; }
+
+    /** Gets a signature computed from Y. */
+    public String getSignatureY(int index) { return signatureYs[index]; }
+
+    /** Gets the timeline of a signature computed from Y. */
+    public Timeline getSignatureYTimeline(int index) { return signatureYTimelines[index]; }
+
+    /** Gets the signature Y of the match along with different time intervals (creates a new map). */
+    public HashMap<String, Timeline> getSignatureYWithInterval() {
+        var signatureYWithInterval = new HashMap<String, Timeline>();
+        for (int i = 0; i < signatureYCount; i++)
+            signatureYWithInterval.put(signatureYs[i], signatureYTimelines[i]);
         return signatureYWithInterval;
     }
     //endregion
@@ -465,7 +594,7 @@ public final class Match {
     public String toString() {
         return "Match{" +
                 "signatureX='" + signatureX + '\'' +
-                ", signatureYWithInterval=" + signatureYWithInterval +
+                ", signatureYWithInterval=" + getSignatureYWithInterval() +
                 '}';
     }
     //endregion
@@ -1,20 +1,34 @@
 package infra;
 
 import org.jgrapht.GraphMapping;
+import util.Metrics;
 import util.myConsole;
+import util.properties;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Class that stores matches across timestamps for a single TGFD.
+ *
+ * In the incremental case, matches that did not change are carried forward lazily: addTimestamp only
+ * records the timestamp and ends removed matches, and the carried timestamps are added to a match
+ * when it is next read or updated. The cost of addTimestamp is proportional to the number of changes.
+ *
+ * Optionally, matches beyond maxMatchesInMemory are spilled to a DiskMatchStore and
+ * loaded back when they are updated.
+ *
+ * A MatchCollection is not thread-safe: matches and timestamps must be added by one thread in increasing
+ * timestamp order. Parallel matchers collect their mappings per snapshot and add them from a single thread
+ * (see ParallelBatchMatchStage).
  */
-public class MatchCollection
+public class MatchCollection implements AutoCloseable
 {
     //region --[Fields: Private]---------------------------------------
-    // TODO: handle concurrent use of TemporalGraph [2021-02-24]
     /** Temporal graph containing the vertices to reduce memory consumption by the matches. */
     private TemporalGraph<Vertex> temporalGraph;
 
@@ -28,21 +42,42 @@ public class MatchCollection
     /** Mapping of match signatures to matches. */
     private AbstractMap<String, Match> matchesBySignature = new HashMap<>();
 
-    // TODO: deduplicate vertices in Match [2021-02-23]
-    // This may not be so easy because we need to deduplicate by vertex and time.
-    // We need some sort of shared temporal representation of the vertices that we can retrieve given id and timestamp.
-
     /** Pattern graph of the match. */
     private VF2PatternGraph pattern;
 
     /** Stores the timestamps of the input data*/
     private HashSet<LocalDate> timestamps = new HashSet<>();
 
+    /**
+     * Mapping of the signatures (w.r.t. the pattern) of live embeddings to the signature X of their match.
+     * Removed embeddings reported by IncrementalChange are resolved to their match through this index.
+     */
+    private AbstractMap<String, String> signatureXByPatternSignature = new HashMap<>();
+
+    /**
+     * Fill signatureXByPatternSignature. Only incremental updates read the index, and they start from a single
+     * timestamp matched in batch, so the index is dropped when a second timestamp is matched in batch
+     * (addMatches with an iterator) and only filled again by incremental updates.
+     */
+    private boolean isIndexingEmbeddings = true;
+
+    /** Matches spilled to disk (null if spilling is disabled). */
+    private DiskMatchStore spilledMatches = null;
+
+    /** Maximum number of matches in matchesBySignature before matches are spilled. */
+    private int maxMatchesInMemory = Integer.MAX_VALUE;
+
+    /** Timestamps (epoch days) added by addTimestamp in increasing order where unchanged matches are carried forward. */
+    private int[] carriedDays = new int[8];
+
+    /** Number of carried timestamps. */
+    private int carriedDayCount = 0;
     //endregion
 
     //region --[Constructors]------------------------------------------
     /**
      * Creates a MatchCollection.
+     * Matches are spilled to disk if myProperties.matchSpillDirectory is set.
      * @param pattern Pattern of all matches in this collection.
      * @param pattern Dependency of all matches in this collection.
      * @param granularity Minimum timespan between matches.
@@ -51,11 +86,36 @@ public class MatchCollection
         VF2PatternGraph pattern,
         Dependency dependency,
         Duration granularity)
+    {
+        this(pattern, dependency, granularity,
+            properties.myProperties.matchSpillDirectory == null ? null : Path.of(properties.myProperties.matchSpillDirectory),
+            properties.myProperties.maxMatchesInMemory);
+    }
+
+    /**
+     * Creates a MatchCollection that spills matches to disk.
+     * @param pattern Pattern of all matches in this collection.
+     * @param pattern Dependency of all matches in this collection.
+     * @param granularity Minimum timespan between matches.
+     * @param spillDirectory Directory to spill matches to (null disables spilling).
+     * @param maxMatchesInMemory Maximum number of matches kept in memory.
+     */
+    public MatchCollection(
+        VF2PatternGraph pattern,
+        Dependency dependency,
+        Duration granularity,
+        Path spillDirectory,
+        int maxMatchesInMemory)
     {
         this.pattern = pattern;
         this.dependency = dependency;
         this.granularity = granularity;
         this.temporalGraph = new TemporalGraph<>(granularity);
+        if (spillDirectory != null)
+        {
+            this.spilledMatches = new DiskMatchStore(spillDirectory, temporalGraph, pattern);
+            this.maxMatchesInMemory = maxMatchesInMemory;
+        }
     }
     //endregion
 
@@ -64,19 +124,49 @@ public class MatchCollection
      * Add a match for a timestamp.
      * @param timestamp Timepoint of the match.
      * @param mapping The mapping of the match.
+     * @param vertexIds TemporalGraph ids of the matched vertices indexed by pattern vertex ordinal.
+     * @param patternSignature Signature of the mapping w.r.t. the pattern (see Match.signatureFromPattern),
+     *                         null if the embeddings are not indexed.
      */
     private void addMatch(
         LocalDate timestamp,
-        GraphMapping<Vertex, RelationshipEdge> mapping)
+        GraphMapping<Vertex, RelationshipEdge> mapping,
+        int[] vertexIds,
+        String patternSignature)
     {
         var signature = Match.signatureFromX2(pattern, mapping, dependency.getX());
 
         var match = matchesBySignature.getOrDefault(signature, null);
+        if (match == null && spilledMatches != null)
+        {
+            match = spilledMatches.remove(signature);
+            if (match != null)
+                matchesBySignature.put(signature, match);
+        }
         if (match == null)
         {
-            match = new Match(temporalGraph, mapping, signature, timestamp);
+            match = new Match(temporalGraph, pattern, vertexIds, signature, timestamp);
+            match.setSignatureFromPattern(patternSignature);
             matchesBySignature.put(signature, match);
         }
+        else
+        {
+            carryForward(match);
+        }
+        // The match exists again so it is carried forward from here.
+        match.setCarryFrom(carriedDayCount);
+
+        if (patternSignature != null)
+        {
+            var previousSignature = signatureXByPatternSignature.put(patternSignature, signature);
+            if (!signature.equals(previousSignature))
+            {
+                // The embedding is new or its signature X changed.
+                if (previousSignature != null)
+                    releaseEmbedding(previousSignature);
+                match.setEmbeddingCount(match.getEmbeddingCount() + 1);
+            }
+        }
 
         var signatureY=Match.signatureFromY2(pattern,mapping,dependency.getY());
 
@@ -84,23 +174,100 @@ public class MatchCollection
         match.addSignatureY(timestamp,granularity,signatureY);
     }
 
+    /**
+     * Adds the carried timestamps that the match has not seen yet.
+     * @param match Match to update.
+     * @return The match.
+     */
+    private Match carryForward(Match match)
+    {
+        var carryFrom = match.getCarryFrom();
+        if (carryFrom < 0 || carryFrom >= carriedDayCount)
+            return match;
+
+        for (int i = carryFrom; i < carriedDayCount; i++)
+            match.carryTimepoint(carriedDays[i], granularity);
+        match.setCarryFrom(carriedDayCount);
+        return match;
+    }
+
+    /**
+     * Releases an embedding of a match and ends the match (it is no longer carried forward)
+     * if it has no other live embeddings.
+     * @param signature Signature X of the match.
+     */
+    private void releaseEmbedding(String signature)
+    {
+        var match = matchesBySignature.get(signature);
+        var isSpilled = match == null && spilledMatches != null;
+        if (isSpilled)
+            match = spilledMatches.get(signature);
+        if (match == null)
+            return;
+
+        match.setEmbeddingCount(match.getEmbeddingCount() - 1);
+        if (match.getEmbeddingCount() <= 0)
+            carryForward(match).setCarryFrom(-1);
+
+        if (isSpilled)
+            spilledMatches.put(signature, match);
+    }
+
     /**
      * Adds vertices of the match to the TemporalGraph shared by matches in this collection.
      * @param timestamp Timepoint of the match.
      * @param mapping Mapping of the match.
+     * @return TemporalGraph ids of the matched vertices indexed by pattern vertex ordinal.
      */
-    private void addVertices(LocalDate timestamp, GraphMapping<Vertex, RelationshipEdge> mapping)
+    private int[] addVertices(LocalDate timestamp, GraphMapping<Vertex, RelationshipEdge> mapping)
     {
-        for (var pattenVertex : pattern.getGraph().vertexSet())
+        var patternVertices = pattern.getVerticesByOrdinal();
+        var vertexIds = new int[patternVertices.size()];
+        for (int ordinal = 0; ordinal < vertexIds.length; ordinal++)
         {
-            var matchVertex = mapping.getVertexCorrespondence(pattenVertex, false);
+            var matchVertex = mapping.getVertexCorrespondence(patternVertices.get(ordinal), false);
 
             // TODO: change Vertex type to DataVertex or add vertex id to Vertex [2021-02-24]
-            temporalGraph.addVertex(
+            vertexIds[ordinal] = temporalGraph.addVertex(
                 matchVertex,
                 ((DataVertex)matchVertex).getVertexURI(),
                 timestamp);
         }
+        return vertexIds;
+    }
+
+    /**
+     * Spills matches to disk when more than maxMatchesInMemory are in memory, down to 3/4 of maxMatchesInMemory
+     * so that spilling does not happen again for every added match.
+     * Matches that do not exist at the timestamp are spilled first since they are the least likely to be updated.
+     * @param timestamp Latest timestamp.
+     */
+    private void spillMatches(LocalDate timestamp)
+    {
+        if (spilledMatches == null || matchesBySignature.size() <= maxMatchesInMemory)
+            return;
+
+        var target = maxMatchesInMemory - maxMatchesInMemory / 4;
+        var epochDay = (int)timestamp.toEpochDay();
+        var iterator = matchesBySignature.entrySet().iterator();
+        while (iterator.hasNext() && matchesBySignature.size() > target)
+        {
+            var entry = iterator.next();
+            if (!carryForward(entry.getValue()).getTimeline().contains(epochDay))
+            {
+                spilledMatches.put(entry.getKey(), entry.getValue());
+                iterator.remove();
+            }
+        }
+
+        iterator = matchesBySignature.entrySet().iterator();
+        while (iterator.hasNext() && matchesBySignature.size() > target)
+        {
+            var entry = iterator.next();
+            spilledMatches.put(entry.getKey(), carryForward(entry.getValue()));
+            iterator.remove();
+        }
+        myConsole.print("Number of matches spilled to disk: " + spilledMatches.size());
     }
     //endregion
 
@@ -117,16 +284,42 @@ public class MatchCollection
         if (mappingIterator == null)
             return 0;
 
+        if (isIndexingEmbeddings && !timestamps.isEmpty() && !timestamps.contains(timestamp))
+        {
+            // Matching another timestamp in batch means the matches are not updated incrementally.
+            isIndexingEmbeddings = false;
+            signatureXByPatternSignature = new HashMap<>();
+        }
         timestamps.add(timestamp);
 
+        // Includes the enumeration of the mappings by VF2
+        var snapshot = Objects.requireNonNullElse(Metrics.getSnapshot(), timestamp.toString());
+        var sample = Metrics.timer("addMatches", Metrics.getTGFD(), snapshot).start();
+        var signatureTime = 0L;
         int matchCount = 0;
-        while (mappingIterator.hasNext())
+        try
+        {
+            while (mappingIterator.hasNext())
+            {
+                var mapping = mappingIterator.next();
+                String signature = null;
+                if (isIndexingEmbeddings)
+                {
+                    var signatureStart = System.nanoTime();
+                    signature = Match.signatureFromPattern(pattern, mapping);
+                    signatureTime += System.nanoTime() - signatureStart;
+                }
+                addMatch(timestamp, mapping, addVertices(timestamp, mapping), signature);
+                matchCount++;
+            }
+            spillMatches(timestamp);
+        }
+        finally
         {
-            var mapping = mappingIterator.next();
-            addMatch(timestamp, mapping);
-            addVertices(timestamp, mapping);
-            matchCount++;
+            sample.close();
         }
+        Metrics.timer("signature", Metrics.getTGFD(), snapshot).record(signatureTime);
+        Metrics.counter("matches", Metrics.getTGFD(), snapshot).add(matchCount);
         myConsole.print("Number of matches: " + matchCount);
         return matchCount;
     }
@@ -141,38 +334,93 @@ public class MatchCollection
         LocalDate timepoint,
         HashMap <String, GraphMapping <Vertex, RelationshipEdge>> newMatches)
     {
+        isIndexingEmbeddings = true;
         timestamps.add(timepoint);
 
-        for (var mapping : newMatches.values())
+        var snapshot = Objects.requireNonNullElse(Metrics.getSnapshot(), timepoint.toString());
+        var sample = Metrics.timer("addMatches", Metrics.getTGFD(), snapshot).start();
+        try
         {
-            addMatch(timepoint, mapping);
-            addVertices(timepoint, mapping);
+            for (var entry : newMatches.entrySet())
+            {
+                var mapping = entry.getValue();
+                addMatch(timepoint, mapping, addVertices(timepoint, mapping), entry.getKey());
+            }
+            spillMatches(timepoint);
         }
+        finally
+        {
+            sample.close();
+        }
+        Metrics.counter("matches", Metrics.getTGFD(), snapshot).add(newMatches.size());
     }
 
     /**
      * Add timestamp to all matches that are neither new or removed (for incremental case).
-     * @param timestamp Timestamp to add to relevant matches.
-     * @param newMatchesSignatures Signatures from new matches.
-     * @param removedMatchesSignatures Signatures from deleted matches.
+     *
+     * Matches are carried forward lazily so only removed matches are visited. A match is ended when
+     * all of its embeddings are removed, i.e. it is not carried forward to this or later timestamps
+     * unless it is added again. Unchanged matches keep the signature Y of their latest timepoint.
+     *
+     * @param timestamp Timestamp to add to relevant matches (must be after previously added timestamps).
+     * @param newMatchesSignatures Signatures (w.r.t. the pattern) from new matches.
+     * @param removedMatchesSignatures Signatures (w.r.t. the pattern) from deleted matches. The signatures are the net
+     *                                 effect of the changes of the timestamp, i.e. a match added by a change and
+     *                                 removed by a later change is only in removedMatchesSignatures.
+     * @exception IllegalArgumentException if timestamp is before a previously added timestamp.
      */
     public void addTimestamp(
         LocalDate timestamp,
         Collection<String> newMatchesSignatures,
         Collection<String> removedMatchesSignatures)
     {
+        var epochDay = (int)timestamp.toEpochDay();
+        if (carriedDayCount > 0 && epochDay < carriedDays[carriedDayCount - 1])
+        {
+            throw new IllegalArgumentException(String.format(
+                "Timestamp `%s` is before the latest timestamp `%s` of the MatchCollection",
+                timestamp, LocalDate.ofEpochDay(carriedDays[carriedDayCount - 1])));
+        }
+
+        isIndexingEmbeddings = true;
         timestamps.add(timestamp);
 
-        var newSignatures = newMatchesSignatures.stream().collect(Collectors.toSet());
-        var removedSignatures = removedMatchesSignatures.stream().collect(Collectors.toSet());
+        var newSignatures = newMatchesSignatures instanceof Set
+            ? (Set<String>)newMatchesSignatures
+            : new HashSet<>(newMatchesSignatures);
+        for (var signature : removedMatchesSignatures)
+        {
+            // A signature that is also new (not netted by the caller) is treated as added last.
+            if (newSignatures.contains(signature))
+                continue;
 
-        var signaturesToUpdate = matchesBySignature.keySet().stream()
-            .filter(k -> !newSignatures.contains(k))
-            .filter(k -> !removedSignatures.contains(k))
-            .collect(Collectors.toList());
+            var signatureX = signatureXByPatternSignature.remove(signature);
+            if (signatureX != null)
+                releaseEmbedding(signatureX);
+        }
 
-        for (var signature : signaturesToUpdate)
-            matchesBySignature.get(signature).addTimepoint(timestamp, granularity);
+        if (carriedDayCount > 0 && epochDay == carriedDays[carriedDayCount - 1])
+            return;
+        if (carriedDayCount == carriedDays.length)
+            carriedDays = Arrays.copyOf(carriedDays, carriedDayCount * 2);
+        carriedDays[carriedDayCount++] = epochDay;
+    }
+
+    /** Deletes the spilled matches from disk. */
+    @Override
+    public void close()
+    {
+        if (spilledMatches == null)
+            return;
+
+        try
+        {
+            spilledMatches.close();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
     }
     //endregion
 
@@ -185,21 +433,50 @@ public class MatchCollection
         return timestamps.stream().toArray(LocalDate[]::new);
     }
 
-    /** Returns matches across all time. */
+    /** Returns matches across all time (loads all spilled matches, prefer iterateMatches). */
     public List<Match> getMatches() {
-        return new ArrayList<>(matchesBySignature
-                .values());
+        var result = new ArrayList<Match>(getMatchCount());
+        for (var match : iterateMatches())
+            result.add(match);
+        return result;
+    }
+
+    /**
+     * Returns matches across all time where spilled matches are loaded one at a time.
+     * The iterable must not be used after the collection is modified.
+     */
+    public Iterable<Match> iterateMatches() {
+        return () -> new Iterator<>()
+        {
+            private final Iterator<Match> inMemory = matchesBySignature.values().iterator();
+            private final Iterator<Match> spilled = spilledMatches == null
+                ? Collections.emptyIterator()
+                : spilledMatches.iterator();
+
+            @Override
+            public boolean hasNext() { return inMemory.hasNext() || spilled.hasNext(); }
+
+            @Override
+            public Match next() { return carryForward(inMemory.hasNext() ? inMemory.next() : spilled.next()); }
+        };
+    }
+
+    /** Gets the number of matches across all time. */
+    public int getMatchCount() {
+        return matchesBySignature.size() + (spilledMatches == null ? 0 : spilledMatches.size());
     }
 
     /** Returns matches applicable for only the given timestamp. */
     public List<Match> getMatches(LocalDate timestamp) {
-        var intervals = List.of(new Interval(timestamp, timestamp));
-        return matchesBySignature
-            .values()
-            .stream()
-            .filter(match -> match.getIntervals().stream().anyMatch(intv -> intv.contains(timestamp)))
-            .map(match -> match.WithIntervals(intervals))
-            .collect(Collectors.toList());
+        var epochDay = (int)timestamp.toEpochDay();
+        var result = new ArrayList<Match>();
+        for (var match : iterateMatches())
+        {
+            // Each returned match has its own copy of the timeline so that it can be changed independently.
+            if (match.getTimeline().contains(epochDay))
+                result.add(match.WithTimeline(new Timeline(epochDay, epochDay)));
+        }
+        return result;
     }
     //endregion
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package infra;
+
+import org.jgrapht.GraphMapping;
+
+/**
+ * Mapping from the pattern vertices to data vertices that only provides the backwards vertex mapping.
+ *
+ * Unlike BackwardVertexGraphMapping, the data vertices are referenced directly, so it can be used before the
+ * vertices are added to a TemporalGraph. It is used to keep mappings found by VF2 until they are added to a
+ * MatchCollection: an IsomorphicGraphMapping of JGraphT holds forward and backward maps sized to the whole data
+ * graph, while this mapping only holds one data vertex per pattern vertex.
+ */
+public class PatternMapping implements GraphMapping<Vertex, RelationshipEdge>
+{
+    //region --[Fields: Private]---------------------------------------
+    /** Pattern graph of the mapping. */
+    private final VF2PatternGraph pattern;
+
+    /** Data vertices indexed by pattern vertex ordinal. */
+    private final Vertex[] dataVertices;
+    //endregion
+
+    //region --[Constructors]------------------------------------------
+    /**
+     * Constructs a new PatternMapping.
+     * @param pattern Pattern graph of the mapping.
+     * @param dataVertices Data vertices indexed by pattern vertex ordinal (not copied).
+     */
+    public PatternMapping(VF2PatternGraph pattern, Vertex[] dataVertices)
+    {
+        this.pattern = pattern;
+        this.dataVertices = dataVertices;
+    }
+    //endregion
+
+    //region --[Methods: Public]---------------------------------------
+    /**
+     * Copies the backwards vertex mapping of a mapping of the pattern.
+     * @param pattern Pattern graph of the mapping.
+     * @param mapping Mapping from the pattern vertices to data vertices.
+     */
+    public static PatternMapping of(VF2PatternGraph pattern, GraphMapping<Vertex, RelationshipEdge> mapping)
+    {
+        if (mapping instanceof PatternMapping && ((PatternMapping)mapping).pattern == pattern)
+            return (PatternMapping)mapping;
+
+        var patternVertices = pattern.getVerticesByOrdinal();
+        var dataVertices = new Vertex[patternVertices.size()];
+        for (int ordinal = 0; ordinal < dataVertices.length; ordinal++)
+            dataVertices[ordinal] = mapping.getVertexCorrespondence(patternVertices.get(ordinal), false);
+        return new PatternMapping(pattern, dataVertices);
+    }
+    //endregion
+
+    //region --[GraphMapping]------------------------------------------
+    @Override
+    public Vertex getVertexCorrespondence(Vertex v, boolean forward)
+    {
+        if (forward)
+            throw new UnsupportedOperationException("PatternMapping does not support forward getVertexCorrespondence");
+
+        var ordinal = pattern.getOrdinal(v);
+        return ordinal < 0 ? null : dataVertices[ordinal];
+    }
+
+    @Override
+    public RelationshipEdge getEdgeCorrespondence(RelationshipEdge e, boolean forward)
+    {
+        throw new UnsupportedOperationException("PatternMapping does not support getEdgeCorrespondence");
+    }
+    //endregion
+}
@@ -9,6 +9,79 @@ public class PatternVertex extends Vertex{
     }
     private boolean isPatternNode=true;
 
+    // Neighbourhood requirements of a data vertex mapped to this vertex (see DataVertex.hasNeighbourhoodOf).
+    // Set by VF2PatternGraph.addEdge from the edges of the pattern.
+    private long requiredOutgoingLabels=0, requiredIncomingLabels=0;
+    private int minOutDegree=0, minInDegree=0;
+
+    // Compiled form of the type and attribute checks of isMapped so the VF2 comparator doesn't allocate.
+    // Built on first use and dropped when the vertex changes.
+    private static final class Requirements {
+        // Types that have a bit in TypeDictionary and whether every type has one
+        final long typeMask;
+        final boolean typesFitMask;
+        // Lowercase attribute names and the required values (null for variable attributes)
+        final String[] attributeNames;
+        final String[] attributeValues;
+
+        Requirements(PatternVertex v) {
+            long mask=0;
+            boolean fit=true;
+            for (String type:v.getTypes()) {
+                long bit=TypeDictionary.getMask(type);
+                mask|=bit;
+                fit&=bit!=0;
+            }
+            typeMask=mask;
+            typesFitMask=fit;
+
+            int size=v.getAllAttributesList().size(), i=0;
+            attributeNames=new String[size];
+            attributeValues=new String[size];
+            for (Attribute attr:v.getAllAttributesList()) {
+                attributeNames[i]=attr.getAttrName();
+                attributeValues[i]=attr.isNULL() ? null : attr.getAttrValue();
+                i++;
+            }
+        }
+    }
+    private volatile Requirements requirements;
+
+    public long getRequiredOutgoingLabels() {
+        return requiredOutgoingLabels;
+    }
+
+    public long getRequiredIncomingLabels() {
+        return requiredIncomingLabels;
+    }
+
+    public int getMinOutDegree() {
+        return minOutDegree;
+    }
+
+    public int getMinInDegree() {
+        return minInDegree;
+    }
+
+    /**
+     * Sets the neighbourhood requirements from the edges of this vertex in a pattern.
+     * Each pattern edge maps to a distinct data edge, so the degrees are lower bounds of the data vertex's degrees.
+     */
+    void setNeighbourhood(Iterable<RelationshipEdge> outgoingEdges, Iterable<RelationshipEdge> incomingEdges) {
+        requiredOutgoingLabels=0;
+        minOutDegree=0;
+        for (RelationshipEdge e:outgoingEdges) {
+            requiredOutgoingLabels|=LabelDictionary.getMask(e.getLabelId());
+            minOutDegree++;
+        }
+        requiredIncomingLabels=0;
+        minInDegree=0;
+        for (RelationshipEdge e:incomingEdges) {
+            requiredIncomingLabels|=LabelDictionary.getMask(e.getLabelId());
+            minInDegree++;
+        }
+    }
+
     @Override
     public String toString() {
         return "pattern vertex{" +
@@ -23,16 +96,31 @@ public class PatternVertex extends Vertex{
     {
         if(v instanceof PatternVertex)
             return false;
-        if (!v.getTypes().containsAll(super.getTypes()))
+        if(v instanceof DataVertex && !((DataVertex) v).hasNeighbourhoodOf(this))
+            return false;
+
+        Requirements r=requirements;
+        if(r==null)
+            requirements=r=new Requirements(this);
+        if((v.getTypeMask() & r.typeMask)!=r.typeMask)
             return false;
-        if(!v.getAllAttributesNames().containsAll(super.getAllAttributesNames()))
+        if(!r.typesFitMask && !v.getTypes().containsAll(super.getTypes()))
             return false;
-        for (Attribute attr:super.getAllAttributesList())
-            if(!attr.isNULL() && !v.getAttributeValueByName(attr.getAttrName()).equals(attr.getAttrValue()))
+        for (int i=0;i<r.attributeNames.length;i++) {
+            Attribute attr=v.getAttribute(r.attributeNames[i]);
+            if(attr==null)
+                return false;
+            if(r.attributeValues[i]!=null && !r.attributeValues[i].equals(attr.getAttrValue()))
                 return false;
+        }
         return true;
     }
 
+    @Override
+    protected void changed() {
+        requirements=null;
+    }
+
     @Override
     public int compareTo(@NotNull Vertex o) {
         if(o instanceof PatternVertex)
@@ -6,6 +6,12 @@ public class RelationshipEdge extends DefaultEdge {
 
     private String label;
 
+    // Id of the label in LabelDictionary (LabelDictionary.WILDCARD_ID for "*")
+    private final int labelId;
+
+    // Endpoints set by CopyOnWriteGraph (null if the edge is in a JGraphT graph that sets its own endpoints)
+    private Vertex source, target;
+
 
     @Override
     public String toString() {
@@ -40,17 +46,27 @@ public class RelationshipEdge extends DefaultEdge {
         return label;
     }
 
+    public int getLabelId() {
+        return labelId;
+    }
+
     public RelationshipEdge(String label) {
         this.label = label;
+        this.labelId = LabelDictionary.getId(label);
+    }
+
+    void setEndpoints(Vertex source, Vertex target) {
+        this.source = source;
+        this.target = target;
     }
 
     @Override
     public Vertex getTarget() {
-        return (Vertex) super.getTarget();
+        return target!=null ? target : (Vertex) super.getTarget();
     }
 
     @Override
     public Vertex getSource() {
-        return (Vertex) super.getSource();
+        return source!=null ? source : (Vertex) super.getSource();
     }
 }
@@ -3,8 +3,8 @@ package infra;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
 
 /**
  * Class that stores a temporal graph.
@@ -15,16 +15,63 @@ import java.util.List;
 public class TemporalGraph<V>
 {
     //region --[Classes: Private]--------------------------------------
-    /** Represents a vertex over the given interval. */
-    private class TemporalVertex<V>
+    /**
+     * Represents a vertex over sorted, non-overlapping intervals.
+     *
+     * Intervals are stored as packed epoch-day intervals (see Interval.pack) sorted by start so
+     * that lookups can use a binary search. The latest interval is always at index size-1.
+     */
+    private static class TemporalVertex<V>
     {
-        public Interval interval;
-        public V vertex;
+        /** Dense id of the vertex in the TemporalGraph. */
+        public final int id;
+        /** Packed intervals in epoch days. */
+        public long[] intervals = new long[1];
+        /** Vertex of each interval. */
+        public Object[] vertices = new Object[1];
+        /** Number of intervals. */
+        public int size = 0;
+
+        public TemporalVertex(int id)
+        {
+            this.id = id;
+        }
+
+        /** Appends a new single-day interval after the latest interval. */
+        public void append(int epochDay, V vertex)
+        {
+            if (size == intervals.length)
+            {
+                var capacity = size * 2;
+                intervals = Arrays.copyOf(intervals, capacity);
+                vertices = Arrays.copyOf(vertices, capacity);
+            }
+            intervals[size] = Interval.pack(epochDay, epochDay);
+            vertices[size] = vertex;
+            size++;
+        }
 
-        public TemporalVertex(Interval interval, V vertex)
+        /** Returns the index of the interval containing the epoch day, otherwise -1. */
+        public int indexOf(int epochDay)
         {
-            this.interval = interval;
-            this.vertex = vertex;
+            // Most lookups are for the latest interval.
+            var last = size - 1;
+            if (Interval.startOf(intervals[last]) <= epochDay)
+                return epochDay <= Interval.endOf(intervals[last]) ? last : -1;
+
+            var low = 0;
+            var high = last - 1;
+            while (low <= high)
+            {
+                var mid = (low + high) >>> 1;
+                if (Interval.endOf(intervals[mid]) < epochDay)
+                    low = mid + 1;
+                else if (Interval.startOf(intervals[mid]) > epochDay)
+                    high = mid - 1;
+                else
+                    return mid;
+            }
+            return -1;
         }
     }
     //endregion
@@ -33,8 +80,11 @@ public class TemporalGraph<V>
     /** Minimum timespan between timestamps. */
     private Duration granularity;
 
-    /** Map from vertex id to a list of temporal vertices. */
-    private HashMap<String, List<TemporalVertex<V>>> temporalVerticesById = new HashMap<>();
+    /** Map from vertex id to the vertex's intervals. */
+    private HashMap<String, TemporalVertex<V>> temporalVerticesById = new HashMap<>();
+
+    /** The vertices' intervals indexed by the dense id assigned when a vertex is first added. */
+    private ArrayList<TemporalVertex<V>> temporalVerticesByIndex = new ArrayList<>();
     //endregion
 
     //region --[Constructors]------------------------------------------
@@ -54,55 +104,52 @@ public class TemporalGraph<V>
      * @param vertex Vertex to add.
      * @param vertexId Id of vertex.
      * @param timestamp Timestamp.
+     * @return Dense id of the vertex that can be used with getVertex(int, LocalDate).
      */
-    public void addVertex(V vertex, String vertexId, LocalDate timestamp)
+    public int addVertex(V vertex, String vertexId, LocalDate timestamp)
     {
         // TODO: extract vertexId from vertex and remove vertexId parameter [2021-02-24]
-        var temporalVertices = temporalVerticesById.get(vertexId);
-        if (temporalVertices == null)
+        var epochDay = (int)timestamp.toEpochDay();
+        var temporalVertex = temporalVerticesById.get(vertexId);
+        if (temporalVertex == null)
         {
-            temporalVertices = new ArrayList<>();
-            temporalVertices.add(new TemporalVertex<>(new Interval(timestamp, timestamp), vertex));
-            temporalVerticesById.put(vertexId, temporalVertices);
-            return;
+            temporalVertex = new TemporalVertex<>(temporalVerticesByIndex.size());
+            temporalVertex.append(epochDay, vertex);
+            temporalVerticesById.put(vertexId, temporalVertex);
+            temporalVerticesByIndex.add(temporalVertex);
+            return temporalVertex.id;
         }
 
-        TemporalVertex latestTemporalVertex = null;
-        for (var temporalVertex : temporalVertices)
+        var last = temporalVertex.size - 1;
+        var latestEnd = Interval.endOf(temporalVertex.intervals[last]);
+        if (epochDay > latestEnd)
         {
-            // TODO: throw exception if argument vertex != temporal vertex [2021-02-24]
-            if (temporalVertex.interval.contains(timestamp))
-                return ;
-
-            if (latestTemporalVertex == null ||
-                latestTemporalVertex.interval.getEnd().isAfter(temporalVertex.interval.getEnd()))
+            // Fast path: timestamps are almost always added in increasing order.
+            var comparison = Interval.compareDays(epochDay - latestEnd, granularity);
+            if (comparison > 0)
             {
-                latestTemporalVertex = temporalVertex;
+                // Time since end is greater than the granularity so add a new interval.
+                // This represents that the vertex did not exist between the latest end and the new interval start.
+                temporalVertex.append(epochDay, vertex);
+                return temporalVertex.id;
+            }
+            else if (comparison == 0)
+            {
+                // Time since end is the granularity so extend the last interval.
+                // This represents that the vertex continued existing for this interval.
+                temporalVertex.intervals[last] = Interval.withEnd(temporalVertex.intervals[last], epochDay);
+                return temporalVertex.id;
             }
         }
-
-        var sinceEnd = Duration.between(
-            latestTemporalVertex.interval.getEnd().atStartOfDay(),
-            timestamp.atStartOfDay());
-        var comparison = sinceEnd.compareTo(granularity);
-        if (comparison > 0)
-        {
-            // Time since end is greater than the granularity so add a new interval.
-            // This represents that the vertex did not exist between the latestTemporalVertex.end and newInterval.start.
-            temporalVertices.add(new TemporalVertex<>(new Interval(timestamp, timestamp), vertex));
-        }
-        else if (comparison == 0)
-        {
-            // Time since end is the granularity so extend the last interval.
-            // This represents that the vertex continued existing for this interval.
-            latestTemporalVertex.interval.setEnd(timestamp);
-        }
-        else
+        else if (temporalVertex.indexOf(epochDay) >= 0)
         {
-            throw new IllegalArgumentException(String.format(
-                "Timestamp `%s` is less than the granularity `%s` away from the latest interval end `%s` in the TemporalGraph",
-                timestamp.toString(), granularity.toString(), latestTemporalVertex.interval.getEnd().toString()));
+            // TODO: throw exception if argument vertex != temporal vertex [2021-02-24]
+            return temporalVertex.id;
         }
+
+        throw new IllegalArgumentException(String.format(
+            "Timestamp `%s` is less than the granularity `%s` away from the latest interval end `%s` in the TemporalGraph",
+            timestamp.toString(), granularity.toString(), LocalDate.ofEpochDay(latestEnd).toString()));
     }
 
     /**
@@ -110,20 +157,37 @@ public class TemporalGraph<V>
      * @param vertexId Id of the vertex.
      * @param timestamp Timestamp.
      */
+    @SuppressWarnings("unchecked")
     public V getVertex(String vertexId, LocalDate timestamp)
     {
-        var temporalVertices = temporalVerticesById.get(vertexId);
-        if (temporalVertices == null)
+        var temporalVertex = temporalVerticesById.get(vertexId);
+        if (temporalVertex == null)
             throw new IllegalArgumentException(String.format("vertex %s does not exist", vertexId));
 
-        for (var temporalVertex : temporalVertices)
-        {
-            if (temporalVertex.interval.contains(timestamp)) {
-                return temporalVertex.vertex;
-            }
-        }
+        var index = temporalVertex.indexOf((int)timestamp.toEpochDay());
+        if (index >= 0)
+            return (V)temporalVertex.vertices[index];
 
         throw new IllegalArgumentException(String.format("vertex %s does not exist at %s", vertexId, timestamp));
     }
+
+    /**
+     * Gets a vertex at the given timestamp.
+     * @param id Dense id of the vertex returned by addVertex.
+     * @param epochDay Timestamp in epoch days.
+     */
+    @SuppressWarnings("unchecked")
+    public V getVertex(int id, int epochDay)
+    {
+        if (id < 0 || id >= temporalVerticesByIndex.size())
+            throw new IllegalArgumentException(String.format("vertex #%d does not exist", id));
+
+        var temporalVertex = temporalVerticesByIndex.get(id);
+        var index = temporalVertex.indexOf(epochDay);
+        if (index >= 0)
+            return (V)temporalVertex.vertices[index];
+
+        throw new IllegalArgumentException(String.format("vertex #%d does not exist at %s", id, LocalDate.ofEpochDay(epochDay)));
+    }
     //endregion
 }
@@ -0,0 +1,221 @@
+package infra;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact history of when something existed, stored as sorted, non-overlapping runs.
+ *
+ * Each run is an interval of epoch days packed into a long (see Interval.pack), so a timeline
+ * with a single run costs one small long array instead of a list of Interval objects.
+ * Runs are coalesced when they are no more than the granularity apart.
+ */
+public final class Timeline
+{
+    //region --[Fields: Private]---------------------------------------
+    /** Packed runs sorted by start. */
+    private long[] runs;
+
+    /** Number of runs. */
+    private int size;
+    //endregion
+
+    //region --[Constructors]------------------------------------------
+    /** Creates an empty timeline. */
+    public Timeline()
+    {
+        this.runs = new long[1];
+        this.size = 0;
+    }
+
+    /** Creates a timeline with a single run. */
+    public Timeline(int startDay, int endDay)
+    {
+        this.runs = new long[] { Interval.pack(startDay, endDay) };
+        this.size = 1;
+    }
+
+    /** Creates a copy of the timeline. */
+    public Timeline(Timeline other)
+    {
+        this.runs = Arrays.copyOf(other.runs, Math.max(other.size, 1));
+        this.size = other.size;
+    }
+    //endregion
+
+    //region --[Methods: Private]--------------------------------------
+    /** Inserts a run at the index, shifting later runs. */
+    private void insert(int index, long run)
+    {
+        if (size == runs.length)
+            runs = Arrays.copyOf(runs, size * 2);
+        System.arraycopy(runs, index, runs, index + 1, size - index);
+        runs[index] = run;
+        size++;
+    }
+
+    /** Returns the index of the first run whose end is >= epochDay, or size if none. */
+    private int lowerBound(int epochDay)
+    {
+        var low = 0;
+        var high = size - 1;
+        while (low <= high)
+        {
+            var mid = (low + high) >>> 1;
+            if (Interval.endOf(runs[mid]) < epochDay)
+                low = mid + 1;
+            else
+                high = mid - 1;
+        }
+        return low;
+    }
+    //endregion
+
+    //region --[Methods: Public]---------------------------------------
+    /**
+     * Adds a timepoint to the timeline.
+     *
+     * Will either extend the latest run to include the new timepoint, or add a new run
+     * (break in runs represents that nothing existed in between).
+     * Timepoints that are not after the latest run's end, or are less than the granularity
+     * away from it, are ignored.
+     *
+     * @param epochDay Timepoint in epoch days.
+     * @param granularity Minimum timespan between timepoints.
+     */
+    public void addTimepoint(int epochDay, Duration granularity)
+    {
+        if (size == 0)
+        {
+            runs[0] = Interval.pack(epochDay, epochDay);
+            size = 1;
+            return;
+        }
+
+        var last = size - 1;
+        var latestEnd = Interval.endOf(runs[last]);
+        if (epochDay <= latestEnd)
+            return;
+
+        var comparison = Interval.compareDays(epochDay - latestEnd, granularity);
+        if (comparison > 0)
+        {
+            // Time since end is greater than the granularity so add a new run.
+            insert(size, Interval.pack(epochDay, epochDay));
+        }
+        else if (comparison == 0)
+        {
+            // Time since end is the granularity so extend the last run.
+            runs[last] = Interval.withEnd(runs[last], epochDay);
+        }
+    }
+
+    /**
+     * Adds an interval to the timeline in any order.
+     * Runs that overlap the interval or are at most the granularity away from it are coalesced.
+     * @param startDay Start of the interval in epoch days.
+     * @param endDay End of the interval in epoch days.
+     * @param granularity Minimum timespan between timepoints.
+     */
+    public void addInterval(int startDay, int endDay, Duration granularity)
+    {
+        // First run that could touch the new interval.
+        var first = lowerBound(startDay);
+        while (first > 0 && Interval.compareDays(startDay - Interval.endOf(runs[first - 1]), granularity) <= 0)
+            first--;
+
+        // Merge every run that touches the new interval.
+        var last = first;
+        while (last < size && Interval.compareDays(Interval.startOf(runs[last]) - endDay, granularity) <= 0)
+        {
+            startDay = Math.min(startDay, Interval.startOf(runs[last]));
+            endDay = Math.max(endDay, Interval.endOf(runs[last]));
+            last++;
+        }
+
+        if (last == first)
+        {
+            insert(first, Interval.pack(startDay, endDay));
+            return;
+        }
+
+        runs[first] = Interval.pack(startDay, endDay);
+        System.arraycopy(runs, last, runs, first + 1, size - last);
+        size -= last - first - 1;
+    }
+
+    /** Returns true if the epoch day is within any run (start and end inclusive). */
+    public boolean contains(int epochDay)
+    {
+        if (size == 0)
+            return false;
+        // Most checks are against the latest run.
+        if (Interval.startOf(runs[size - 1]) <= epochDay)
+            return epochDay <= Interval.endOf(runs[size - 1]);
+
+        var index = lowerBound(epochDay);
+        return index < size && Interval.startOf(runs[index]) <= epochDay;
+    }
+
+    /** Returns the runs as Interval objects. */
+    public List<Interval> toIntervals()
+    {
+        var intervals = new ArrayList<Interval>(size);
+        for (int i = 0; i < size; i++)
+            intervals.add(getInterval(i));
+        return intervals;
+    }
+
+    /** Writes the timeline in the format read by readFrom. */
+    void writeTo(DataOutput out) throws IOException
+    {
+        out.writeInt(size);
+        for (int i = 0; i < size; i++)
+            out.writeLong(runs[i]);
+    }
+
+    /** Reads a timeline written by writeTo. */
+    static Timeline readFrom(ByteBuffer in)
+    {
+        var timeline = new Timeline();
+        var size = in.getInt();
+        timeline.runs = new long[Math.max(size, 1)];
+        for (int i = 0; i < size; i++)
+            timeline.runs[i] = in.getLong();
+        timeline.size = size;
+        return timeline;
+    }
+    //endregion
+
+    //region --[Properties: Public]------------------------------------
+    /** Gets the number of runs. */
+    public int size() { return size; }
+
+    /** Returns true if there are no runs. */
+    public boolean isEmpty() { return size == 0; }
+
+    /** Gets the start of a run in epoch days. */
+    public int getStartDay(int index) { return Interval.startOf(runs[index]); }
+
+    /** Gets the end of a run in epoch days. */
+    public int getEndDay(int index) { return Interval.endOf(runs[index]); }
+
+    /** Gets the end of the latest run in epoch days. */
+    public int getLatestEndDay() { return Interval.endOf(runs[size - 1]); }
+
+    /** Gets a run as an Interval. */
+    public Interval getInterval(int index) { return new Interval(getStartDay(index), getEndDay(index)); }
+    //endregion
+
+    //region --[Methods: Override]-------------------------------------
+    @Override
+    public String toString() {
+        return toIntervals().toString();
+    }
+    //endregion
+}
@@ -0,0 +1,48 @@
+package infra;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns a dense int id to each vertex type so type sets can be stored as bitmasks.
+ *
+ * Unlike LabelDictionary, type masks are exact: only the first 64 types get a bit and the
+ * remaining types are not represented in a mask, so their checks fall back to the type sets.
+ */
+public final class TypeDictionary
+{
+    //region --[Fields: Private]---------------------------------------
+    /** Ids of the types seen so far. */
+    private static final ConcurrentHashMap<String, Integer> idsByType = new ConcurrentHashMap<>();
+    //endregion
+
+    //region --[Constructors]------------------------------------------
+    private TypeDictionary() { }
+    //endregion
+
+    //region --[Methods: Public]---------------------------------------
+    /**
+     * Gets the id of a type, assigning the next id if the type is new.
+     * @param type Vertex type.
+     */
+    public static int getId(String type)
+    {
+        var id = idsByType.get(type);
+        if (id != null)
+            return id;
+        synchronized (idsByType)
+        {
+            return idsByType.computeIfAbsent(type, k -> idsByType.size());
+        }
+    }
+
+    /**
+     * Gets the mask bit of a type, or 0 if the type has no bit.
+     * @param type Vertex type.
+     */
+    public static long getMask(String type)
+    {
+        var id = getId(type);
+        return id < Long.SIZE ? 1L << id : 0;
+    }
+    //endregion
+}
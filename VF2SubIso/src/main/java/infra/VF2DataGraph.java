@@ -10,25 +10,89 @@ import java.util.List;
 
 public class VF2DataGraph {
 
-    private Graph<Vertex, RelationshipEdge> graph = new DefaultDirectedGraph<>(RelationshipEdge.class);
+    // Never replaced, so a thread matching the graph and a thread forking it only read this field
+    private final Graph<Vertex, RelationshipEdge> graph;
 
     private HashMap<String, Vertex> nodeMap;
 
+    // Statistics kept up to date by the changes applied through this class (null if not collected)
+    private GraphStatistics statistics;
+
     public VF2DataGraph()
     {
+        graph=new DefaultDirectedGraph<>(RelationshipEdge.class);
         nodeMap= new HashMap<>();
     }
 
+    private VF2DataGraph(CopyOnWriteGraph graph)
+    {
+        this.graph=graph;
+    }
+
+    /**
+     * Returns a fork of the graph that shares the unchanged vertices and edges with this graph (see CopyOnWriteGraph),
+     * so changes can be applied to the fork while this graph is matched. If this graph is not a CopyOnWriteGraph
+     * (e.g. a loaded snapshot), the fork is built from a copy-on-write copy of it with the same vertex objects, which
+     * the fork copies before changing them. This graph is only read, so it can be matched by another thread
+     * meanwhile. The statistics (if any) are copied.
+     */
+    public VF2DataGraph fork()
+    {
+        CopyOnWriteGraph source;
+        if(graph instanceof CopyOnWriteGraph)
+            source=(CopyOnWriteGraph) graph;
+        else
+        {
+            source=new CopyOnWriteGraph();
+            for (Vertex v:graph.vertexSet())
+                source.addVertex(v);
+            for (RelationshipEdge e:graph.edgeSet())
+                source.addEdge(e.getSource(),e.getTarget(),new RelationshipEdge(e.getLabel()));
+        }
+        // Forking makes the source give up its vertices, so the fork copies them before any change
+        VF2DataGraph fork=new VF2DataGraph(source.fork());
+        if(statistics!=null)
+            fork.statistics=statistics.copy();
+        return fork;
+    }
+
+    // Gets the vertex of the graph that can be changed (a copy of a vertex shared with another fork)
+    private DataVertex writable(DataVertex v)
+    {
+        if(graph instanceof CopyOnWriteGraph)
+        {
+            CopyOnWriteGraph copyOnWriteGraph=(CopyOnWriteGraph) graph;
+            return copyOnWriteGraph.getWritableVertex(copyOnWriteGraph.getVertex(v.getVertexURI()));
+        }
+        return v;
+    }
+
     public Graph<Vertex, RelationshipEdge> getGraph() {
         return graph;
     }
 
+    public GraphStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Sets the statistics of the graph that are updated by addVertex, addEdge, removeEdge and the attribute updates.
+     * Changes made directly to the vertices or to getGraph() are not tracked.
+     */
+    public void setStatistics(GraphStatistics statistics) {
+        this.statistics = statistics;
+    }
+
     public void addVertex(DataVertex v)
     {
-        if(!nodeMap.containsKey(v.getVertexURI()))
+        if(getNode(v.getVertexURI())==null)
         {
             graph.addVertex(v);
-            nodeMap.put(v.getVertexURI(),v);
+            if(nodeMap!=null)
+                nodeMap.put(v.getVertexURI(),v);
+            v.trackNeighbourhood();
+            if(statistics!=null)
+                statistics.addVertex(v);
         }
 //        else
 //        {
@@ -38,21 +102,38 @@ public class VF2DataGraph {
 
     public Vertex getNode(String vertexURI)
     {
+        if(graph instanceof CopyOnWriteGraph)
+            return ((CopyOnWriteGraph) graph).getVertex(vertexURI);
         return nodeMap.getOrDefault(vertexURI, null);
     }
 
     public void addEdge(DataVertex v1, DataVertex v2, RelationshipEdge edge)
     {
-        graph.addEdge(v1,v2,edge);
+        if(graph.containsEdge(v1,v2))
+            return;
+        v1=writable(v1);
+        v2=writable(v2);
+        if(!graph.addEdge(v1,v2,edge))
+            return;
+        v1.addOutgoingEdge(edge.getLabelId());
+        v2.addIncomingEdge(edge.getLabelId());
+        if(statistics!=null)
+            statistics.addEdge(edge,graph.outDegreeOf(v1),graph.inDegreeOf(v2));
     }
 
     public void removeEdge(DataVertex v1, DataVertex v2, RelationshipEdge edge)
     {
+        v1=writable(v1);
+        v2=writable(v2);
         for (RelationshipEdge e:graph.outgoingEdgesOf(v1)) {
             DataVertex target=(DataVertex) e.getTarget();
-            if(target.getVertexURI().equals(v2.getVertexURI()) && edge.getLabel().equals(e.getLabel()))
+            if(target.getVertexURI().equals(v2.getVertexURI()) && edge.getLabelId()==e.getLabelId())
             {
                 this.graph.removeEdge(e);
+                v1.resetOutgoingEdges(graph.outgoingEdgesOf(v1));
+                v2.resetIncomingEdges(graph.incomingEdgesOf(v2));
+                if(statistics!=null)
+                    statistics.removeEdge(e,graph.outDegreeOf(v1),graph.inDegreeOf(v2));
                 return;
             }
         }
@@ -60,7 +141,7 @@ public class VF2DataGraph {
 
     public int getSize()
     {
-        return nodeMap.size();
+        return nodeMap!=null ? nodeMap.size() : graph.vertexSet().size();
     }
 
     public Graph<Vertex, RelationshipEdge> getSubGraphByDiameter(DataVertex center, int diameter)
@@ -145,7 +226,25 @@ public class VF2DataGraph {
 
     public void updateGraphByAttribute(DataVertex v1, Attribute attribute)
     {
-        nodeMap.get(v1.getVertexURI()).setOrAddAttribute(attribute);
+        Vertex v=writable((DataVertex) getNode(v1.getVertexURI()));
+        if(statistics!=null)
+        {
+            if(v.hasAttribute(attribute.getAttrName()))
+                statistics.removeAttribute(v,new Attribute(attribute.getAttrName(),v.getAttributeValueByName(attribute.getAttrName())));
+            statistics.addAttribute(v,attribute);
+        }
+        v.setOrAddAttribute(attribute);
+    }
+
+    public void deleteAttribute(DataVertex v1, Attribute attribute)
+    {
+        Vertex v=getNode(v1.getVertexURI());
+        if(!v.hasAttribute(attribute.getAttrName()))
+            return;
+        v=writable((DataVertex) v);
+        if(statistics!=null)
+            statistics.removeAttribute(v,new Attribute(attribute.getAttrName(),v.getAttributeValueByName(attribute.getAttrName())));
+        v.deleteAttribute(attribute);
     }
 
 }
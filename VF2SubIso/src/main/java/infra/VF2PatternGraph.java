@@ -3,12 +3,20 @@ package infra;
 import org.jgrapht.Graph;
 import org.jgrapht.graph.DefaultDirectedGraph;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
 public class VF2PatternGraph {
 
     private Graph<Vertex, RelationshipEdge> graph;
 
     private int diameter;
 
+    // Ordinal of each vertex in insertion order, used to index per-vertex arrays of a match
+    private HashMap<Vertex, Integer> ordinals=new HashMap<>();
+    private ArrayList<Vertex> verticesByOrdinal=new ArrayList<>();
+
     public VF2PatternGraph(int diameter)
     {
         graph= new DefaultDirectedGraph<>(RelationshipEdge.class);
@@ -35,11 +43,51 @@ public class VF2PatternGraph {
     public void addVertex(PatternVertex v)
     {
         graph.addVertex(v);
+        assignOrdinals();
+    }
+
+    /**
+     * @param v Vertex of the pattern
+     * @return Ordinal of the vertex, or -1 if the vertex is not in the pattern
+     */
+    public int getOrdinal(Vertex v)
+    {
+        Integer ordinal=ordinals.get(v);
+        if(ordinal==null && ordinals.size()!=graph.vertexSet().size())
+        {
+            // Vertices were added directly to the graph
+            assignOrdinals();
+            ordinal=ordinals.get(v);
+        }
+        return ordinal==null ? -1 : ordinal;
+    }
+
+    /**
+     * @return Vertices of the pattern indexed by their ordinal
+     */
+    public List<Vertex> getVerticesByOrdinal()
+    {
+        if(ordinals.size()!=graph.vertexSet().size())
+            assignOrdinals();
+        return verticesByOrdinal;
+    }
+
+    private void assignOrdinals()
+    {
+        for (Vertex v:graph.vertexSet()) {
+            if(!ordinals.containsKey(v))
+            {
+                ordinals.put(v,verticesByOrdinal.size());
+                verticesByOrdinal.add(v);
+            }
+        }
     }
 
     public void addEdge(PatternVertex v1, PatternVertex v2, RelationshipEdge edge)
     {
         graph.addEdge(v1,v2,edge);
+        v1.setNeighbourhood(graph.outgoingEdgesOf(v1),graph.incomingEdgesOf(v1));
+        v2.setNeighbourhood(graph.outgoingEdgesOf(v2),graph.incomingEdgesOf(v2));
     }
 
     @Override
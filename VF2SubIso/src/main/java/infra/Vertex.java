@@ -6,6 +6,9 @@ public abstract class Vertex implements Comparable<Vertex>{
 
     private Set<String> types;
 
+    // Bits of the types in TypeDictionary (types without a bit are only in the set)
+    private long typeMask;
+
     // Map of attributes using attribute name as a key
     //TODO: Check the efficiency if we just store the attributes in a set (the attribute retrieval cannot be done in O(1) and takes O(n))
     private Map<String, Attribute> attributes;
@@ -15,6 +18,7 @@ public abstract class Vertex implements Comparable<Vertex>{
     public Vertex(String type) {
         this.types=new HashSet<>();
         types.add(type);
+        typeMask=TypeDictionary.getMask(type);
         attributes= new HashMap<>();
     }
 
@@ -33,11 +37,24 @@ public abstract class Vertex implements Comparable<Vertex>{
         return types;
     }
 
+    public long getTypeMask() {
+        return typeMask;
+    }
+
     public String getAttributeValueByName(String name)
     {
         return attributes.get(name.toLowerCase()).getAttrValue();
     }
 
+    /**
+     * @param lowercaseName Attribute name that is already lowercase (e.g. from Attribute.getAttrName)
+     * @return The attribute or null if the vertex doesn't have it
+     */
+    public Attribute getAttribute(String lowercaseName)
+    {
+        return attributes.get(lowercaseName);
+    }
+
     public Collection<String> getAllAttributesNames() {
         return attributes.keySet();
     }
@@ -47,22 +64,29 @@ public abstract class Vertex implements Comparable<Vertex>{
     public void setAllAttributes(List<Attribute> attributes) {
         for (Attribute attr:attributes)
             this.attributes.put(attr.getAttrName(),attr);
+        changed();
     }
 
     public void addTypes(String type)
     {
         this.types.add(type);
+        typeMask|=TypeDictionary.getMask(type);
+        changed();
     }
 
     public void addAttribute(String name, String value)
     {
         attributes.put(name.toLowerCase(),new Attribute(name.toLowerCase(),value.toLowerCase()));
+        changed();
     }
 
     public void setOrAddAttribute(Attribute attr)
     {
         if(attributes.containsKey(attr.getAttrName()))
+        {
             attributes.get(attr.getAttrName()).setAttrValue(attr.getAttrValue());
+            changed();
+        }
         else
             addAttribute(attr);
     }
@@ -70,12 +94,16 @@ public abstract class Vertex implements Comparable<Vertex>{
     public void deleteAttribute(Attribute attr)
     {
         if(attributes.containsKey(attr.getAttrName()))
+        {
             attributes.remove(attr.getAttrName());
+            changed();
+        }
     }
 
     public void addAttribute(Attribute attr)
     {
         attributes.put(attr.getAttrName(),attr);
+        changed();
     }
 
     public boolean hasAttribute(String name)
@@ -83,6 +111,12 @@ public abstract class Vertex implements Comparable<Vertex>{
         return attributes.containsKey(name.toLowerCase());
     }
 
+    // Called after the types or attributes of the vertex changed
+    // PatternVertex overrides this to drop its compiled checks
+    protected void changed()
+    {
+    }
+
     // The function to check if two vertices can be mapped to each other in subgraph isomorphism
     // This needs to be overridden in DataVertex and PatternVertex
     public boolean isMapped(Vertex v)
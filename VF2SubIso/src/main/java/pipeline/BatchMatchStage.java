@@ -0,0 +1,159 @@
+package pipeline;
+
+import VF2Runner.PatternPlanner;
+import VF2Runner.SharedPatternMatcher;
+import VF2Runner.VF2SubgraphIsomorphism;
+import infra.RelationshipEdge;
+import infra.VF2DataGraph;
+import infra.Vertex;
+import org.jgrapht.GraphMapping;
+import util.Metrics;
+import util.myConsole;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Matches every TGFD on the whole graph of each snapshot.
+ * The changes of a snapshot are applied to a fork of the graph of the previous snapshot before matching,
+ * so the graphs of earlier snapshots are left unchanged.
+ * With sharePatterns, the TGFDs with the same pattern skeleton are matched once per skeleton (see SharedPatternMatcher).
+ * With plan, the pattern vertices are matched in the order planned from the statistics of the snapshot's graph.
+ */
+public class BatchMatchStage implements MatchStage
+{
+    //region --[Fields: Private]---------------------------------------
+    private final boolean sharePatterns;
+
+    private final boolean plan;
+
+    /** Matcher of the TGFDs of the context (created by the first match with sharePatterns). */
+    private SharedPatternMatcher sharedMatcher;
+    //endregion
+
+    //region --[Constructors]------------------------------------------
+    /** Creates a BatchMatchStage that runs VF2 once per TGFD. */
+    public BatchMatchStage()
+    {
+        this(new PipelineConfig());
+    }
+
+    /**
+     * Creates a BatchMatchStage.
+     * @param config Configuration of the run (sharePatterns, plan).
+     */
+    public BatchMatchStage(PipelineConfig config)
+    {
+        this.sharePatterns = config.sharePatterns;
+        this.plan = config.plan;
+    }
+    //endregion
+
+    //region --[Methods: Protected]------------------------------------
+    /** Sets the graph of the snapshot as the current graph of the context. */
+    protected void updateGraph(Snapshot snapshot, PipelineContext context)
+    {
+        if (snapshot.hasChanges())
+        {
+            if (context.getGraphLoader() == null)
+                throw new IllegalStateException("Snapshot " + snapshot.getId() + " has changes but no previous graph");
+            var loader = context.getGraphLoader().fork();
+            loader.updateGraphWithChanges(snapshot.getChanges());
+            context.setGraphLoader(loader);
+        }
+        else
+        {
+            context.setGraphLoader(snapshot.getLoader());
+        }
+    }
+
+    /** Gets the matcher of the TGFDs of the context if the stage shares patterns, otherwise null. */
+    protected SharedPatternMatcher getSharedMatcher(PipelineContext context)
+    {
+        if (sharePatterns && sharedMatcher == null)
+        {
+            sharedMatcher = new SharedPatternMatcher(context.getTGFDs());
+            myConsole.print("Number of pattern skeletons: " + sharedMatcher.getSkeletonCount());
+        }
+        return sharedMatcher;
+    }
+
+    /** Gets the planner of the current graph of the context if the stage plans, otherwise null. */
+    protected PatternPlanner getPlanner(PipelineContext context)
+    {
+        var statistics = context.getGraphLoader().getStatistics();
+        return plan && statistics != null ? new PatternPlanner(statistics) : null;
+    }
+
+    /**
+     * Collects the mappings of every TGFD by name with a single VF2 run per pattern skeleton.
+     * The matcher only returns PatternMappings, so the collected mappings hold one data vertex per pattern vertex.
+     * @param matcher Matcher of the TGFDs of the context.
+     * @param planner Planner of the matching order (null to match in pattern order).
+     * @param context Context of the run.
+     * @param graph Graph to match.
+     */
+    protected static HashMap<String, List<GraphMapping<Vertex, RelationshipEdge>>> matchShared(
+        SharedPatternMatcher matcher,
+        PatternPlanner planner,
+        PipelineContext context,
+        VF2DataGraph graph)
+    {
+        var mappingsByTGFD = new HashMap<String, List<GraphMapping<Vertex, RelationshipEdge>>>();
+        for (var tgfd : context.getTGFDs())
+            mappingsByTGFD.put(tgfd.getName(), new ArrayList<>());
+
+        var startTime = System.currentTimeMillis();
+        var skeletonMappingCount = matcher.execute(graph, planner,
+            (tgfd, mapping) -> mappingsByTGFD.get(tgfd.getName()).add(mapping));
+        myConsole.print("Shared match (" + skeletonMappingCount + " skeleton mappings)", System.currentTimeMillis() - startTime);
+        return mappingsByTGFD;
+    }
+
+    /** Matches every TGFD on the current graph of the context. */
+    protected void matchAll(Snapshot snapshot, PipelineContext context)
+    {
+        var graph = context.getGraphLoader().getGraph();
+        var matcher = getSharedMatcher(context);
+        var planner = getPlanner(context);
+        if (matcher != null)
+        {
+            var mappingsByTGFD = matchShared(matcher, planner, context, graph);
+            for (var tgfd : context.getTGFDs())
+            {
+                Metrics.setTGFD(tgfd.getName());
+                var startTime = System.currentTimeMillis();
+                context.getMatches(tgfd.getName()).addMatches(snapshot.getTimestamp(), mappingsByTGFD.get(tgfd.getName()).iterator());
+                myConsole.print("Match retrieval (" + tgfd.getName() + ")", System.currentTimeMillis() - startTime);
+            }
+            Metrics.setTGFD(null);
+            return;
+        }
+
+        for (var tgfd : context.getTGFDs())
+        {
+            myConsole.print("\n###########" + tgfd.getName() + "###########");
+            Metrics.setTGFD(tgfd.getName());
+            var VF2 = new VF2SubgraphIsomorphism(planner);
+            Iterator<GraphMapping<Vertex, RelationshipEdge>> results = VF2.execute(graph, tgfd.getPattern(), false);
+
+            //Retrieving and storing the matches of each timestamp.
+            var startTime = System.currentTimeMillis();
+            context.getMatches(tgfd.getName()).addMatches(snapshot.getTimestamp(), results);
+            myConsole.print("Match retrieval", System.currentTimeMillis() - startTime);
+        }
+        Metrics.setTGFD(null);
+    }
+    //endregion
+
+    //region --[Methods: Public]---------------------------------------
+    @Override
+    public void match(Snapshot snapshot, PipelineContext context)
+    {
+        updateGraph(snapshot, context);
+        matchAll(snapshot, context);
+    }
+    //endregion
+}
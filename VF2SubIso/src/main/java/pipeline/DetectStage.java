@@ -0,0 +1,60 @@
+package pipeline;
+
+import BatchViolation.GFDBatchTED;
+import BatchViolation.NaiveBatchTED;
+import BatchViolation.OptBatchTED;
+import infra.MatchCollection;
+import infra.TGFD;
+import infra.Violation;
+
+import java.util.Set;
+import java.util.function.BiFunction;
+
+/**
+ * Finds the violations of a TGFD in its matches.
+ */
+public interface DetectStage
+{
+    /** Gets the name of the method (used in the logs and violation files). */
+    String getName();
+
+    /**
+     * Finds the violations of a TGFD.
+     * @param tgfd TGFD.
+     * @param matches Matches of the TGFD across all snapshots.
+     */
+    Set<Violation> detect(TGFD tgfd, MatchCollection matches);
+
+    /**
+     * Gets the detect stage of a TED method.
+     * @param method naive, optimized or gfd.
+     * @exception IllegalArgumentException if the method is unknown.
+     */
+    static DetectStage forMethod(String method)
+    {
+        switch (method)
+        {
+            case "naive": return of(method, (tgfd, matches) -> new NaiveBatchTED(matches, tgfd).findViolations());
+            case "optimized": return of(method, (tgfd, matches) -> new OptBatchTED(matches, tgfd).findViolations());
+            case "gfd": return of(method, (tgfd, matches) -> new GFDBatchTED(matches, tgfd).findViolations());
+            default: throw new IllegalArgumentException("Unknown TED method: " + method);
+        }
+    }
+
+    /**
+     * Creates a named detect stage from a function.
+     * @param name Name of the method.
+     * @param detect Finds the violations of a TGFD in its matches.
+     */
+    static DetectStage of(String name, BiFunction<TGFD, MatchCollection, Set<Violation>> detect)
+    {
+        return new DetectStage()
+        {
+            @Override
+            public String getName() { return name; }
+
+            @Override
+            public Set<Violation> detect(TGFD tgfd, MatchCollection matches) { return detect.apply(tgfd, matches); }
+        };
+    }
+}
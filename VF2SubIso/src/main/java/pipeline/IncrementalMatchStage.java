@@ -0,0 +1,77 @@
+package pipeline;
+
+import IncrementalRunner.IncUpdates;
+import util.myConsole;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+/**
+ * Matches a loaded snapshot in batch and updates the matches by the changes of the following snapshots:
+ * each change is applied to the graph and the matches around it are found again before and after the change.
+ */
+public class IncrementalMatchStage extends BatchMatchStage
+{
+    //region --[Constructors]------------------------------------------
+    /**
+     * Creates an IncrementalMatchStage.
+     * @param config Configuration of the run (sharePatterns and plan for the snapshots matched in batch).
+     */
+    public IncrementalMatchStage(PipelineConfig config)
+    {
+        super(config);
+    }
+    //endregion
+
+    //region --[Methods: Public]---------------------------------------
+    @Override
+    public void match(Snapshot snapshot, PipelineContext context)
+    {
+        if (!snapshot.hasChanges())
+        {
+            super.match(snapshot, context);
+            return;
+        }
+        if (context.getGraphLoader() == null)
+            throw new IllegalStateException("Snapshot " + snapshot.getId() + " has changes but no previous graph");
+
+        var startTime = System.currentTimeMillis();
+        myConsole.print("Updating the graph");
+        var timestamp = snapshot.getTimestamp();
+        var incUpdates = new IncUpdates(context.getGraphLoader().getGraph());
+        incUpdates.AddNewVertices(snapshot.getChanges());
+
+        // Whether each signature (w.r.t. the pattern) was added (true) or removed (false) by its latest change.
+        // A match added by a change and removed by a later change of the snapshot is removed, and vice versa.
+        var isAddedBySignatureByTGFD = new HashMap<String, LinkedHashMap<String, Boolean>>();
+        for (var tgfd : context.getTGFDs())
+            isAddedBySignatureByTGFD.put(tgfd.getName(), new LinkedHashMap<>());
+        for (var change : snapshot.getChanges())
+        {
+            var incrementalChanges = incUpdates.updateGraph(change, context.getTGFDsByName());
+            if (incrementalChanges == null)
+                continue;
+            for (var entry : incrementalChanges.entrySet())
+            {
+                var tgfdName = entry.getKey();
+                var isAddedBySignature = isAddedBySignatureByTGFD.get(tgfdName);
+                for (var signature : entry.getValue().getNewMatches().keySet())
+                    isAddedBySignature.put(signature, true);
+                for (var signature : entry.getValue().getRemovedMatchesSignatures())
+                    isAddedBySignature.put(signature, false);
+                context.getMatches(tgfdName).addMatches(timestamp, entry.getValue().getNewMatches());
+            }
+        }
+        for (var tgfd : context.getTGFDs())
+        {
+            var newMatchesSignatures = new ArrayList<String>();
+            var removedMatchesSignatures = new ArrayList<String>();
+            for (var entry : isAddedBySignatureByTGFD.get(tgfd.getName()).entrySet())
+                (entry.getValue() ? newMatchesSignatures : removedMatchesSignatures).add(entry.getKey());
+            context.getMatches(tgfd.getName()).addTimestamp(timestamp, newMatchesSignatures, removedMatchesSignatures);
+        }
+        myConsole.print("Update and retrieve matches ", System.currentTimeMillis() - startTime);
+    }
+    //endregion
+}
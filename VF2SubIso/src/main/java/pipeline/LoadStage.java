@@ -0,0 +1,16 @@
+package pipeline;
+
+/**
+ * Loads the snapshots of a run.
+ *
+ * load may be called for the next snapshot while the current snapshot is matched (see PipelineConfig.overlap),
+ * so it must not depend on the graph of the previous snapshots.
+ */
+public interface LoadStage
+{
+    /**
+     * Loads a snapshot.
+     * @param snapshotId Id of the snapshot.
+     */
+    Snapshot load(int snapshotId);
+}
@@ -0,0 +1,20 @@
+package pipeline;
+
+/**
+ * Finds the matches of the TGFDs in a snapshot and adds them to the match collections of the context.
+ */
+public interface MatchStage
+{
+    /**
+     * Matches a snapshot. Snapshots are matched in increasing order.
+     * @param snapshot Snapshot to match.
+     * @param context State of the run (current graph and match collections).
+     */
+    void match(Snapshot snapshot, PipelineContext context);
+
+    /**
+     * Completes the matching after the last snapshot (e.g. adds the matches that are still pending).
+     * @param context State of the run.
+     */
+    default void finish(PipelineContext context) { }
+}
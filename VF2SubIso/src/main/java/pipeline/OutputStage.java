@@ -0,0 +1,20 @@
+package pipeline;
+
+import infra.TGFD;
+import infra.Violation;
+
+import java.util.Set;
+
+/**
+ * Receives the violations found by a detect stage.
+ */
+public interface OutputStage
+{
+    /**
+     * Outputs the violations of a TGFD.
+     * @param tgfd TGFD.
+     * @param method Name of the detect stage that found the violations.
+     * @param violations Violations of the TGFD.
+     */
+    void output(TGFD tgfd, String method, Set<Violation> violations);
+}
@@ -0,0 +1,175 @@
+package pipeline;
+
+import VF2Runner.PatternPlanner;
+import VF2Runner.SharedPatternMatcher;
+import VF2Runner.VF2SubgraphIsomorphism;
+import infra.PatternMapping;
+import infra.RelationshipEdge;
+import infra.VF2DataGraph;
+import infra.Vertex;
+import org.jgrapht.GraphMapping;
+import util.Metrics;
+import util.myConsole;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Batch mode that matches several snapshots concurrently.
+ *
+ * Each snapshot is matched on its own graph (a fork of the previous snapshot's graph, see BatchMatchStage) by a
+ * worker thread that collects the mappings of every TGFD as PatternMappings. The mappings are added to the match
+ * collections by the pipeline thread in the order of the snapshots, as MatchCollection requires increasing
+ * timestamps. At most `parallelism` snapshots are matched or waiting to be added at a time.
+ */
+public class ParallelBatchMatchStage extends BatchMatchStage
+{
+    //region --[Classes: Private]--------------------------------------
+    /** Snapshot being matched by a worker. */
+    private static class PendingSnapshot
+    {
+        public final Snapshot snapshot;
+        /** Mappings of each TGFD by name. */
+        public final CompletableFuture<HashMap<String, List<GraphMapping<Vertex, RelationshipEdge>>>> mappings;
+
+        public PendingSnapshot(
+            Snapshot snapshot,
+            CompletableFuture<HashMap<String, List<GraphMapping<Vertex, RelationshipEdge>>>> mappings)
+        {
+            this.snapshot = snapshot;
+            this.mappings = mappings;
+        }
+    }
+    //endregion
+
+    //region --[Fields: Private]---------------------------------------
+    private final int parallelism;
+    private final ExecutorService executor;
+    private final ArrayDeque<PendingSnapshot> pending = new ArrayDeque<>();
+    //endregion
+
+    //region --[Constructors]------------------------------------------
+    /**
+     * @param config Configuration of the run (parallelSnapshots: number of snapshots matched concurrently, sharePatterns, plan).
+     */
+    public ParallelBatchMatchStage(PipelineConfig config)
+    {
+        super(config);
+        if (config.parallelSnapshots < 1)
+            throw new IllegalArgumentException("parallelism must be at least 1: " + config.parallelSnapshots);
+        this.parallelism = config.parallelSnapshots;
+
+        var threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            var thread = new Thread(runnable, "snapshot-matcher-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    //endregion
+
+    //region --[Methods: Private]--------------------------------------
+    /**
+     * Collects the mappings of every TGFD on the graph of the snapshot (run by a worker).
+     * @param matcher Matcher of the TGFDs of the context (null to run VF2 once per TGFD).
+     * @param planner Planner of the matching order (null to match in pattern order).
+     */
+    private static HashMap<String, List<GraphMapping<Vertex, RelationshipEdge>>> matchTGFDs(
+        Snapshot snapshot,
+        PipelineContext context,
+        VF2DataGraph graph,
+        SharedPatternMatcher matcher,
+        PatternPlanner planner)
+    {
+        Metrics.setSnapshot(String.valueOf(snapshot.getId()));
+        if (matcher != null)
+            return matchShared(matcher, planner, context, graph);
+
+        var mappingsByTGFD = new HashMap<String, List<GraphMapping<Vertex, RelationshipEdge>>>();
+        for (var tgfd : context.getTGFDs())
+        {
+            Metrics.setTGFD(tgfd.getName());
+            var startTime = System.currentTimeMillis();
+            var VF2 = new VF2SubgraphIsomorphism(planner);
+            Iterator<GraphMapping<Vertex, RelationshipEdge>> results = VF2.execute(graph, tgfd.getPattern(), false);
+            var mappings = new ArrayList<GraphMapping<Vertex, RelationshipEdge>>();
+            // The mappings of VF2 hold maps sized to the data graph, so only their pattern vertices are kept.
+            if (results != null)
+                results.forEachRemaining(mapping -> mappings.add(PatternMapping.of(tgfd.getPattern(), mapping)));
+            mappingsByTGFD.put(tgfd.getName(), mappings);
+            myConsole.print("Match (" + snapshot.getId() + ", " + tgfd.getName() + ")", System.currentTimeMillis() - startTime);
+        }
+        Metrics.setTGFD(null);
+        return mappingsByTGFD;
+    }
+
+    /** Adds the mappings of the oldest pending snapshot to the match collections. */
+    private void addOldest(PipelineContext context)
+    {
+        var oldest = pending.poll();
+        HashMap<String, List<GraphMapping<Vertex, RelationshipEdge>>> mappingsByTGFD;
+        try
+        {
+            mappingsByTGFD = oldest.mappings.join();
+        }
+        catch (CompletionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException)e.getCause();
+            throw e;
+        }
+
+        Metrics.setSnapshot(String.valueOf(oldest.snapshot.getId()));
+        for (var tgfd : context.getTGFDs())
+        {
+            Metrics.setTGFD(tgfd.getName());
+            var startTime = System.currentTimeMillis();
+            var mappings = mappingsByTGFD.get(tgfd.getName());
+            context.getMatches(tgfd.getName()).addMatches(oldest.snapshot.getTimestamp(), mappings.iterator());
+            myConsole.print("Match retrieval (" + oldest.snapshot.getId() + ", " + tgfd.getName() + ")",
+                System.currentTimeMillis() - startTime);
+        }
+        Metrics.setTGFD(null);
+    }
+    //endregion
+
+    //region --[Methods: Public]---------------------------------------
+    @Override
+    public void match(Snapshot snapshot, PipelineContext context)
+    {
+        // Keep at most `parallelism` snapshots (and their graphs and mappings) in flight
+        while (pending.size() >= parallelism)
+            addOldest(context);
+
+        updateGraph(snapshot, context);
+        var graph = context.getGraphLoader().getGraph();
+        var matcher = getSharedMatcher(context);
+        var planner = getPlanner(context);
+        pending.add(new PendingSnapshot(
+            snapshot,
+            CompletableFuture.supplyAsync(() -> matchTGFDs(snapshot, context, graph, matcher, planner), executor)));
+    }
+
+    @Override
+    public void finish(PipelineContext context)
+    {
+        try
+        {
+            while (!pending.isEmpty())
+                addOldest(context);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+    //endregion
+}
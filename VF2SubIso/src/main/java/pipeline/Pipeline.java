@@ -0,0 +1,232 @@
+package pipeline;
+
+import TGFDLoader.TGFDGenerator;
+import VF2Runner.PatternPlanner;
+import VF2Runner.SharedPatternMatcher;
+import util.Metrics;
+import util.Progress;
+import util.myConsole;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs the stages load -> match (batch or incremental) -> detect -> output over the snapshots of a run.
+ *
+ * With overlap, the next snapshot is loaded by a background thread while the current snapshot is matched.
+ * Loading reads files into a new graph or a change list, so it is independent of the matching; with prefetch,
+ * the changes are also applied to a fork of the graph being matched (see PrefetchLoadStage). At most one
+ * snapshot is loaded ahead, so at most two snapshots are in memory.
+ */
+public class Pipeline
+{
+    //region --[Fields: Private]---------------------------------------
+    private final PipelineConfig config;
+    private final PipelineContext context;
+    private final LoadStage loadStage;
+    private final MatchStage matchStage;
+    private final List<DetectStage> detectStages;
+    private final OutputStage outputStage;
+    //endregion
+
+    //region --[Constructors]------------------------------------------
+    /**
+     * Creates a pipeline from its stages.
+     * @param config Snapshots and options of the run.
+     * @param context TGFDs and match collections of the run.
+     * @param loadStage Loads the snapshots.
+     * @param matchStage Finds the matches of each snapshot.
+     * @param detectStages Find the violations of each TGFD after all snapshots are matched.
+     * @param outputStage Receives the violations.
+     */
+    public Pipeline(
+        PipelineConfig config,
+        PipelineContext context,
+        LoadStage loadStage,
+        MatchStage matchStage,
+        List<DetectStage> detectStages,
+        OutputStage outputStage)
+    {
+        this.config = config;
+        this.context = context;
+        this.loadStage = loadStage;
+        this.matchStage = matchStage;
+        this.detectStages = detectStages;
+        this.outputStage = outputStage;
+    }
+
+    /**
+     * Creates the pipeline of a configuration: SnapshotLoader (wrapped by PrefetchLoadStage with prefetch in batch mode),
+     * BatchMatchStage, ParallelBatchMatchStage or IncrementalMatchStage by the mode and the number of parallel snapshots,
+     * the TED methods of the configuration and ViolationWriter.
+     * @param config Configuration of the run.
+     */
+    public static Pipeline fromConfig(PipelineConfig config)
+    {
+        var tgfds = new TGFDGenerator(config.patternPath).getTGFDs();
+        var detectStages = new ArrayList<DetectStage>();
+        for (var method : config.tedMethods)
+            detectStages.add(DetectStage.forMethod(method));
+
+        LoadStage loadStage = new SnapshotLoader(config, tgfds);
+        if (config.prefetch && config.mode == PipelineConfig.Mode.batch)
+            loadStage = new PrefetchLoadStage(loadStage);
+
+        return new Pipeline(
+            config,
+            new PipelineContext(tgfds),
+            loadStage,
+            createMatchStage(config),
+            detectStages,
+            new ViolationWriter());
+    }
+    //endregion
+
+    //region --[Methods: Private]--------------------------------------
+    private static MatchStage createMatchStage(PipelineConfig config)
+    {
+        if (config.mode == PipelineConfig.Mode.incremental)
+            return new IncrementalMatchStage(config);
+        return config.parallelSnapshots > 1 ? new ParallelBatchMatchStage(config) : new BatchMatchStage(config);
+    }
+
+    private static Snapshot join(CompletableFuture<Snapshot> future)
+    {
+        try
+        {
+            return future.join();
+        }
+        catch (CompletionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException)e.getCause();
+            throw e;
+        }
+    }
+    //endregion
+
+    //region --[Methods: Public]---------------------------------------
+    /**
+     * Loads the first snapshot and returns the matching plan of every TGFD (of every pattern skeleton with
+     * sharePatterns) from the statistics of its graph, without matching.
+     */
+    public String explain()
+    {
+        var ids = config.getSnapshotIds();
+        if (ids.isEmpty())
+            return "No snapshots\n";
+
+        var snapshot = loadStage.load(ids.get(0));
+        var statistics = snapshot.getLoader().getStatistics();
+        if (statistics == null)
+            return "No statistics for snapshot " + snapshot.getId() + "\n";
+
+        var planner = new PatternPlanner(statistics);
+        if (config.sharePatterns)
+            return new SharedPatternMatcher(context.getTGFDs()).explain(planner);
+
+        var builder = new StringBuilder();
+        for (var tgfd : context.getTGFDs())
+        {
+            builder.append("TGFD: ").append(tgfd.getName()).append('\n');
+            builder.append(planner.plan(tgfd.getPattern()).explain());
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Matches all snapshots, finds the violations and saves the logs and metrics of the run.
+     * The context is closed at the end of the run.
+     */
+    public void run()
+    {
+        var wallClockStart = System.currentTimeMillis();
+        Progress.start();
+
+        try
+        {
+            var ids = config.getSnapshotIds();
+            ExecutorService loader = config.overlap
+                ? Executors.newSingleThreadExecutor(runnable -> {
+                    var thread = new Thread(runnable, "snapshot-loader");
+                    thread.setDaemon(true);
+                    return thread;
+                })
+                : null;
+            try
+            {
+                CompletableFuture<Snapshot> next = null;
+                for (int i = 0; i < ids.size(); i++)
+                {
+                    Snapshot snapshot;
+                    if (next != null)
+                    {
+                        snapshot = join(next);
+                    }
+                    else
+                    {
+                        myConsole.print("-----------Snapshot (" + ids.get(i) + ")-----------");
+                        snapshot = loadStage.load(ids.get(i));
+                    }
+
+                    next = null;
+                    if (loader != null && i + 1 < ids.size())
+                    {
+                        var nextId = ids.get(i + 1);
+                        next = CompletableFuture.supplyAsync(() -> {
+                            myConsole.print("-----------Snapshot (" + nextId + ")-----------");
+                            return loadStage.load(nextId);
+                        }, loader);
+                    }
+
+                    Metrics.setSnapshot(String.valueOf(snapshot.getId()));
+                    Metrics.setTGFD(null);
+                    matchStage.match(snapshot, context);
+                }
+                matchStage.finish(context);
+            }
+            finally
+            {
+                if (loader != null)
+                    loader.shutdownNow();
+            }
+
+            Metrics.setSnapshot(null);
+            for (var tgfd : context.getTGFDs())
+            {
+                myConsole.print("===========" + tgfd.getName() + "===========");
+                Metrics.setTGFD(tgfd.getName());
+                for (var detectStage : detectStages)
+                {
+                    myConsole.print("Running the " + detectStage.getName() + " TED");
+                    var startTime = System.currentTimeMillis();
+                    var violations = detectStage.detect(tgfd, context.getMatches(tgfd.getName()));
+                    myConsole.print(detectStage.getName() + " TED", System.currentTimeMillis() - startTime);
+                    outputStage.output(tgfd, detectStage.getName(), violations);
+                }
+            }
+            Metrics.setTGFD(null);
+        }
+        finally
+        {
+            context.close();
+        }
+
+        myConsole.print("Total wall clock time: ", System.currentTimeMillis() - wallClockStart);
+        Progress.stop();
+        var runTime = LocalDateTime.now().toString();
+        myConsole.saveLogs(config.runName + runTime + ".txt");
+        Metrics.save("metrics_" + config.runName.replaceFirst("^run_", "") + runTime);
+    }
+    //endregion
+
+    //region --[Properties: Public]------------------------------------
+    /** Gets the TGFDs and match collections of the run (closed once the run ends). */
+    public PipelineContext getContext() { return context; }
+    //endregion
+}
@@ -0,0 +1,175 @@
+package pipeline;
+
+import util.properties;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Scanner;
+import java.util.TreeSet;
+
+/**
+ * Configuration of a pipeline run read from a file with one "<key> <value>" pair per line.
+ *
+ * Keys:
+ *   -p <patternFile>                     TGFDs to check
+ *   -t<snapshotId> <typeFile>            DBpedia types of a snapshot (repeatable)
+ *   -d<snapshotId> <dataFile>            Data of a snapshot (repeatable for DBpedia)
+ *   -c<snapshotId> <changeFile>          Changes from the previous snapshot (ignored for the first snapshot)
+ *   -s<snapshotId> <date>                Timestamp of a snapshot
+ *   -dataset dbpedia|imdb                Format of the snapshots (default dbpedia)
+ *   -mode batch|incremental              Match every snapshot or update the matches by the changes (default batch)
+ *   -ted naive,optimized,gfd             TED methods to run (default optimized)
+ *   -overlap true|false                  Load the next snapshot while matching the current one (default true)
+ *   -prefetch true|false                 In batch mode, apply the changes of the next snapshot to a fork of the
+ *                                        current graph while it is matched (default true)
+ *   -parallel <n>                        In batch mode, match up to n snapshots concurrently (default 1)
+ *   -sharepatterns true|false            Match the TGFDs with the same pattern skeleton once per skeleton when a
+ *                                        snapshot is matched in batch (default false, see SharedPatternMatcher)
+ *   -plan true|false                     Order the pattern vertices by the statistics of each snapshot's graph when
+ *                                        a snapshot is matched in batch (default false, see PatternPlanner)
+ *   -saveviolations true|false           Save the violations of each TED method and TGFD
+ *   -optgraphload true|false             Only load the types and attributes used by the TGFDs
+ *   -savestatistics true|false           Save the graph statistics next to each loaded snapshot and reuse them
+ *                                        when the snapshot is loaded again (default false, see GraphLoader)
+ *   -monitor <seconds>                   Report the progress periodically
+ *   -monitorfile <path>                  Append the progress as CSV to a file
+ */
+public class PipelineConfig
+{
+    //region --[Enums: Public]-----------------------------------------
+    /** Format of the snapshots. */
+    public enum Dataset { dbpedia, imdb }
+
+    /** How the matches of the snapshots after the first one are found. */
+    public enum Mode { batch, incremental }
+    //endregion
+
+    //region --[Fields: Public]----------------------------------------
+    /** Path of the TGFD file. */
+    public String patternPath = "";
+
+    /** Format of the snapshots. */
+    public Dataset dataset = Dataset.dbpedia;
+
+    /** How the matches of the snapshots after the first one are found. */
+    public Mode mode = Mode.batch;
+
+    /** TED methods to run (see DetectStage.forMethod). */
+    public List<String> tedMethods = new ArrayList<>(List.of("optimized"));
+
+    /** Load the next snapshot while matching the current one. */
+    public boolean overlap = true;
+
+    /** In batch mode, load the snapshots given by their changes into a fork of the previous graph (see PrefetchLoadStage). */
+    public boolean prefetch = true;
+
+    /** In batch mode, number of snapshots matched concurrently (see ParallelBatchMatchStage). */
+    public int parallelSnapshots = 1;
+
+    /** Match the TGFDs with the same pattern skeleton once per skeleton when a snapshot is matched in batch (see SharedPatternMatcher). */
+    public boolean sharePatterns = false;
+
+    /** Order the pattern vertices by the statistics of each snapshot's graph when a snapshot is matched in batch (see PatternPlanner). */
+    public boolean plan = false;
+
+    /** Prefix of the log file (followed by the time of the run). */
+    public String runName = "run_";
+
+    /** Type files of each snapshot. */
+    public HashMap<Integer, ArrayList<String>> typePathsById = new HashMap<>();
+
+    /** Data files of each snapshot. */
+    public HashMap<Integer, ArrayList<String>> dataPathsById = new HashMap<>();
+
+    /** Change file of each snapshot. */
+    public HashMap<Integer, String> changePathsById = new HashMap<>();
+
+    /** Timestamp of each snapshot. */
+    public HashMap<Integer, LocalDate> timestamps = new HashMap<>();
+    //endregion
+
+    //region --[Methods: Public]---------------------------------------
+    /**
+     * Reads a configuration file (see the class comment for the keys).
+     * Keys that set util.properties are applied to properties.myProperties.
+     * @param path Path of the configuration file.
+     */
+    public static PipelineConfig parse(String path) throws FileNotFoundException
+    {
+        var config = new PipelineConfig();
+        config.read(path);
+        return config;
+    }
+
+    /**
+     * Reads a configuration file into this configuration, keeping the values of the keys that are not in the file.
+     * @param path Path of the configuration file.
+     */
+    public void read(String path) throws FileNotFoundException
+    {
+        try (var scanner = new Scanner(new File(path)))
+        {
+            while (scanner.hasNextLine())
+            {
+                var conf = scanner.nextLine().split(" ");
+                if (conf.length != 2)
+                    continue;
+
+                // Named keys first as they share their first letter with the snapshot keys
+                var key = conf[0].toLowerCase();
+                switch (key)
+                {
+                    case "-dataset": this.dataset = Dataset.valueOf(conf[1].toLowerCase()); continue;
+                    case "-mode": this.mode = Mode.valueOf(conf[1].toLowerCase()); continue;
+                    case "-ted": this.tedMethods = new ArrayList<>(Arrays.asList(conf[1].toLowerCase().split(","))); continue;
+                    case "-overlap": this.overlap = Boolean.parseBoolean(conf[1]); continue;
+                    case "-prefetch": this.prefetch = Boolean.parseBoolean(conf[1]); continue;
+                    case "-parallel": this.parallelSnapshots = Integer.parseInt(conf[1]); continue;
+                    case "-sharepatterns": this.sharePatterns = Boolean.parseBoolean(conf[1]); continue;
+                    case "-plan": this.plan = Boolean.parseBoolean(conf[1]); continue;
+                    case "-saveviolations": properties.myProperties.saveViolations = Boolean.parseBoolean(conf[1]); continue;
+                    case "-optgraphload": properties.myProperties.optimizedLoadingBasedOnTGFD = Boolean.parseBoolean(conf[1]); continue;
+                    case "-savestatistics": properties.myProperties.saveGraphStatistics = Boolean.parseBoolean(conf[1]); continue;
+                    case "-monitorfile": properties.myProperties.progressFile = conf[1]; continue;
+                    case "-monitor": properties.myProperties.progressIntervalSeconds = Integer.parseInt(conf[1]); continue;
+                    case "-p": this.patternPath = conf[1]; continue;
+                }
+
+                if (key.length() < 3)
+                    continue;
+                var snapshotId = Integer.parseInt(key.substring(2));
+                switch (key.substring(0, 2))
+                {
+                    case "-t": this.typePathsById.computeIfAbsent(snapshotId, k -> new ArrayList<>()).add(conf[1]); break;
+                    case "-d": this.dataPathsById.computeIfAbsent(snapshotId, k -> new ArrayList<>()).add(conf[1]); break;
+                    case "-c": this.changePathsById.put(snapshotId, conf[1]); break;
+                    case "-s": this.timestamps.put(snapshotId, LocalDate.parse(conf[1])); break;
+                }
+            }
+        }
+    }
+
+    /** Gets the ids of the snapshots with data or changes in increasing order. */
+    public List<Integer> getSnapshotIds()
+    {
+        var ids = new TreeSet<>(dataPathsById.keySet());
+        ids.addAll(changePathsById.keySet());
+        return new ArrayList<>(ids);
+    }
+
+    /**
+     * Returns true if the snapshot is loaded from its changes (it is not the first snapshot and has a change file).
+     * @param snapshotId Id of the snapshot.
+     */
+    public boolean isLoadedFromChanges(int snapshotId)
+    {
+        var ids = getSnapshotIds();
+        return changePathsById.containsKey(snapshotId) && !ids.isEmpty() && ids.get(0) != snapshotId;
+    }
+    //endregion
+}
@@ -0,0 +1,85 @@
+package pipeline;
+
+import graphLoader.GraphLoader;
+import infra.MatchCollection;
+import infra.TGFD;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * State of a pipeline run shared by the stages: the TGFDs, their match collections and the current graph.
+ * Closing the context closes the match collections (and the files of their spilled matches).
+ */
+public class PipelineContext implements AutoCloseable
+{
+    //region --[Fields: Private]---------------------------------------
+    private final List<TGFD> tgfds;
+
+    private final HashMap<String, TGFD> tgfdsByName = new HashMap<>();
+
+    private final HashMap<String, MatchCollection> matchesByTGFD = new HashMap<>();
+
+    /** Loader of the graph of the latest matched snapshot. */
+    private GraphLoader graphLoader;
+    //endregion
+
+    //region --[Constructors]------------------------------------------
+    /**
+     * Creates a context with an empty match collection per TGFD.
+     * @param tgfds TGFDs of the run.
+     */
+    public PipelineContext(List<TGFD> tgfds)
+    {
+        this.tgfds = tgfds;
+        for (var tgfd : tgfds)
+        {
+            tgfdsByName.put(tgfd.getName(), tgfd);
+            matchesByTGFD.put(tgfd.getName(),
+                new MatchCollection(tgfd.getPattern(), tgfd.getDependency(), tgfd.getDelta().getGranularity()));
+        }
+    }
+    //endregion
+
+    //region --[Methods: Public]---------------------------------------
+    /** Closes every match collection, even if closing one of them fails. */
+    @Override
+    public void close()
+    {
+        RuntimeException failure = null;
+        for (var matches : matchesByTGFD.values())
+        {
+            try
+            {
+                matches.close();
+            }
+            catch (RuntimeException e)
+            {
+                if (failure == null)
+                    failure = e;
+                else
+                    failure.addSuppressed(e);
+            }
+        }
+        if (failure != null)
+            throw failure;
+    }
+    //endregion
+
+    //region --[Properties: Public]------------------------------------
+    /** Gets the TGFDs of the run. */
+    public List<TGFD> getTGFDs() { return tgfds; }
+
+    /** Gets the TGFDs by name. */
+    public HashMap<String, TGFD> getTGFDsByName() { return tgfdsByName; }
+
+    /** Gets the match collection of a TGFD. */
+    public MatchCollection getMatches(String tgfdName) { return matchesByTGFD.get(tgfdName); }
+
+    /** Gets the loader of the graph of the latest matched snapshot (null before the first snapshot). */
+    public GraphLoader getGraphLoader() { return graphLoader; }
+
+    /** Sets the loader of the graph of the current snapshot. */
+    public void setGraphLoader(GraphLoader graphLoader) { this.graphLoader = graphLoader; }
+    //endregion
+}
@@ -0,0 +1,38 @@
+package pipeline;
+
+import java.io.FileNotFoundException;
+
+/**
+ * Runs the pipeline of a configuration file (see PipelineConfig for the keys).
+ *
+ * Example:
+ *   PipelineRunner conf.txt
+ * with conf.txt:
+ *   -p patterns.txt
+ *   -dataset imdb
+ *   -mode incremental
+ *   -ted naive,optimized
+ *   -d1 imdb-2000.nt
+ *   -s1 2000-01-01
+ *   -c2 changes-2001.json
+ *   -s2 2001-01-01
+ *
+ * With -explain after the configuration file, the first snapshot is loaded and the matching plan of each TGFD
+ * is printed instead of running the pipeline.
+ */
+public class PipelineRunner
+{
+    public static void main(String[] args) throws FileNotFoundException
+    {
+        if (args.length < 1)
+        {
+            System.out.println("Usage: PipelineRunner <configFile> [-explain]");
+            return;
+        }
+        var pipeline = Pipeline.fromConfig(PipelineConfig.parse(args[0]));
+        if (args.length > 1 && args[1].equalsIgnoreCase("-explain"))
+            System.out.print(pipeline.explain());
+        else
+            pipeline.run();
+    }
+}
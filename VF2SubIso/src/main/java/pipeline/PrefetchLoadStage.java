@@ -0,0 +1,64 @@
+package pipeline;
+
+import util.Metrics;
+import util.myConsole;
+
+/**
+ * Load stage of the batch mode that turns the snapshots given by their changes into graphs:
+ * the changes are applied to a fork of the previous graph, so with overlap the next graph is ready
+ * while the current one is matched.
+ *
+ * The snapshots must be loaded in order by a single thread at a time (as Pipeline does). Together with the
+ * one-ahead loading of Pipeline, at most two snapshots are alive: the one being matched and the next one,
+ * which only adds the parts changed by its changes (see CopyOnWriteGraph).
+ */
+public class PrefetchLoadStage implements LoadStage
+{
+    //region --[Fields: Private]---------------------------------------
+    private final LoadStage loadStage;
+
+    /** Graph of the previously loaded snapshot (only read by the match stage while it is copied). */
+    private Snapshot previous;
+    //endregion
+
+    //region --[Constructors]------------------------------------------
+    /**
+     * @param loadStage Loads the graphs and changes of the snapshots.
+     */
+    public PrefetchLoadStage(LoadStage loadStage)
+    {
+        this.loadStage = loadStage;
+    }
+    //endregion
+
+    //region --[Methods: Public]---------------------------------------
+    @Override
+    public Snapshot load(int snapshotId)
+    {
+        var snapshot = loadStage.load(snapshotId);
+        if (snapshot.hasChanges())
+        {
+            if (previous == null)
+                throw new IllegalStateException("Snapshot " + snapshotId + " has changes but no previous graph");
+
+            var startTime = System.currentTimeMillis();
+            var loader = previous.getLoader();
+            var sample = Metrics.time("forkGraph");
+            try
+            {
+                loader = loader.fork();
+            }
+            finally
+            {
+                sample.close();
+            }
+            myConsole.print("Fork graph (" + snapshotId + ")", System.currentTimeMillis() - startTime);
+            loader.updateGraphWithChanges(snapshot.getChanges());
+            myConsole.print("Apply changes (" + snapshotId + ")", System.currentTimeMillis() - startTime);
+            snapshot = new Snapshot(snapshotId, snapshot.getTimestamp(), loader);
+        }
+        previous = snapshot;
+        return snapshot;
+    }
+    //endregion
+}
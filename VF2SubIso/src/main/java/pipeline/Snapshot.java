@@ -0,0 +1,71 @@
+package pipeline;
+
+import changeExploration.Change;
+import graphLoader.GraphLoader;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Snapshot produced by a LoadStage: either a loaded graph or the changes from the previous snapshot.
+ */
+public class Snapshot
+{
+    //region --[Fields: Private]---------------------------------------
+    private final int id;
+    private final LocalDate timestamp;
+
+    /** Loaded graph (null if the snapshot is given by its changes). */
+    private final GraphLoader loader;
+
+    /** Changes from the previous snapshot (null if the snapshot is a loaded graph). */
+    private final List<Change> changes;
+    //endregion
+
+    //region --[Constructors]------------------------------------------
+    /**
+     * Creates a snapshot of a loaded graph.
+     * @param id Id of the snapshot.
+     * @param timestamp Timestamp of the snapshot.
+     * @param loader Loader of the graph.
+     */
+    public Snapshot(int id, LocalDate timestamp, GraphLoader loader)
+    {
+        this.id = id;
+        this.timestamp = timestamp;
+        this.loader = loader;
+        this.changes = null;
+    }
+
+    /**
+     * Creates a snapshot given by the changes from the previous snapshot.
+     * @param id Id of the snapshot.
+     * @param timestamp Timestamp of the snapshot.
+     * @param changes Changes from the previous snapshot.
+     */
+    public Snapshot(int id, LocalDate timestamp, List<Change> changes)
+    {
+        this.id = id;
+        this.timestamp = timestamp;
+        this.loader = null;
+        this.changes = changes;
+    }
+    //endregion
+
+    //region --[Properties: Public]------------------------------------
+    /** Gets the id of the snapshot. */
+    public int getId() { return id; }
+
+    /** Gets the timestamp of the snapshot. */
+    public LocalDate getTimestamp() { return timestamp; }
+
+    /** Gets the loader of the graph or null if the snapshot is given by its changes. */
+    public GraphLoader getLoader() { return loader; }
+
+    /** Gets the changes from the previous snapshot or null if the snapshot is a loaded graph. */
+    public List<Change> getChanges() { return changes; }
+
+    /** Returns true if the snapshot is given by the changes from the previous snapshot. */
+    public boolean hasChanges() { return changes != null; }
+    //endregion
+}
@@ -0,0 +1,75 @@
+package pipeline;
+
+import graphLoader.ChangeLoader;
+import graphLoader.DBPediaLoader;
+import graphLoader.GraphLoader;
+import graphLoader.IMDBLoader;
+import infra.TGFD;
+import util.Metrics;
+import util.myConsole;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads the snapshots of a PipelineConfig: the graph of a snapshot with data files, or the changes of a
+ * snapshot with a change file (except the first snapshot).
+ */
+public class SnapshotLoader implements LoadStage
+{
+    //region --[Fields: Private]---------------------------------------
+    private final PipelineConfig config;
+    private final List<TGFD> tgfds;
+    //endregion
+
+    //region --[Constructors]------------------------------------------
+    /**
+     * @param config Paths of the snapshots.
+     * @param tgfds TGFDs of the run (to only load their types if optimizedLoadingBasedOnTGFD is set).
+     */
+    public SnapshotLoader(PipelineConfig config, List<TGFD> tgfds)
+    {
+        this.config = config;
+        this.tgfds = tgfds;
+    }
+    //endregion
+
+    //region --[Methods: Private]--------------------------------------
+    private GraphLoader loadGraph(int snapshotId)
+    {
+        var dataPaths = config.dataPathsById.getOrDefault(snapshotId, new ArrayList<>());
+        switch (config.dataset)
+        {
+            case imdb:
+                if (dataPaths.isEmpty())
+                    throw new IllegalArgumentException("No data file for snapshot " + snapshotId);
+                return new IMDBLoader(tgfds, dataPaths.get(0));
+            case dbpedia:
+            default:
+                return new DBPediaLoader(tgfds, config.typePathsById.getOrDefault(snapshotId, new ArrayList<>()), dataPaths);
+        }
+    }
+    //endregion
+
+    //region --[Methods: Public]---------------------------------------
+    @Override
+    public Snapshot load(int snapshotId)
+    {
+        Metrics.setSnapshot(String.valueOf(snapshotId));
+        Metrics.setTGFD(null);
+        var timestamp = config.timestamps.get(snapshotId);
+        var startTime = System.currentTimeMillis();
+        if (config.isLoadedFromChanges(snapshotId))
+        {
+            var changes = new ChangeLoader(config.changePathsById.get(snapshotId)).getAllChanges();
+            myConsole.print("Load changes (" + snapshotId + ")", System.currentTimeMillis() - startTime);
+            myConsole.print("Total number of changes: " + changes.size());
+            return new Snapshot(snapshotId, timestamp, changes);
+        }
+
+        var loader = loadGraph(snapshotId);
+        myConsole.print("Load graph (" + snapshotId + ")", System.currentTimeMillis() - startTime);
+        return new Snapshot(snapshotId, timestamp, loader);
+    }
+    //endregion
+}
@@ -0,0 +1,41 @@
+package pipeline;
+
+import infra.TGFD;
+import infra.Violation;
+import util.properties;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Prints the number of violations and saves them to <method>_<tgfd>.txt if properties.myProperties.saveViolations is set.
+ */
+public class ViolationWriter implements OutputStage
+{
+    //region --[Methods: Public]---------------------------------------
+    @Override
+    public void output(TGFD tgfd, String method, Set<Violation> violations)
+    {
+        System.out.println("Number of violations (" + method + "): " + violations.size());
+        if (!properties.myProperties.saveViolations)
+            return;
+
+        var path = method + "_" + tgfd.getName() + ".txt";
+        try (var file = new FileWriter(path))
+        {
+            file.write("***************TGFD***************\n");
+            file.write(tgfd.toString());
+            file.write("\n===============Violations===============\n");
+            for (var violation : violations)
+                file.write(violation.toString() + "\n---------------------------------------------------\n");
+            System.out.println("Successfully wrote to the file: " + path);
+        }
+        catch (IOException e)
+        {
+            System.out.println("An error occurred.");
+            e.printStackTrace();
+        }
+    }
+    //endregion
+}
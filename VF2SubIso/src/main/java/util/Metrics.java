@@ -0,0 +1,349 @@
+package util;
+
+import org.json.simple.JSONValue;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Counters, timers and histograms of a run, broken down by TGFD and snapshot.
+ *
+ * A metric is identified by its name, TGFD and snapshot. Methods without a TGFD or snapshot use the ones
+ * of the current thread (see setTGFD and setSnapshot), so the phases of the library are broken down by the
+ * TGFD and snapshot that the runner is processing. All metrics are thread-safe and can be exported as
+ * JSON or CSV with save.
+ */
+public final class Metrics
+{
+    //region --[Nested Classes]----------------------------------------
+    /** Kind of a metric. */
+    public enum Kind { counter, timer, histogram }
+
+    /** Identifies a metric. */
+    private static final class Key
+    {
+        final String name, tgfd, snapshot;
+
+        Key(String name, String tgfd, String snapshot)
+        {
+            this.name = name;
+            this.tgfd = tgfd;
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof Key))
+                return false;
+            var key = (Key)o;
+            return name.equals(key.name) && Objects.equals(tgfd, key.tgfd) && Objects.equals(snapshot, key.snapshot);
+        }
+
+        @Override
+        public int hashCode() { return Objects.hash(name, tgfd, snapshot); }
+    }
+
+    /** Monotonic counter. */
+    public static final class Counter
+    {
+        private final LongAdder value = new LongAdder();
+
+        /** Increments the counter by one. */
+        public void increment() { value.increment(); }
+
+        /** Increments the counter by a value. */
+        public void add(long n) { value.add(n); }
+
+        /** Gets the value of the counter. */
+        public long get() { return value.sum(); }
+    }
+
+    /**
+     * Distribution of non-negative values with count, sum, min, max and power of two buckets for percentiles.
+     * A timer is a histogram of durations in nanoseconds.
+     */
+    public static class Histogram
+    {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+        /** Bucket i counts the values v with 2^(i-1) <= v < 2^i (bucket 0 counts v = 0). */
+        private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+
+        /** Records a value (negative values are recorded as 0). */
+        public void record(long value)
+        {
+            value = Math.max(0, value);
+            count.increment();
+            sum.add(value);
+            min.accumulate(value);
+            max.accumulate(value);
+            buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(value));
+        }
+
+        /** Gets the number of recorded values. */
+        public long getCount() { return count.sum(); }
+
+        /** Gets the sum of the recorded values. */
+        public long getSum() { return sum.sum(); }
+
+        /** Gets the smallest recorded value or 0 if there are none. */
+        public long getMin() { return getCount() == 0 ? 0 : min.get(); }
+
+        /** Gets the largest recorded value or 0 if there are none. */
+        public long getMax() { return getCount() == 0 ? 0 : max.get(); }
+
+        /** Gets the mean of the recorded values or 0 if there are none. */
+        public double getMean()
+        {
+            var n = getCount();
+            return n == 0 ? 0 : (double)getSum() / n;
+        }
+
+        /**
+         * Gets an upper bound of a percentile (the upper end of the bucket that contains it, at most the max).
+         * @param percentile Percentile between 0 and 100.
+         */
+        public long getPercentile(double percentile)
+        {
+            var n = getCount();
+            if (n == 0)
+                return 0;
+
+            var rank = (long)Math.ceil(percentile / 100.0 * n);
+            var seen = 0L;
+            for (int i = 0; i < buckets.length(); i++)
+            {
+                seen += buckets.get(i);
+                if (seen >= rank)
+                    return i == 0 ? 0 : Math.min(getMax(), i == Long.SIZE - 1 ? Long.MAX_VALUE : (1L << i) - 1);
+            }
+            return getMax();
+        }
+    }
+
+    /** Histogram of durations in nanoseconds. */
+    public static final class Timer extends Histogram
+    {
+        /** Starts timing a phase that is recorded when the sample is closed. */
+        public Sample start() { return new Sample(this); }
+    }
+
+    /** Running measurement of a timer (use in a try-with-resources statement). */
+    public static final class Sample implements AutoCloseable
+    {
+        private final Timer timer;
+        private final long startTime = System.nanoTime();
+
+        private Sample(Timer timer) { this.timer = timer; }
+
+        /** Gets the elapsed time in nanoseconds. */
+        public long getElapsed() { return System.nanoTime() - startTime; }
+
+        /** Records the elapsed time. */
+        @Override
+        public void close() { timer.record(getElapsed()); }
+    }
+    //endregion
+
+    //region --[Fields: Private]---------------------------------------
+    private static final ConcurrentHashMap<Key, Object> metrics = new ConcurrentHashMap<>();
+
+    /** TGFD of the current thread (null if none). */
+    private static final ThreadLocal<String> currentTGFD = new ThreadLocal<>();
+
+    /** Snapshot of the current thread (null if none). */
+    private static final ThreadLocal<String> currentSnapshot = new ThreadLocal<>();
+    //endregion
+
+    //region --[Constructors]------------------------------------------
+    private Metrics() { }
+    //endregion
+
+    //region --[Methods: Private]--------------------------------------
+    private static <T> T get(String name, String tgfd, String snapshot, Class<T> type, Supplier<T> create)
+    {
+        var metric = metrics.computeIfAbsent(new Key(name, tgfd, snapshot), k -> create.get());
+        if (!type.isInstance(metric))
+            throw new IllegalArgumentException("Metric " + name + " is not a " + type.getSimpleName());
+        return type.cast(metric);
+    }
+
+    private static Kind getKind(Object metric)
+    {
+        return metric instanceof Counter ? Kind.counter : metric instanceof Timer ? Kind.timer : Kind.histogram;
+    }
+
+    /** Gets the metrics as rows sorted by name, TGFD and snapshot. */
+    private static List<Map<String, Object>> getRows()
+    {
+        var entries = new ArrayList<>(metrics.entrySet());
+        entries.sort((e1, e2) -> {
+            var k1 = e1.getKey();
+            var k2 = e2.getKey();
+            var result = k1.name.compareTo(k2.name);
+            if (result == 0)
+                result = Objects.toString(k1.tgfd, "").compareTo(Objects.toString(k2.tgfd, ""));
+            if (result == 0)
+                result = Objects.toString(k1.snapshot, "").compareTo(Objects.toString(k2.snapshot, ""));
+            return result;
+        });
+
+        var rows = new ArrayList<Map<String, Object>>();
+        for (var entry : entries)
+        {
+            var row = new LinkedHashMap<String, Object>();
+            var metric = entry.getValue();
+            row.put("name", entry.getKey().name);
+            row.put("kind", getKind(metric).name());
+            row.put("tgfd", entry.getKey().tgfd);
+            row.put("snapshot", entry.getKey().snapshot);
+            if (metric instanceof Counter)
+            {
+                row.put("count", ((Counter)metric).get());
+            }
+            else
+            {
+                var histogram = (Histogram)metric;
+                row.put("count", histogram.getCount());
+                row.put("sum", histogram.getSum());
+                row.put("min", histogram.getMin());
+                row.put("max", histogram.getMax());
+                row.put("mean", histogram.getMean());
+                row.put("p50", histogram.getPercentile(50));
+                row.put("p90", histogram.getPercentile(90));
+                row.put("p99", histogram.getPercentile(99));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static String toCsvField(Object value)
+    {
+        if (value == null)
+            return "";
+        var text = value.toString();
+        if (text.contains(",") || text.contains("\"") || text.contains("\n"))
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        return text;
+    }
+    //endregion
+
+    //region --[Methods: Public]---------------------------------------
+    /** Sets the TGFD of the metrics recorded by the current thread (null for none). */
+    public static void setTGFD(String tgfd) { currentTGFD.set(tgfd); }
+
+    /** Gets the TGFD of the metrics recorded by the current thread. */
+    public static String getTGFD() { return currentTGFD.get(); }
+
+    /** Sets the snapshot of the metrics recorded by the current thread (null for none). */
+    public static void setSnapshot(String snapshot) { currentSnapshot.set(snapshot); }
+
+    /** Gets the snapshot of the metrics recorded by the current thread. */
+    public static String getSnapshot() { return currentSnapshot.get(); }
+
+    /** Gets a counter of the current TGFD and snapshot. */
+    public static Counter counter(String name) { return counter(name, getTGFD(), getSnapshot()); }
+
+    /**
+     * Gets a counter, creating it if needed.
+     * @param name Name of the metric.
+     * @param tgfd TGFD name (null for none).
+     * @param snapshot Snapshot (null for none).
+     */
+    public static Counter counter(String name, String tgfd, String snapshot)
+    {
+        return get(name, tgfd, snapshot, Counter.class, Counter::new);
+    }
+
+    /** Gets a timer of the current TGFD and snapshot. */
+    public static Timer timer(String name) { return timer(name, getTGFD(), getSnapshot()); }
+
+    /**
+     * Gets a timer, creating it if needed.
+     * @param name Name of the metric.
+     * @param tgfd TGFD name (null for none).
+     * @param snapshot Snapshot (null for none).
+     */
+    public static Timer timer(String name, String tgfd, String snapshot)
+    {
+        return get(name, tgfd, snapshot, Timer.class, Timer::new);
+    }
+
+    /** Starts timing a phase of the current TGFD and snapshot. */
+    public static Sample time(String name) { return timer(name).start(); }
+
+    /** Gets a histogram of the current TGFD and snapshot. */
+    public static Histogram histogram(String name) { return histogram(name, getTGFD(), getSnapshot()); }
+
+    /**
+     * Gets a histogram, creating it if needed.
+     * @param name Name of the metric.
+     * @param tgfd TGFD name (null for none).
+     * @param snapshot Snapshot (null for none).
+     */
+    public static Histogram histogram(String name, String tgfd, String snapshot)
+    {
+        return get(name, tgfd, snapshot, Histogram.class, Histogram::new);
+    }
+
+    /** Removes all metrics (e.g. between runs). */
+    public static void reset() { metrics.clear(); }
+
+    /** Gets the metrics as a JSON array of objects (timer values are in nanoseconds). */
+    public static String toJson() { return JSONValue.toJSONString(getRows()); }
+
+    /** Gets the metrics as CSV with a header row (timer values are in nanoseconds). */
+    public static String toCsv()
+    {
+        var builder = new StringBuilder("name,kind,tgfd,snapshot,count,sum,min,max,mean,p50,p90,p99\n");
+        for (var row : getRows())
+        {
+            var first = true;
+            for (var column : new String[] { "name", "kind", "tgfd", "snapshot", "count", "sum", "min", "max", "mean", "p50", "p90", "p99" })
+            {
+                if (!first)
+                    builder.append(',');
+                builder.append(toCsvField(row.get(column)));
+                first = false;
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Saves the metrics as <path>.json and <path>.csv.
+     * @param path Path of the files without extension.
+     */
+    public static void save(String path)
+    {
+        try (var json = new FileWriter(path + ".json");
+             var csv = new FileWriter(path + ".csv"))
+        {
+            json.write(toJson());
+            csv.write(toCsv());
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        System.out.println("Successfully wrote the metrics: " + path + ".json, " + path + ".csv");
+    }
+    //endregion
+}
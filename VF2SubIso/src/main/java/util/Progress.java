@@ -0,0 +1,247 @@
+package util;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live progress of a long run: mappings enumerated by VF2, candidate pairs checked by VF2, changes applied
+ * and matches checked by TED, with their rates and the heap use.
+ *
+ * The counters are always updated (a LongAdder increment on the hot paths, VF2 adds its candidate pairs in
+ * batches). Each thread has its own phase so that concurrent stages (e.g. a prefetching loader and the matcher)
+ * do not overwrite each other's phase. Once started, a daemon thread
+ * reports the counters periodically to the console or appends them as CSV to a file, and the progress is
+ * exposed through JMX as util:type=Progress so a run can be watched and killed early.
+ */
+public final class Progress implements ProgressMXBean
+{
+    //region --[Fields: Private]---------------------------------------
+    private static final Progress instance = new Progress();
+
+    private static final LongAdder matches = new LongAdder();
+    private static final LongAdder changes = new LongAdder();
+    private static final LongAdder states = new LongAdder();
+    private static final LongAdder tedMatches = new LongAdder();
+
+    /** Phase of each thread that set one. */
+    private static final ConcurrentHashMap<Thread, String> phases = new ConcurrentHashMap<>();
+
+    /** Reporting thread (null if not started). */
+    private static ScheduledExecutorService reporter;
+
+    /** File the reports are appended to (null for the console). */
+    private static String path;
+
+    /** Counters and time of the previous report to compute the rates. */
+    private long lastTime = System.nanoTime();
+    private long lastMatches, lastChanges, lastStates, lastTedMatches;
+    private volatile double matchesPerSecond, changesPerSecond, statesPerSecond, tedMatchesPerSecond;
+    //endregion
+
+    //region --[Constructors]------------------------------------------
+    private Progress() { }
+    //endregion
+
+    //region --[Methods: Private]--------------------------------------
+    /** Updates the rates with the counters since the previous report. */
+    private synchronized void updateRates()
+    {
+        var now = System.nanoTime();
+        var seconds = Math.max(1e-9, (now - lastTime) / 1e9);
+        var currentMatches = getMatches();
+        var currentChanges = getChanges();
+        var currentStates = getStatesExplored();
+        var currentTedMatches = getTedMatches();
+        matchesPerSecond = (currentMatches - lastMatches) / seconds;
+        changesPerSecond = (currentChanges - lastChanges) / seconds;
+        statesPerSecond = (currentStates - lastStates) / seconds;
+        tedMatchesPerSecond = (currentTedMatches - lastTedMatches) / seconds;
+        lastTime = now;
+        lastMatches = currentMatches;
+        lastChanges = currentChanges;
+        lastStates = currentStates;
+        lastTedMatches = currentTedMatches;
+    }
+
+    private static void report()
+    {
+        instance.updateRates();
+        var mb = 1024 * 1024;
+        if (path == null)
+        {
+            System.out.println(String.format(
+                "Progress [%s]: matches %d (%.0f/s), states %d (%.0f/s), changes %d (%.0f/s), TED matches %d (%.0f/s), heap %d/%d MB",
+                instance.getPhase(),
+                instance.getMatches(), instance.getMatchesPerSecond(),
+                instance.getStatesExplored(), instance.getStatesPerSecond(),
+                instance.getChanges(), instance.getChangesPerSecond(),
+                instance.getTedMatches(), instance.getTedMatchesPerSecond(),
+                instance.getHeapUsed() / mb, instance.getHeapMax() / mb));
+            return;
+        }
+
+        try (var writer = new FileWriter(path, true))
+        {
+            writer.write(String.format("%s,%s,%d,%.1f,%d,%.1f,%d,%.1f,%d,%.1f,%d,%d%n",
+                LocalDateTime.now(), instance.getPhase(),
+                instance.getMatches(), instance.getMatchesPerSecond(),
+                instance.getStatesExplored(), instance.getStatesPerSecond(),
+                instance.getChanges(), instance.getChangesPerSecond(),
+                instance.getTedMatches(), instance.getTedMatchesPerSecond(),
+                instance.getHeapUsed(), instance.getHeapMax()));
+        }
+        catch (IOException e)
+        {
+            System.out.println("Cannot write the progress: " + e.getMessage());
+        }
+    }
+    //endregion
+
+    //region --[Methods: Public]---------------------------------------
+    /**
+     * Starts reporting the progress periodically and registers the JMX bean.
+     * Does nothing if the reporting is already started or the interval is not positive.
+     * @param intervalSeconds Seconds between reports.
+     * @param path CSV file the reports are appended to (null for the console).
+     */
+    public static synchronized void start(int intervalSeconds, String path)
+    {
+        if (reporter != null || intervalSeconds <= 0)
+            return;
+
+        Progress.path = path;
+        if (path != null && new File(path).length() == 0)
+        {
+            try (var writer = new FileWriter(path, true))
+            {
+                writer.write("time,phase,matches,matchesPerSecond,states,statesPerSecond,changes,changesPerSecond," +
+                    "tedMatches,tedMatchesPerSecond,heapUsed,heapMax\n");
+            }
+            catch (IOException e)
+            {
+                System.out.println("Cannot write the progress: " + e.getMessage());
+            }
+        }
+
+        try
+        {
+            var server = ManagementFactory.getPlatformMBeanServer();
+            var name = new ObjectName("util:type=Progress");
+            if (!server.isRegistered(name))
+                server.registerMBean(instance, name);
+        }
+        catch (JMException e)
+        {
+            System.out.println("Cannot register the progress bean: " + e.getMessage());
+        }
+
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "progress-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(Progress::report, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /** Starts reporting with properties.myProperties.progressIntervalSeconds and progressFile. */
+    public static void start()
+    {
+        start(properties.myProperties.progressIntervalSeconds, properties.myProperties.progressFile);
+    }
+
+    /** Stops the periodic reporting after a final report. */
+    public static synchronized void stop()
+    {
+        if (reporter == null)
+            return;
+        reporter.shutdownNow();
+        reporter = null;
+        report();
+    }
+
+    /** Sets the current phase of the calling thread. */
+    public static void setPhase(String name) { phases.put(Thread.currentThread(), name); }
+
+    /** Adds one enumerated mapping. */
+    public static void addMatch() { matches.increment(); }
+
+    /** Adds one applied change. */
+    public static void addChange() { changes.increment(); }
+
+    /** Adds candidate pairs checked by VF2. */
+    public static void addStates(long count) { states.add(count); }
+
+    /** Adds one match checked by TED. */
+    public static void addTedMatch() { tedMatches.increment(); }
+    //endregion
+
+    //region --[Properties: Public]------------------------------------
+    /** Gets the progress bean. */
+    public static ProgressMXBean get() { return instance; }
+
+    /**
+     * Gets the phase of each live thread, as the phase alone if a single thread set one,
+     * otherwise as thread=phase pairs separated by ';' (sorted by thread name).
+     */
+    @Override
+    public String getPhase()
+    {
+        phases.keySet().removeIf(thread -> !thread.isAlive());
+        if (phases.size() == 1)
+            return phases.values().iterator().next();
+
+        var phasesByName = new TreeMap<String, String>();
+        for (var entry : phases.entrySet())
+            phasesByName.put(entry.getKey().getName(), entry.getValue());
+        var builder = new StringBuilder();
+        for (var entry : phasesByName.entrySet())
+        {
+            if (builder.length() > 0)
+                builder.append(';');
+            builder.append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public long getMatches() { return matches.sum(); }
+
+    @Override
+    public long getChanges() { return changes.sum(); }
+
+    @Override
+    public long getStatesExplored() { return states.sum(); }
+
+    @Override
+    public long getTedMatches() { return tedMatches.sum(); }
+
+    @Override
+    public double getMatchesPerSecond() { return matchesPerSecond; }
+
+    @Override
+    public double getChangesPerSecond() { return changesPerSecond; }
+
+    @Override
+    public double getStatesPerSecond() { return statesPerSecond; }
+
+    @Override
+    public double getTedMatchesPerSecond() { return tedMatchesPerSecond; }
+
+    @Override
+    public long getHeapUsed() { return Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory(); }
+
+    @Override
+    public long getHeapMax() { return Runtime.getRuntime().maxMemory(); }
+    //endregion
+}
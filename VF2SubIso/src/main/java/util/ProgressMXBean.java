@@ -0,0 +1,40 @@
+package util;
+
+/**
+ * Progress of a run exposed through JMX (util:type=Progress), e.g. to watch a long run in JConsole.
+ */
+public interface ProgressMXBean
+{
+    /** Gets the phase that was started last by each thread (match, updateGraph, incrementalUpdate or ted). */
+    String getPhase();
+
+    /** Gets the number of mappings enumerated by VF2. */
+    long getMatches();
+
+    /** Gets the number of changes applied to the data graph. */
+    long getChanges();
+
+    /** Gets the number of candidate pairs (data vertex, pattern vertex) checked by VF2. */
+    long getStatesExplored();
+
+    /** Gets the number of matches checked by TED. */
+    long getTedMatches();
+
+    /** Gets the mappings enumerated per second since the previous report. */
+    double getMatchesPerSecond();
+
+    /** Gets the changes applied per second since the previous report. */
+    double getChangesPerSecond();
+
+    /** Gets the candidate pairs checked per second since the previous report. */
+    double getStatesPerSecond();
+
+    /** Gets the matches checked by TED per second since the previous report. */
+    double getTedMatchesPerSecond();
+
+    /** Gets the used heap in bytes. */
+    long getHeapUsed();
+
+    /** Gets the maximum heap in bytes. */
+    long getHeapMax();
+}
@@ -9,24 +9,26 @@ public class myConsole {
 
     private static StringBuilder builder=new StringBuilder();
 
-    public static void print(String message)
+    public static synchronized void print(String message)
     {
-        builder.append(message + "\n");
+        if(properties.myProperties.keepConsoleLog)
+            builder.append(message + "\n");
         System.out.println(message);
     }
 
 
-    public static void print(String message, long runTimeInMS)
+    public static synchronized void print(String message, long runTimeInMS)
     {
         String msg=message + " time: " + runTimeInMS + "(ms) ** " +
                 TimeUnit.MILLISECONDS.toSeconds(runTimeInMS) + "(sec) ** " +
                 TimeUnit.MILLISECONDS.toMinutes(runTimeInMS) +  "(min)";
-        builder.append(msg + "\n");
+        if(properties.myProperties.keepConsoleLog)
+            builder.append(msg + "\n");
 
         System.out.println(msg);
     }
 
-    public static void saveLogs(String path)
+    public static synchronized void saveLogs(String path)
     {
         try {
             FileWriter file = new FileWriter(path);
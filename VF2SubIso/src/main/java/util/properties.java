@@ -6,6 +6,17 @@ public class properties {
     {
         public static boolean optimizedLoadingBasedOnTGFD=false;
         public static boolean saveViolations=false;
+        // Save the graph statistics collected by the loaders next to the loaded snapshot (<snapshot>.stats)
+        // and reuse them when the same snapshot is loaded again with the same options
+        public static boolean saveGraphStatistics=false;
+        // Directory to spill matches to when a MatchCollection has more than maxMatchesInMemory matches (null disables spilling)
+        public static String matchSpillDirectory=null;
+        public static int maxMatchesInMemory=1_000_000;
+        // Keep the messages of myConsole in memory for saveLogs (use Metrics to record the timings of long runs)
+        public static boolean keepConsoleLog=true;
+        // Report the progress every progressIntervalSeconds (0 disables) to the console or appended as CSV to progressFile
+        public static int progressIntervalSeconds=0;
+        public static String progressFile=null;
     }
 
 }
@@ -0,0 +1,185 @@
+package infra;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Checks that a DiskMatchStore stores, replaces and removes matches and deletes the segment files of dead records.
+ * Throws an AssertionError on the first failed check.
+ */
+public class testDiskMatchStore
+{
+    /** Number of stored matches. */
+    private static final int MATCH_COUNT = 40;
+
+    /** Segment size that fits a few records per segment. */
+    private static final long SEGMENT_SIZE = 512;
+
+    private static final Duration GRANULARITY = Duration.ofDays(1);
+
+    private static final LocalDate START = LocalDate.of(2020, 1, 1);
+
+    public static void main(String[] args) throws IOException
+    {
+        var parent = Files.createTempDirectory("testDiskMatchStore");
+        try
+        {
+            var temporalGraph = new TemporalGraph<Vertex>(GRANULARITY);
+            var pattern = new VF2PatternGraph();
+            putGetReplaceRemove(parent, temporalGraph, pattern);
+            largeRecord(parent, temporalGraph, pattern);
+            check(segmentFiles(parent).isEmpty(), "close did not delete the segment files");
+            try (var directories = Files.list(parent))
+            {
+                check(directories.count() == 0, "close did not delete the directory of the store");
+            }
+        }
+        finally
+        {
+            try (var paths = Files.walk(parent))
+            {
+                for (var path : paths.sorted((a, b) -> b.compareTo(a)).collect(Collectors.toList()))
+                    Files.deleteIfExists(path);
+            }
+        }
+        System.out.println("testDiskMatchStore passed");
+    }
+
+    private static void putGetReplaceRemove(Path parent, TemporalGraph<Vertex> temporalGraph, VF2PatternGraph pattern)
+        throws IOException
+    {
+        try (var store = new DiskMatchStore(parent, temporalGraph, pattern, SEGMENT_SIZE))
+        {
+            for (int i = 0; i < MATCH_COUNT; i++)
+                store.put(signature(i), createMatch(temporalGraph, pattern, i, 1));
+            check(store.size() == MATCH_COUNT, "wrong size after put");
+            var initialSegments = segmentFiles(parent);
+            check(initialSegments.size() > 2, "the records do not span several segments");
+            for (int i = 0; i < MATCH_COUNT; i++)
+                checkMatch(store.get(signature(i)), i, 1);
+            check(store.get("missing") == null, "get returned a match that was not stored");
+
+            // Replacing every match leaves every initial segment dead; all but the one that was active are deleted.
+            for (int i = 0; i < MATCH_COUNT; i++)
+                store.put(signature(i), createMatch(temporalGraph, pattern, i, 3));
+            check(store.size() == MATCH_COUNT, "replacing changed the size");
+            for (int i = 0; i < MATCH_COUNT; i++)
+                checkMatch(store.get(signature(i)), i, 3);
+            var lastInitialSegment = initialSegments.stream().max(Path::compareTo).get();
+            for (var segment : initialSegments)
+            {
+                check(Files.exists(segment) == segment.equals(lastInitialSegment),
+                    "a dead segment was not deleted or a live segment was deleted: " + segment.getFileName());
+            }
+
+            // The iterator decodes every live match once.
+            var signatures = new HashSet<String>();
+            for (var match : store)
+            {
+                var i = Integer.parseInt(match.getSignatureX().substring("x".length()));
+                checkMatch(match, i, 3);
+                check(signatures.add(match.getSignatureX()), "the iterator returned a match twice");
+            }
+            check(signatures.size() == MATCH_COUNT, "the iterator missed matches");
+
+            // Removing returns the match and deletes every segment but the active one (and the last initial
+            // segment if its records died while it was active).
+            var replacementSegments = segmentFiles(parent);
+            var activeSegment = replacementSegments.stream().max(Path::compareTo).get();
+            check(replacementSegments.size() > 2, "the replacements do not span several segments");
+            for (int i = 0; i < MATCH_COUNT; i++)
+            {
+                checkMatch(store.remove(signature(i)), i, 3);
+                check(!store.contains(signature(i)) && store.get(signature(i)) == null, "a removed match is still stored");
+                check(store.remove(signature(i)) == null, "a match was removed twice");
+            }
+            check(store.size() == 0, "wrong size after remove");
+            for (var segment : segmentFiles(parent))
+            {
+                check(segment.equals(activeSegment) || segment.equals(lastInitialSegment),
+                    "a dead segment was not deleted: " + segment.getFileName());
+            }
+            check(Files.exists(activeSegment), "the active segment was deleted");
+
+            // The store is still usable after its segments are deleted.
+            store.put(signature(0), createMatch(temporalGraph, pattern, 0, 2));
+            checkMatch(store.get(signature(0)), 0, 2);
+        }
+    }
+
+    private static void largeRecord(Path parent, TemporalGraph<Vertex> temporalGraph, VF2PatternGraph pattern)
+        throws IOException
+    {
+        // A record larger than the write buffer is written directly to its segment.
+        var signatureY = "y".repeat(3 << 20);
+        try (var store = new DiskMatchStore(parent, temporalGraph, pattern, SEGMENT_SIZE))
+        {
+            store.put(signature(0), createMatch(temporalGraph, pattern, 0, 1));
+            var large = createMatch(temporalGraph, pattern, 1, 1);
+            large.addSignatureY(START, GRANULARITY, signatureY);
+            store.put(signature(1), large);
+            store.put(signature(2), createMatch(temporalGraph, pattern, 2, 1));
+
+            checkMatch(store.get(signature(0)), 0, 1);
+            var match = store.get(signature(1));
+            check(match.getSignatureX().equals("x1"), "wrong large match");
+            check(match.getSignatureYCount() == 2 && match.getSignatureY(1).equals(signatureY), "the large record was corrupted");
+            checkMatch(store.get(signature(2)), 2, 1);
+        }
+    }
+
+    private static String signature(int i)
+    {
+        return "signature" + i;
+    }
+
+    /** Creates the i-th match, present on the first `days` days with one signature Y. */
+    private static Match createMatch(TemporalGraph<Vertex> temporalGraph, VF2PatternGraph pattern, int i, int days)
+    {
+        var vertex = new DataVertex("v" + i, "person");
+        var vertexIds = new int[] { temporalGraph.addVertex(vertex, vertex.getVertexURI(), START), i };
+        var match = new Match(temporalGraph, pattern, vertexIds, "x" + i, START);
+        for (int day = 0; day < days; day++)
+        {
+            match.addTimepoint(START.plusDays(day), GRANULARITY);
+            match.addSignatureY(START.plusDays(day), GRANULARITY, "y" + i);
+        }
+        return match;
+    }
+
+    /** Checks that the match is the i-th match with `days` days. */
+    private static void checkMatch(Match match, int i, int days)
+    {
+        check(match != null, "match " + i + " is missing");
+        check(match.getSignatureX().equals("x" + i), "wrong signature X: " + match.getSignatureX());
+        check(match.getVertexIds().length == 2 && match.getVertexIds()[1] == i, "wrong vertex ids of match " + i);
+        var expected = List.of(new Interval(START, START.plusDays(days - 1)));
+        check(match.getIntervals().toString().equals(expected.toString()), "wrong intervals of match " + i);
+        check(match.getSignatureYCount() >= 1 && match.getSignatureY(0).equals("y" + i), "wrong signature Y of match " + i);
+        check(match.getSignatureYTimeline(0).getEndDay(0) == START.plusDays(days - 1).toEpochDay(),
+            "wrong signature Y timeline of match " + i);
+    }
+
+    /** Gets the segment files of the stores under the parent directory. */
+    private static Set<Path> segmentFiles(Path parent) throws IOException
+    {
+        try (Stream<Path> paths = Files.walk(parent))
+        {
+            return paths.filter(Files::isRegularFile).collect(Collectors.toSet());
+        }
+    }
+
+    private static void check(boolean condition, String message)
+    {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+}
@@ -0,0 +1,382 @@
+import changeExploration.*;
+import graphLoader.GraphLoader;
+import infra.*;
+
+import java.time.Duration;
+import java.time.Period;
+import java.util.*;
+
+/**
+ * Checks that ChangeFinder finds the same changes, with the same ids, TGFDs and order, as the sequential
+ * algorithm it replaced. The graphs are large enough to be diffed in several partitions and have vertices
+ * whose outgoing edges are sorted instead of scanned.
+ * Throws an AssertionError on the first failed check.
+ */
+public class testChangeFinder
+{
+    //region --[Classes: Private]--------------------------------------
+    /** Loader of an existing graph. */
+    private static class SnapshotLoader extends GraphLoader
+    {
+        public SnapshotLoader(VF2DataGraph graph)
+        {
+            super(new ArrayList<>());
+            this.graph = graph;
+        }
+    }
+
+    /** Description of a graph from which independent snapshots are built. */
+    private static class GraphDescription
+    {
+        /** Types of each vertex by URI. */
+        public final LinkedHashMap<String, List<String>> types = new LinkedHashMap<>();
+        /** Attributes of each vertex by URI. */
+        public final HashMap<String, LinkedHashMap<String, String>> attributes = new HashMap<>();
+        /** Edges as source URI, label and target URI; at most one per source and target. */
+        public final LinkedHashMap<String, String[]> edges = new LinkedHashMap<>();
+
+        public GraphDescription copy()
+        {
+            var copy = new GraphDescription();
+            for (var entry : types.entrySet())
+            {
+                copy.types.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+                copy.attributes.put(entry.getKey(), new LinkedHashMap<>(attributes.get(entry.getKey())));
+            }
+            copy.edges.putAll(edges);
+            return copy;
+        }
+
+        public void addEdge(String source, String label, String target)
+        {
+            edges.putIfAbsent(source + " " + target, new String[] { source, label, target });
+        }
+
+        public void removeVertex(String uri)
+        {
+            types.remove(uri);
+            attributes.remove(uri);
+            edges.values().removeIf(edge -> edge[0].equals(uri) || edge[2].equals(uri));
+        }
+
+        public VF2DataGraph build()
+        {
+            var graph = new VF2DataGraph();
+            var vertices = new HashMap<String, DataVertex>();
+            for (var entry : types.entrySet())
+            {
+                var vertex = new DataVertex(entry.getKey(), entry.getValue().get(0));
+                for (var type : entry.getValue().subList(1, entry.getValue().size()))
+                    vertex.addTypes(type);
+                for (var attribute : attributes.get(entry.getKey()).entrySet())
+                    vertex.addAttribute(attribute.getKey(), attribute.getValue());
+                graph.addVertex(vertex);
+                vertices.put(entry.getKey(), vertex);
+            }
+            for (var edge : edges.values())
+                graph.addEdge(vertices.get(edge[0]), vertices.get(edge[2]), new RelationshipEdge(edge[1]));
+            return graph;
+        }
+    }
+
+    /** The sequential algorithm of ChangeFinder before the vertices were diffed in parallel partitions. */
+    private static class SequentialChangeFinder
+    {
+        private final VF2DataGraph g1, g2;
+        private final HashMap<String, HashSet<String>> relevantTGFDs = new HashMap<>();
+        private final List<Change> allChanges = new ArrayList<>();
+        private int changeID = 1;
+        private int numberOfEffectiveChanges = 0;
+
+        public SequentialChangeFinder(VF2DataGraph g1, VF2DataGraph g2, List<TGFD> tgfds)
+        {
+            this.g1 = g1;
+            this.g2 = g2;
+            for (var tgfd : tgfds)
+            {
+                var literals = new ArrayList<Literal>(tgfd.getDependency().getX());
+                literals.addAll(tgfd.getDependency().getY());
+                for (var literal : literals)
+                {
+                    if (literal instanceof ConstantLiteral)
+                        addRelevantType(((ConstantLiteral)literal).getVertexType(), tgfd.getName());
+                    else if (literal instanceof VariableLiteral)
+                    {
+                        addRelevantType(((VariableLiteral)literal).getVertexType_1(), tgfd.getName());
+                        addRelevantType(((VariableLiteral)literal).getVertexType_2(), tgfd.getName());
+                    }
+                }
+                for (var vertex : tgfd.getPattern().getGraph().vertexSet())
+                {
+                    for (var type : vertex.getTypes())
+                        addRelevantType(type, tgfd.getName());
+                }
+            }
+        }
+
+        public List<Change> findAllChanged()
+        {
+            findChanges(g1, g2, ChangeType.deleteEdge, ChangeType.deleteVertex, ChangeType.deleteAttr, ChangeType.changeAttr);
+            findChanges(g2, g1, ChangeType.insertEdge, ChangeType.insertVertex, ChangeType.insertAttr, null);
+            return allChanges;
+        }
+
+        public int getNumberOfEffectiveChanges() { return numberOfEffectiveChanges; }
+
+        private void addRelevantType(String type, String name)
+        {
+            relevantTGFDs.computeIfAbsent(type, k -> new HashSet<>()).add(name);
+        }
+
+        private Collection<String> findRelevantTGFDs(Collection<String> types)
+        {
+            var names = new HashSet<String>();
+            for (var type : types)
+            {
+                if (relevantTGFDs.containsKey(type))
+                    names.addAll(relevantTGFDs.get(type));
+            }
+            return names;
+        }
+
+        private void addEdgeChange(ChangeType edgeType, DataVertex source, DataVertex target, String label)
+        {
+            var change = new EdgeChange(edgeType, changeID++, source.getVertexURI(), target.getVertexURI(), label);
+            change.addTGFD(findRelevantTGFDs(source.getTypes()));
+            change.addTGFD(findRelevantTGFDs(target.getTypes()));
+            allChanges.add(change);
+            numberOfEffectiveChanges++;
+        }
+
+        private void findChanges(VF2DataGraph first, VF2DataGraph second, ChangeType edgeType,
+                                 ChangeType vertexType, ChangeType attrType, ChangeType attrChange)
+        {
+            for (var v : first.getGraph().vertexSet())
+            {
+                var v1 = (DataVertex)v;
+                for (var e : first.getGraph().outgoingEdgesOf(v))
+                {
+                    var dst = (DataVertex)e.getTarget();
+                    if (second.getNode(v1.getVertexURI()) == null || second.getNode(dst.getVertexURI()) == null)
+                        addEdgeChange(edgeType, v1, dst, e.getLabel());
+                    else
+                    {
+                        var exist = false;
+                        for (var e2 : second.getGraph().outgoingEdgesOf(second.getNode(v1.getVertexURI())))
+                        {
+                            var dst2 = (DataVertex)e2.getTarget();
+                            if (e.getLabel().equals(e2.getLabel()) && dst2.getVertexURI().equals(dst.getVertexURI()))
+                            {
+                                exist = true;
+                                break;
+                            }
+                        }
+                        if (!exist)
+                            addEdgeChange(edgeType, v1, dst, e.getLabel());
+                    }
+                }
+            }
+
+            for (var v : first.getGraph().vertexSet())
+            {
+                var v1 = (DataVertex)v;
+                var v2 = (DataVertex)second.getNode(v1.getVertexURI());
+                if (v2 == null)
+                {
+                    var change = new VertexChange(vertexType, changeID++, v1);
+                    change.addTGFD(findRelevantTGFDs(v1.getTypes()));
+                    allChanges.add(change);
+                    continue;
+                }
+                for (var attr : v.getAllAttributesList())
+                {
+                    if (!v2.hasAttribute(attr.getAttrName()))
+                    {
+                        var change = new AttributeChange(attrType, changeID++, v1.getVertexURI(), attr);
+                        change.addTGFD(findRelevantTGFDs(v1.getTypes()));
+                        allChanges.add(change);
+                        numberOfEffectiveChanges++;
+                    }
+                    else if (attrChange != null && !v2.getAttributeValueByName(attr.getAttrName()).equals(attr.getAttrValue()))
+                    {
+                        var change = new AttributeChange(ChangeType.changeAttr, changeID++, v1.getVertexURI(), attr);
+                        change.addTGFD(findRelevantTGFDs(v1.getTypes()));
+                        allChanges.add(change);
+                        numberOfEffectiveChanges++;
+                    }
+                }
+            }
+        }
+    }
+    //endregion
+
+    //region --[Fields: Private]---------------------------------------
+    /** Number of vertices of the first snapshot (several partitions of ChangeFinder). */
+    private static final int VERTEX_COUNT = 10000;
+
+    /** Number of edges of the first snapshot. */
+    private static final int EDGE_COUNT = 40000;
+
+    /** Number of hub vertices with many outgoing edges. */
+    private static final int HUB_COUNT = 50;
+
+    private static final String[] TYPES = { "actor", "movie", "person", "country", "other" };
+
+    private static final String[] LABELS = { "actor_of", "directed", "born_in", "knows" };
+
+    private static final String[] ATTRIBUTES = { "name", "year", "birthYear", "rating" };
+    //endregion
+
+    public static void main(String[] args)
+    {
+        var random = new Random(42);
+        var first = createDescription(random);
+        var second = mutate(first, random);
+        var tgfds = createTGFDs();
+
+        var changes = checkSameChanges(first.build(), second.build(), tgfds);
+        check(changes > 1000, "too few changes to compare: " + changes);
+        check(checkSameChanges(first.build(), first.build(), tgfds) == 0, "identical snapshots have changes");
+        check(checkSameChanges(second.build(), first.build(), new ArrayList<>()) == changes,
+            "the reverse diff has another number of changes");
+        System.out.println("testChangeFinder passed (" + changes + " changes)");
+    }
+
+    /** Checks that both algorithms find the same changes and returns their number. */
+    private static int checkSameChanges(VF2DataGraph g1, VF2DataGraph g2, List<TGFD> tgfds)
+    {
+        var expectedFinder = new SequentialChangeFinder(g1, g2, tgfds);
+        var expected = expectedFinder.findAllChanged();
+        var finder = new ChangeFinder(new SnapshotLoader(g1), new SnapshotLoader(g2), tgfds);
+        var actual = finder.findAllChanged();
+
+        check(actual.size() == expected.size(), "expected " + expected.size() + " changes but got " + actual.size());
+        for (int i = 0; i < expected.size(); i++)
+        {
+            var e = expected.get(i);
+            var a = actual.get(i);
+            check(a.getClass() == e.getClass() && a.getTypeOfChange() == e.getTypeOfChange() &&
+                a.getId() == e.getId() && a.toString().equals(e.toString()),
+                "change " + i + ": expected " + e + " but got " + a);
+            check(a.getTGFDs().equals(e.getTGFDs()),
+                "change " + i + ": expected TGFDs " + e.getTGFDs() + " but got " + a.getTGFDs());
+        }
+        check(finder.getNumberOfEffectiveChanges() == expectedFinder.getNumberOfEffectiveChanges(),
+            "wrong number of effective changes");
+        return actual.size();
+    }
+
+    private static GraphDescription createDescription(Random random)
+    {
+        var description = new GraphDescription();
+        for (int v = 0; v < VERTEX_COUNT; v++)
+            addVertex(description, "v" + v, random);
+        var uris = new ArrayList<>(description.types.keySet());
+        while (description.edges.size() < EDGE_COUNT)
+            addRandomEdge(description, uris, random);
+        return description;
+    }
+
+    private static void addVertex(GraphDescription description, String uri, Random random)
+    {
+        var types = new ArrayList<String>();
+        types.add(TYPES[random.nextInt(TYPES.length)]);
+        if (random.nextInt(10) == 0)
+            types.add(TYPES[random.nextInt(TYPES.length)]);
+        var attributes = new LinkedHashMap<String, String>();
+        for (var attribute : ATTRIBUTES)
+        {
+            if (random.nextInt(4) != 0)
+                attributes.put(attribute, "value" + random.nextInt(20));
+        }
+        description.types.put(uri, types);
+        description.attributes.put(uri, attributes);
+    }
+
+    /** Adds an edge whose source is a hub one time in four. */
+    private static void addRandomEdge(GraphDescription description, List<String> uris, Random random)
+    {
+        var source = random.nextInt(4) == 0 ? uris.get(random.nextInt(HUB_COUNT)) : uris.get(random.nextInt(uris.size()));
+        var target = uris.get(random.nextInt(uris.size()));
+        description.addEdge(source, LABELS[random.nextInt(LABELS.length)], target);
+    }
+
+    /** Returns a copy of the description with every kind of change. */
+    private static GraphDescription mutate(GraphDescription first, Random random)
+    {
+        var second = first.copy();
+        var uris = new ArrayList<>(first.types.keySet());
+
+        // Removed vertices (with their edges) and edges
+        for (int i = 0; i < VERTEX_COUNT / 30; i++)
+            second.removeVertex(uris.get(random.nextInt(uris.size())));
+        var edgeKeys = new ArrayList<>(second.edges.keySet());
+        for (int i = 0; i < EDGE_COUNT / 20; i++)
+            second.edges.remove(edgeKeys.get(random.nextInt(edgeKeys.size())));
+
+        // Edges whose label changed
+        edgeKeys = new ArrayList<>(second.edges.keySet());
+        for (int i = 0; i < EDGE_COUNT / 50; i++)
+        {
+            var edge = second.edges.get(edgeKeys.get(random.nextInt(edgeKeys.size())));
+            edge = new String[] { edge[0], LABELS[random.nextInt(LABELS.length)], edge[2] };
+            second.edges.put(edge[0] + " " + edge[2], edge);
+        }
+
+        // Inserted vertices and edges
+        for (int i = 0; i < VERTEX_COUNT / 30; i++)
+            addVertex(second, "new" + i, random);
+        var secondUris = new ArrayList<>(second.types.keySet());
+        for (int i = 0; i < EDGE_COUNT / 20; i++)
+            addRandomEdge(second, secondUris, random);
+
+        // Changed, removed and inserted attributes
+        for (int i = 0; i < VERTEX_COUNT / 10; i++)
+        {
+            var attributes = second.attributes.get(secondUris.get(random.nextInt(secondUris.size())));
+            var attribute = ATTRIBUTES[random.nextInt(ATTRIBUTES.length)];
+            switch (random.nextInt(3))
+            {
+                case 0: attributes.put(attribute, "changed" + random.nextInt(20)); break;
+                case 1: attributes.remove(attribute); break;
+                default: attributes.putIfAbsent(attribute, "inserted"); break;
+            }
+        }
+        return second;
+    }
+
+    private static List<TGFD> createTGFDs()
+    {
+        var delta = new Delta(Period.ofDays(0), Period.ofDays(30), Duration.ofDays(1));
+
+        var actorPattern = new VF2PatternGraph(1);
+        var actor = new PatternVertex("actor");
+        var movie = new PatternVertex("movie");
+        actorPattern.addVertex(actor);
+        actorPattern.addVertex(movie);
+        actorPattern.addEdge(actor, movie, new RelationshipEdge("actor_of"));
+        var actorDependency = new Dependency();
+        actorDependency.addLiteralToX(new VariableLiteral("actor", "name", "actor", "name"));
+        actorDependency.addLiteralToY(new ConstantLiteral("movie", "year", "value1"));
+
+        var personPattern = new VF2PatternGraph(1);
+        var person = new PatternVertex("person");
+        var country = new PatternVertex("country");
+        personPattern.addVertex(person);
+        personPattern.addVertex(country);
+        personPattern.addEdge(person, country, new RelationshipEdge("born_in"));
+        var personDependency = new Dependency();
+        personDependency.addLiteralToX(new ConstantLiteral("person", "name", "value2"));
+        personDependency.addLiteralToY(new VariableLiteral("person", "birthYear", "actor", "birthYear"));
+
+        return List.of(
+            new TGFD(actorPattern, delta, actorDependency, "actors"),
+            new TGFD(personPattern, delta, personDependency, "persons"));
+    }
+
+    private static void check(boolean condition, String message)
+    {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+}
@@ -0,0 +1,178 @@
+import infra.*;
+
+import java.util.ArrayList;
+import java.util.TreeSet;
+
+/**
+ * Checks that the forks of a CopyOnWriteGraph are isolated from each other
+ * and that getWritableVertex rewires the edges of the copied vertex.
+ * Throws an AssertionError on the first failed check.
+ */
+public class testCopyOnWriteGraph
+{
+    /** Number of vertices of the chain (spans several chunks of the graph). */
+    private static final int CHAIN_LENGTH = 600;
+
+    public static void main(String[] args)
+    {
+        forkIsIsolatedFromSource();
+        sourceIsIsolatedFromFork();
+        writableVertexRewiresEdges();
+        writableVertexRewiresSelfLoop();
+        System.out.println("testCopyOnWriteGraph passed");
+    }
+
+    private static void forkIsIsolatedFromSource()
+    {
+        var source = createChain();
+        var before = describe(source);
+        var fork = source.fork();
+        var forkVertex = fork.getVertex("v1");
+
+        // Change every kind of state of the source after the fork.
+        var v1 = source.getWritableVertex(source.getVertex("v1"));
+        v1.setOrAddAttribute(new Attribute("name", "changed"));
+        v1.addAttribute("added", "value");
+        source.removeEdge(source.getVertex("v2"), source.getVertex("v3"));
+        source.addEdge(source.getVertex("v" + (CHAIN_LENGTH - 1)), source.getVertex("v0"), new RelationshipEdge("back"));
+        source.removeVertex(source.getVertex("v300"));
+        source.addVertex(new DataVertex("new", "person"));
+
+        check(describe(fork).equals(before), "the fork changed with its source");
+        check(fork.getVertex("v1") == forkVertex, "the vertex of the fork was replaced");
+        check(forkVertex.getAttributeValueByName("name").equals("name1"), "the vertex of the fork was changed");
+        check(!forkVertex.hasAttribute("added"), "an attribute was added to the vertex of the fork");
+        check(fork.getVertex("new") == null, "a vertex added to the source is in the fork");
+        check(v1 != forkVertex, "the source changed the vertex it shares with the fork");
+        check(!describe(source).equals(before), "the source did not change");
+    }
+
+    private static void sourceIsIsolatedFromFork()
+    {
+        var source = createChain();
+        var before = describe(source);
+        var fork = source.fork();
+
+        fork.getWritableVertex(fork.getVertex("v5")).setOrAddAttribute(new Attribute("name", "changed"));
+        fork.removeEdge(fork.getVertex("v5"), fork.getVertex("v6"));
+        fork.addEdge(fork.getVertex("v5"), fork.getVertex("v500"), new RelationshipEdge("jump"));
+        fork.removeVertex(fork.getVertex("v0"));
+
+        // A fork of the fork must not change either graph.
+        var second = fork.fork();
+        second.removeVertex(second.getVertex("v7"));
+        var forkAfter = describe(fork);
+        second.getWritableVertex(second.getVertex("v8")).setOrAddAttribute(new Attribute("name", "again"));
+
+        check(describe(source).equals(before), "the source changed with its fork");
+        check(describe(fork).equals(forkAfter), "the fork changed with its own fork");
+        check(source.getVertex("v5").getAttributeValueByName("name").equals("name5"), "the vertex of the source was changed");
+        check(fork.getVertex("v5").getAttributeValueByName("name").equals("changed"), "the fork lost its change");
+    }
+
+    private static void writableVertexRewiresEdges()
+    {
+        var source = createChain();
+        var fork = source.fork();
+        var original = fork.getVertex("v1");
+        var previous = fork.getVertex("v0");
+        var next = fork.getVertex("v2");
+
+        var writable = fork.getWritableVertex(original);
+        check(writable != original, "a vertex shared with the source was not copied");
+        check(fork.getWritableVertex(writable) == writable, "a writable vertex was copied again");
+        check(fork.getVertex("v1") == writable, "the copy does not replace the vertex in the fork");
+        check(!fork.containsVertex(original), "the fork still contains the shared vertex");
+        check(fork.vertexSet().size() == CHAIN_LENGTH, "the number of vertices changed");
+        check(fork.edgeSet().size() == CHAIN_LENGTH - 1, "the number of edges changed");
+
+        // The edges of the copy and of its neighbours refer to the copy.
+        check(fork.outDegreeOf(writable) == 1 && fork.inDegreeOf(writable) == 1, "the copy lost its edges");
+        var outgoing = fork.outgoingEdgesOf(writable).iterator().next();
+        check(outgoing.getSource() == writable && outgoing.getTarget() == next, "the outgoing edge of the copy is wrong");
+        check(fork.incomingEdgesOf(next).contains(outgoing), "the neighbour does not have the outgoing edge");
+        var incoming = fork.incomingEdgesOf(writable).iterator().next();
+        check(incoming.getSource() == previous && incoming.getTarget() == writable, "the incoming edge of the copy is wrong");
+        check(fork.outgoingEdgesOf(previous).contains(incoming), "the neighbour does not have the incoming edge");
+        check(fork.getEdge(previous, writable) == incoming, "getEdge does not find the incoming edge");
+        check(fork.getEdge(previous, original) == null, "getEdge finds an edge of the shared vertex");
+        for (var edge : fork.edgeSet())
+            check(edge.getSource() != original && edge.getTarget() != original, "an edge of the fork refers to the shared vertex");
+
+        // The source keeps the edges of the shared vertex.
+        check(source.getVertex("v1") == original, "the source lost its vertex");
+        var sourceOutgoing = source.outgoingEdgesOf(original).iterator().next();
+        check(sourceOutgoing.getSource() == original && sourceOutgoing != outgoing, "the source edge was rewired");
+        check(source.getEdge(source.getVertex("v0"), original) != null, "the source lost the incoming edge");
+
+        // Removing an edge of the copy removes it from both endpoints.
+        fork.removeEdge(outgoing);
+        check(fork.outDegreeOf(writable) == 0 && fork.inDegreeOf(next) == 0, "the edge of the copy was not removed");
+        check(source.outDegreeOf(original) == 1 && source.inDegreeOf(source.getVertex("v2")) == 1, "the source lost an edge");
+    }
+
+    private static void writableVertexRewiresSelfLoop()
+    {
+        var source = new CopyOnWriteGraph();
+        var loop = new DataVertex("loop", "person");
+        var other = new DataVertex("other", "person");
+        source.addVertex(loop);
+        source.addVertex(other);
+        source.addEdge(loop, loop, new RelationshipEdge("self"));
+        source.addEdge(loop, other, new RelationshipEdge("out"));
+        source.addEdge(other, loop, new RelationshipEdge("in"));
+        var fork = source.fork();
+
+        var writable = fork.getWritableVertex(fork.getVertex("loop"));
+        var self = fork.getEdge(writable, writable);
+        check(self != null && self.getLabel().equals("self"), "the self loop was not rewired");
+        check(fork.outDegreeOf(writable) == 2 && fork.inDegreeOf(writable) == 2, "the degree of the copy changed");
+        check(fork.outgoingEdgesOf(writable).contains(self) && fork.incomingEdgesOf(writable).contains(self),
+            "the self loop is not in both adjacency lists");
+        check(fork.getEdge(other, writable) != null && fork.getEdge(writable, other) != null, "an edge to the other vertex was lost");
+        check(fork.edgeSet().size() == 3, "the number of edges changed");
+        check(source.getEdge(loop, loop) != null && source.getEdge(loop, loop) != self, "the source self loop was rewired");
+    }
+
+    /** Creates the chain v0 -> v1 -> ... with one attribute per vertex. */
+    private static CopyOnWriteGraph createChain()
+    {
+        var graph = new CopyOnWriteGraph();
+        var vertices = new ArrayList<DataVertex>();
+        for (int i = 0; i < CHAIN_LENGTH; i++)
+        {
+            var vertex = new DataVertex("v" + i, "person");
+            vertex.addAttribute("name", "name" + i);
+            graph.addVertex(vertex);
+            vertices.add(vertex);
+        }
+        for (int i = 1; i < CHAIN_LENGTH; i++)
+            graph.addEdge(vertices.get(i - 1), vertices.get(i), new RelationshipEdge("next"));
+        return graph;
+    }
+
+    /** Describes the vertices, attributes and edges of the graph by URI. */
+    private static TreeSet<String> describe(CopyOnWriteGraph graph)
+    {
+        var description = new TreeSet<String>();
+        for (var vertex : graph.vertexSet())
+        {
+            var attributes = new TreeSet<String>();
+            for (var attribute : vertex.getAllAttributesList())
+                attributes.add(attribute.getAttrName() + "=" + attribute.getAttrValue());
+            description.add(((DataVertex)vertex).getVertexURI() + " " + attributes);
+        }
+        for (var edge : graph.edgeSet())
+        {
+            description.add(((DataVertex)edge.getSource()).getVertexURI() + " -" + edge.getLabel() + "-> " +
+                ((DataVertex)edge.getTarget()).getVertexURI());
+        }
+        return description;
+    }
+
+    private static void check(boolean condition, String message)
+    {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+}
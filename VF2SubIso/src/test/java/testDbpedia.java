@@ -1,20 +1,9 @@
-import BatchViolation.NaiveBatchTED;
-import BatchViolation.OptBatchTED;
-import TGFDLoader.TGFDGenerator;
-import VF2Runner.VF2SubgraphIsomorphism;
-import graphLoader.DBPediaLoader;
-import infra.*;
-import org.jgrapht.GraphMapping;
-import util.myConsole;
-import util.properties;
+import pipeline.Pipeline;
+import pipeline.PipelineConfig;
 
-import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.List;
 
 public class testDbpedia
 {
@@ -52,170 +41,13 @@ public class testDbpedia
      *     -d2 "F:\\MorteZa\\Datasets\\Statistical\\2017\\mappingbased_objects_en2.ttl"
      */
     public static void main(String []args) throws FileNotFoundException {
-        //Expected arguments:
-        // arges[0]: Type file,             sample ->  "F:\\MorteZa\\Datasets\\Statistical\\2016\\types.ttl"
-        // arges[1]: Object mapping file,   sample ->  "F:\\MorteZa\\Datasets\\Statistical\\2016\\mappingbased_objects_en.ttl"
-        // arges[2]: Literal mapping file,  sample ->  "F:\\MorteZa\\Datasets\\Statistical\\2016\\literals.ttl"
-        // arges[3]: Graph pattern file,    sample ->  "D:\\Java\\TGFD-Project\\TGFD\\VF2SubIso\\src\\test\\java\\samplePatterns\\pattern1.txt"
 
-        // TODO: input literals [2021-02-14]
+        PipelineConfig config=new PipelineConfig();
+        config.dataset=PipelineConfig.Dataset.dbpedia;
+        config.mode=PipelineConfig.Mode.batch;
+        config.tedMethods=new ArrayList<>(List.of("naive", "optimized"));
+        config.read(args[0]);
 
-        long wallClockStart=System.currentTimeMillis();
-
-        HashMap<Integer, ArrayList<String>> typePathsById = new HashMap<>();
-        HashMap<Integer, ArrayList<String>> dataPathsById = new HashMap<>();
-        String patternPath = "";
-        HashMap<Integer,LocalDate> timestamps=new HashMap<>();
-
-        // This will force the dbpediaLoader to only load entities of certain types in the TGFD
-        // Set to be false if want to load the whole graph
-
-
-        System.out.println("Test DBPedia subgraph isomorphism");
-
-        Scanner scanner = new Scanner(new File(args[0]));
-        while (scanner.hasNextLine()) {
-            String line = scanner.nextLine();
-            String []conf=line.split(" ");
-            if(conf.length!=2)
-                continue;
-            if (conf[0].toLowerCase().startsWith("-t"))
-            {
-                var snapshotId = Integer.parseInt(conf[0].substring(2));
-                if (!typePathsById.containsKey(snapshotId))
-                    typePathsById.put(snapshotId, new ArrayList<String>());
-                typePathsById.get(snapshotId).add(conf[1]);
-            }
-            else if (conf[0].toLowerCase().startsWith("-d"))
-            {
-                var snapshotId = Integer.parseInt(conf[0].substring(2));
-                if (!dataPathsById.containsKey(snapshotId))
-                    dataPathsById.put(snapshotId, new ArrayList<String>());
-                dataPathsById.get(snapshotId).add(conf[1]);
-            }
-            else if (conf[0].toLowerCase().startsWith("-p"))
-            {
-                patternPath = conf[1];
-            }
-            else if (conf[0].toLowerCase().startsWith("-s"))
-            {
-                var snapshotId = Integer.parseInt(conf[0].substring(2));
-                timestamps.put(snapshotId,LocalDate.parse(conf[1]));
-            }
-            else if(conf[0].toLowerCase().startsWith("-optgraphload"))
-            {
-                properties.myProperties.optimizedLoadingBasedOnTGFD=Boolean.parseBoolean(conf[1]);
-            }
-        }
-        // TODO: check that typesPaths.keySet == dataPaths.keySet [2021-02-14]
-
-        // Test whether we loaded all the paths correctly
-
-        System.out.println(dataPathsById.keySet() + " *** " + dataPathsById.values());
-
-        System.out.println(typePathsById.keySet() + " *** " + typePathsById.values());
-
-        //Load the TGFDs.
-        TGFDGenerator generator = new TGFDGenerator(patternPath);
-        List<TGFD> allTGFDs=generator.getTGFDs();
-        //TGFD firstTGFD=allTGFDs.get(0);
-
-        //Create the match collection for all the TGFDs in the list
-        HashMap<TGFD, MatchCollection> allMatchCollections=new HashMap<>();
-        for (TGFD tgfd:allTGFDs) {
-            allMatchCollections.put(tgfd,new MatchCollection(tgfd.getPattern(),tgfd.getDependency(),tgfd.getDelta().getGranularity()));
-        }
-
-        //Load all the graph snapshots...
-
-        Object[] ids=dataPathsById.keySet().toArray();
-        Arrays.sort(ids);
-        for (int i=0;i<ids.length;i++)
-        {
-            System.out.println("===========Snapshot (" + ids[i] +")===========");
-
-            long startTime=System.currentTimeMillis();
-
-            LocalDate currentSnapshotDate=timestamps.get((int)ids[i]);
-
-            DBPediaLoader dbpedia = new DBPediaLoader(allTGFDs,typePathsById.get((int)ids[i]),
-                    dataPathsById.get((int)ids[i]));
-
-            myConsole.print("Load graph ("+ids[i] + ")", System.currentTimeMillis()-startTime);
-
-            // Now, we need to find the matches for each snapshot.
-            // Finding the matches...
-
-            for (TGFD tgfd:allTGFDs) {
-
-                VF2SubgraphIsomorphism VF2 = new VF2SubgraphIsomorphism();
-                System.out.println("\n########## Graph pattern ##########");
-                System.out.println(tgfd.getPattern().toString());
-                Iterator<GraphMapping<Vertex, RelationshipEdge>> results= VF2.execute(dbpedia.getGraph(), tgfd.getPattern(),false);
-
-
-                //Retrieving and storing the matches of each timestamp.
-                System.out.println("Retrieving the matches");
-
-                startTime=System.currentTimeMillis();
-
-                allMatchCollections.get(tgfd).addMatches(currentSnapshotDate,results);
-
-                myConsole.print("Match retrieval", System.currentTimeMillis()-startTime);
-            }
-        }
-
-        for (TGFD tgfd:allTGFDs) {
-            // Now, we need to find all the violations
-            //First, we run the Naive Batch TED
-            System.out.println("======================================================");
-            System.out.println("Running the naive TED");
-            long startTime=System.currentTimeMillis();
-
-            NaiveBatchTED naive=new NaiveBatchTED(allMatchCollections.get(tgfd),tgfd);
-            Set<Violation> allViolationsNaiveBatchTED=naive.findViolations();
-            System.out.println("Number of violations: " + allViolationsNaiveBatchTED.size());
-
-            myConsole.print("Naive Batch TED", System.currentTimeMillis()-startTime);
-
-            saveViolations("naive",allViolationsNaiveBatchTED,tgfd);
-
-
-            // Next, we need to find all the violations using the optimize method
-            System.out.println("Running the optimized TED");
-            startTime=System.currentTimeMillis();
-
-            OptBatchTED optimize=new OptBatchTED(allMatchCollections.get(tgfd),tgfd);
-            Set<Violation> allViolationsOptBatchTED=optimize.findViolations();
-            System.out.println("Number of violations (Optimized method): " + allViolationsOptBatchTED.size());
-
-            myConsole.print("Optimized Batch TED", System.currentTimeMillis()-startTime);
-
-            if(properties.myProperties.saveViolations)
-                saveViolations("optimized",allViolationsOptBatchTED,tgfd);
-        }
-
-        myConsole.print("Total wall clock time: ", System.currentTimeMillis()-wallClockStart);
-
-        myConsole.saveLogs("run_"+ LocalDateTime.now().toString() + ".txt");
-    }
-
-    private static void saveViolations(String path, Set<Violation> violations, TGFD tgfd)
-    {
-        try {
-            FileWriter file = new FileWriter(path +"_" + tgfd.getName() + ".txt");
-            file.write("***************TGFD***************\n");
-            file.write(tgfd.toString());
-            file.write("\n===============Violations===============\n");
-            for (Violation vio:violations) {
-                file.write(vio.toString() +
-                        "\n---------------------------------------------------\n");
-            }
-            file.close();
-            System.out.println("Successfully wrote to the file: " + path);
-        } catch (IOException e) {
-            System.out.println("An error occurred.");
-            e.printStackTrace();
-        }
+        Pipeline.fromConfig(config).run();
     }
-}
\ No newline at end of file
+}
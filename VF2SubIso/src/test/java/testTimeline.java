@@ -0,0 +1,151 @@
+import infra.Timeline;
+
+import java.time.Duration;
+
+/**
+ * Checks that a Timeline coalesces timepoints and intervals into sorted, non-overlapping runs.
+ * Throws an AssertionError on the first failed check.
+ */
+public class testTimeline
+{
+    private static final Duration DAY = Duration.ofDays(1);
+
+    private static final Duration WEEK = Duration.ofDays(7);
+
+    public static void main(String[] args)
+    {
+        timepointsExtendOrStartRuns();
+        timepointsOffGranularityAreIgnored();
+        intervalsCoalesceInAnyOrder();
+        intervalsBridgeRuns();
+        containsAndCopy();
+        System.out.println("testTimeline passed");
+    }
+
+    private static void timepointsExtendOrStartRuns()
+    {
+        var timeline = new Timeline();
+        check(timeline.isEmpty() && !timeline.contains(0), "a new timeline is not empty");
+
+        timeline.addTimepoint(10, DAY);
+        timeline.addTimepoint(11, DAY);
+        timeline.addTimepoint(12, DAY);
+        checkRuns(timeline, 10, 12);
+
+        // A gap greater than the granularity starts a new run.
+        timeline.addTimepoint(15, DAY);
+        timeline.addTimepoint(16, DAY);
+        checkRuns(timeline, 10, 12, 15, 16);
+        check(timeline.getLatestEndDay() == 16, "wrong latest end");
+
+        timeline = new Timeline();
+        timeline.addTimepoint(0, WEEK);
+        timeline.addTimepoint(7, WEEK);
+        timeline.addTimepoint(21, WEEK);
+        checkRuns(timeline, 0, 7, 21, 21);
+    }
+
+    private static void timepointsOffGranularityAreIgnored()
+    {
+        var timeline = new Timeline(0, 7);
+
+        // Timepoints that are not after the latest end or closer than the granularity are ignored.
+        timeline.addTimepoint(7, WEEK);
+        timeline.addTimepoint(3, WEEK);
+        timeline.addTimepoint(10, WEEK);
+        checkRuns(timeline, 0, 7);
+
+        timeline.addTimepoint(14, WEEK);
+        checkRuns(timeline, 0, 14);
+    }
+
+    private static void intervalsCoalesceInAnyOrder()
+    {
+        var timeline = new Timeline();
+        timeline.addInterval(20, 25, DAY);
+        timeline.addInterval(0, 5, DAY);
+        timeline.addInterval(10, 12, DAY);
+        checkRuns(timeline, 0, 5, 10, 12, 20, 25);
+
+        // Overlapping on either side.
+        timeline.addInterval(3, 7, DAY);
+        timeline.addInterval(18, 21, DAY);
+        checkRuns(timeline, 0, 7, 10, 12, 18, 25);
+
+        // Adjacent within the granularity before and after a run.
+        timeline.addInterval(8, 9, DAY);
+        checkRuns(timeline, 0, 12, 18, 25);
+        timeline.addInterval(26, 26, DAY);
+        checkRuns(timeline, 0, 12, 18, 26);
+
+        // Contained in a run.
+        timeline.addInterval(19, 20, DAY);
+        checkRuns(timeline, 0, 12, 18, 26);
+
+        // Further than the granularity stays separate, at the front and at the end.
+        timeline.addInterval(-5, -2, DAY);
+        timeline.addInterval(30, 31, DAY);
+        checkRuns(timeline, -5, -2, 0, 12, 18, 26, 30, 31);
+    }
+
+    private static void intervalsBridgeRuns()
+    {
+        var timeline = new Timeline();
+        for (int start = 0; start < 50; start += 10)
+            timeline.addInterval(start, start + 2, DAY);
+        checkRuns(timeline, 0, 2, 10, 12, 20, 22, 30, 32, 40, 42);
+
+        // One interval that touches several runs merges them and keeps the others.
+        timeline.addInterval(13, 29, DAY);
+        checkRuns(timeline, 0, 2, 10, 32, 40, 42);
+
+        // With a weekly granularity, runs up to a week apart are coalesced.
+        timeline.addInterval(49, 49, WEEK);
+        checkRuns(timeline, 0, 2, 10, 32, 40, 49);
+        timeline.addInterval(3, 3, WEEK);
+        checkRuns(timeline, 0, 32, 40, 49);
+        timeline.addInterval(-100, 100, DAY);
+        checkRuns(timeline, -100, 100);
+    }
+
+    private static void containsAndCopy()
+    {
+        var timeline = new Timeline();
+        timeline.addInterval(0, 2, DAY);
+        timeline.addInterval(10, 12, DAY);
+        timeline.addInterval(20, 22, DAY);
+        for (int day = -1; day <= 23; day++)
+        {
+            var expected = (day >= 0 && day <= 2) || (day >= 10 && day <= 12) || (day >= 20 && day <= 22);
+            check(timeline.contains(day) == expected, "wrong contains(" + day + ")");
+        }
+
+        var copy = new Timeline(timeline);
+        copy.addInterval(3, 9, DAY);
+        copy.addTimepoint(23, DAY);
+        checkRuns(copy, 0, 12, 20, 23);
+        checkRuns(timeline, 0, 2, 10, 12, 20, 22);
+
+        var empty = new Timeline(new Timeline());
+        empty.addTimepoint(5, DAY);
+        checkRuns(empty, 5, 5);
+    }
+
+    /** Checks the runs of the timeline as start and end day pairs. */
+    private static void checkRuns(Timeline timeline, int... days)
+    {
+        var runs = new StringBuilder();
+        for (int i = 0; i < timeline.size(); i++)
+            runs.append(' ').append(timeline.getStartDay(i)).append('-').append(timeline.getEndDay(i));
+        var expected = new StringBuilder();
+        for (int i = 0; i < days.length; i += 2)
+            expected.append(' ').append(days[i]).append('-').append(days[i + 1]);
+        check(runs.toString().equals(expected.toString()), "expected runs" + expected + " but got" + runs);
+    }
+
+    private static void check(boolean condition, String message)
+    {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+}